@@ -0,0 +1,182 @@
+package com.uma.example.springuma.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.sun.net.httpserver.HttpServer;
+import com.uma.example.springuma.SpringumaApplication;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.MedicoService;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.RepositoryImagen;
+
+// Prueba de carga de la API servlet con hilos de plataforma y con hilos virtuales. Cada operacion
+// lanza "concurrencia" peticiones a la vez por HTTP y espera a todas: peticiones/s = concurrencia /
+// tiempo medio. "informes" crea informes, que esperan ~latencia-ms al predictor remoto (un stub
+// local) y escriben en H2; "consultas" lista las imagenes de un paciente por JDBC. El modo virtual
+// necesita Java 21; con -jvmArgsAppend -Djdk.tracePinnedThreads=short se ven los hilos fijados a su
+// portador
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HilosBenchmark {
+
+    @Param({ "plataforma", "virtual" })
+    public String modo;
+
+    @Param({ "200", "1000" })
+    public int concurrencia;
+
+    @Param({ "50" })
+    public int latenciaMs;
+
+    private HttpServer predictor;
+    private ExecutorService hilosPredictor;
+    private ConfigurableApplicationContext context;
+    private HttpClient cliente;
+    private String base;
+    private List<HttpRequest> informes;
+    private long idPaciente;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        boolean virtual = "virtual".equals(modo);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("El modo virtual necesita Java 21 o superior");
+        }
+        hilosPredictor = Executors.newCachedThreadPool();
+        predictor = HttpServer.create(new InetSocketAddress("localhost", 0), concurrencia);
+        predictor.setExecutor(hilosPredictor);
+        predictor.createContext("/modelo", intercambio -> {
+            intercambio.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(latenciaMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] cuerpo = "[{\"label\": \"LABEL_0\", \"score\": 0.75}, {\"label\": \"LABEL_1\", \"score\": 0.25}]"
+                    .getBytes(StandardCharsets.UTF_8);
+            intercambio.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream out = intercambio.getResponseBody()) {
+                out.write(cuerpo);
+            }
+        });
+        predictor.start();
+
+        context = new SpringApplicationBuilder(SpringumaApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "spring.datasource.url=jdbc:h2:mem:hilos;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "spring.devtools.restart.enabled=false",
+                        "logging.level.root=WARN",
+                        "datasource.bulkhead.espera-ms=30000",
+                        "prediccion.predictor=remoto",
+                        "prediccion.api.url=http://localhost:" + predictor.getAddress().getPort() + "/modelo",
+                        "prediccion.api.max-concurrentes=" + concurrencia,
+                        "prediccion.api.pool.max-total=" + concurrencia,
+                        "prediccion.api.pool.max-per-route=" + concurrencia,
+                        "prediccion.api.espera-ms=30000",
+                        "prediccion.batch.enabled=false",
+                        "prediccion.cache.max-size=0")
+                .run();
+        base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        Medico medico = context.getBean(MedicoService.class).addMedico(new Medico("00000000H", "Benchmark", "Radiologia"));
+        Paciente paciente = context.getBean(PacienteService.class).addPaciente(new Paciente("Benchmark", 50, "", "00000000Q", medico));
+        idPaciente = paciente.getId();
+        // Una imagen distinta por peticion concurrente, para que todas lleguen al predictor remoto: el
+        // agrupador de lotes (PrediccionBatcher) esta desactivado y PrediccionCache no coalesce peticiones,
+        // pero con max-size=0 Caffeine descarta las entradas de forma asincrona y una prediccion del mismo
+        // hash de la iteracion anterior aun podria resolverse sin llamar al modelo. Los bytes anadidos tras
+        // el final del PNG solo cambian el hash
+        ImagenService imagenService = context.getBean(ImagenService.class);
+        byte[] png = ImagenesBenchmark.cargar("healthy.png");
+        for (int i = 0; i < concurrencia; i++) {
+            byte[] distinta = Arrays.copyOf(png, png.length + Integer.BYTES);
+            ByteBuffer.wrap(distinta, png.length, Integer.BYTES).putInt(i);
+            imagenService.uploadImage(new MockMultipartFile("image", "healthy-" + i + ".png", "image/png", distinta), paciente);
+        }
+        informes = context.getBean(RepositoryImagen.class).findAllResumen().stream()
+                .map(imagen -> HttpRequest.newBuilder(URI.create(base + "/informe"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"contenido\": \"Benchmark\", \"imagen\": {\"id\": " + imagen.getId() + "}}"))
+                        .build())
+                .toList();
+
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        predictor.stop(0);
+        hilosPredictor.shutdownNow();
+    }
+
+    @Benchmark
+    public int informes() {
+        return lanzar(informes, 201);
+    }
+
+    @Benchmark
+    public int consultas() {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + "/imagen/paciente/" + idPaciente)).GET().build();
+        return lanzar(Collections.nCopies(concurrencia, peticion), 200);
+    }
+
+    // Devuelve cuantas peticiones han acabado con el estado esperado
+    private int lanzar(List<HttpRequest> peticiones, int esperado) {
+        List<CompletableFuture<HttpResponse<Void>>> respuestas = new ArrayList<>();
+        for (HttpRequest peticion : peticiones) {
+            respuestas.add(cliente.sendAsync(peticion, HttpResponse.BodyHandlers.discarding()));
+        }
+        int correctas = 0;
+        for (CompletableFuture<HttpResponse<Void>> respuesta : respuestas) {
+            if (respuesta.join().statusCode() == esperado) {
+                correctas++;
+            }
+        }
+        return correctas;
+    }
+}
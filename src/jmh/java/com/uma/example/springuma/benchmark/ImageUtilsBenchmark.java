@@ -0,0 +1,76 @@
+package com.uma.example.springuma.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.uma.example.springuma.utils.ImageCodec;
+import com.uma.example.springuma.utils.ImageUtils;
+
+// Compresion y descompresion de imagenes con cada codec, en memoria y en streaming.
+// Con -prof gc se ve ademas la tasa de asignacion por operacion.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageUtilsBenchmark {
+
+    @Param({ "healthy.png", "no_healthty.png", "1", "5", "20" })
+    public String imagen;
+
+    @Param({ "deflate", "deflate-fast" })
+    public String codec;
+
+    private byte[] original;
+    private byte[] comprimida;
+    private ImageCodec imageCodec;
+
+    @Setup
+    public void setUp() throws IOException {
+        original = ImagenesBenchmark.cargar(imagen);
+        imageCodec = ImageCodec.fromTag(codec);
+        try (InputStream in = imageCodec.encode(new ByteArrayInputStream(original))) {
+            comprimida = in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public byte[] compressImage() {
+        return ImageUtils.compressImage(original, imageCodec.getNivel());
+    }
+
+    @Benchmark
+    public byte[] decompressImage() {
+        return ImageUtils.decompressImage(comprimida);
+    }
+
+    @Benchmark
+    public long compressImageStreaming() throws IOException {
+        try (InputStream in = imageCodec.encode(new ByteArrayInputStream(original))) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long decompressImageStreaming() throws IOException {
+        try (InputStream in = imageCodec.decode(new ByteArrayInputStream(comprimida))) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.uma.example.springuma.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.uma.example.springuma.SpringumaApplication;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.MedicoService;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.RepositoryImagen;
+
+// Subida y descarga de imagenes a traves de ImagenService contra un H2 en memoria,
+// con el almacen y el codec que se indiquen como parametros. El esquema lo crean las
+// migraciones de Flyway, como en la aplicacion y en los tests
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagenServiceBenchmark {
+
+    @Param({ "healthy.png", "1", "10" })
+    public String imagen;
+
+    @Param({ "database", "filesystem" })
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private ImagenService imagenService;
+    private MockMultipartFile fichero;
+    private Paciente paciente;
+    private long idImagen;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(SpringumaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "spring.devtools.restart.enabled=false",
+                        "logging.level.root=WARN",
+                        "imagen.store.type=" + store,
+                        "imagen.store.path=target/imagenes-benchmark")
+                .run();
+        imagenService = context.getBean(ImagenService.class);
+
+        Medico medico = context.getBean(MedicoService.class).addMedico(new Medico("00000000B", "Benchmark", "Radiologia"));
+        paciente = context.getBean(PacienteService.class).addPaciente(new Paciente("Benchmark", 50, "", "00000000P", medico));
+
+        String nombre = imagen.endsWith(".png") ? imagen : imagen + "mb.raw";
+        fichero = new MockMultipartFile("image", nombre, null, ImagenesBenchmark.cargar(imagen));
+        imagenService.uploadImage(fichero, paciente);
+        idImagen = context.getBean(RepositoryImagen.class).findAllResumen().get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String uploadImage() throws IOException {
+        return imagenService.uploadImage(fichero, paciente);
+    }
+
+    @Benchmark
+    public boolean downloadImage() throws IOException {
+        return imagenService.downloadImage(idImagen, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public boolean roundTrip() throws IOException {
+        imagenService.uploadImage(fichero, paciente);
+        return imagenService.downloadImage(idImagen, OutputStream.nullOutputStream());
+    }
+}
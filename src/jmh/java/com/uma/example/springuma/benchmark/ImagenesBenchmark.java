@@ -0,0 +1,34 @@
+package com.uma.example.springuma.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+// Datos de entrada de los benchmarks: las imagenes de los tests o un raster sintetico de N MB
+final class ImagenesBenchmark {
+
+    private ImagenesBenchmark() {
+    }
+
+    // "healthy.png" / "no_healthty.png" se leen de src/test/resources; un numero genera N MB
+    static byte[] cargar(String imagen) throws IOException {
+        if (imagen.endsWith(".png")) {
+            return Files.readAllBytes(Paths.get("src", "test", "resources", imagen));
+        }
+        return rasterSintetico(Integer.parseInt(imagen) * 1024 * 1024);
+    }
+
+    // Escala de grises con degradado y ruido, parecida a una mamografia sin comprimir
+    private static byte[] rasterSintetico(int tamano) {
+        byte[] datos = new byte[tamano];
+        Random random = new Random(tamano);
+        int ancho = 2048;
+        for (int i = 0; i < tamano; i++) {
+            int x = i % ancho;
+            int y = i / ancho;
+            datos[i] = (byte) (((x + y) >> 4) + random.nextInt(8));
+        }
+        return datos;
+    }
+}
@@ -0,0 +1,51 @@
+package com.uma.example.springuma;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.uma.example.springuma.utils.DataSourceAcotado;
+
+// Modo de hilos virtuales (spring.threads.virtual.enabled=true con Java 21 o superior). Spring Boot
+// pasa a hilos virtuales Tomcat y el applicationTaskExecutor, y PrediccionJobService e
+// ImportacionService sus ejecutores. Sin el limite del pool de hilos de Tomcat, miles de peticiones
+// podrian esperar a la vez por las conexiones de Hikari, asi que el DataSource se envuelve en un
+// bulkhead (ver DataSourceAcotado). Tambien deja como mucho max-concurrentes hilos dentro de H2,
+// que aun entra en bloques synchronized al crear sesiones, en el DDL y con escrituras concurrentes
+// sobre la misma tabla. Los hilos virtuales necesitan Java 21: con una version anterior Spring Boot
+// ignoraria la propiedad sin avisar, asi que la aplicacion no arranca
+@Configuration
+public class HilosVirtualesConfig {
+
+    // Conexiones del pool que quedan fuera del bulkhead para las que un hilo abre anidadas
+    private static final int MARGEN_POOL = 2;
+
+    // Estatico para que se registre antes de crear el DataSource
+    @Bean
+    public static BeanPostProcessor bulkheadDataSource(Environment entorno) {
+        if (entorno.getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("spring.threads.virtual.enabled=true necesita Java 21 o superior (version actual: "
+                    + Runtime.version().feature() + ")");
+        }
+        boolean activo = Threading.VIRTUAL.isActive(entorno)
+                || entorno.getProperty("datasource.bulkhead.enabled", Boolean.class, false);
+        int pool = entorno.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int maxConcurrentes = entorno.getProperty("datasource.bulkhead.max-concurrentes", Integer.class,
+                Math.max(1, pool - MARGEN_POOL));
+        long esperaMs = entorno.getProperty("datasource.bulkhead.espera-ms", Long.class, 2000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                if (activo && bean instanceof DataSource dataSource && !(bean instanceof DataSourceAcotado)) {
+                    return new DataSourceAcotado(dataSource, maxConcurrentes, esperaMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.uma.example.springuma;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import com.uma.example.springuma.utils.DataSourceAcotado;
+import com.uma.example.springuma.utils.DataSourceMedido;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Metricas de acceso a datos que se publican en /actuator/prometheus junto a las de Spring Boot
+// (pool de Hikari, estadisticas de Hibernate, spring.data.repository.invocations por repositorio y
+// metodo): las sentencias SQL de cada peticion (SentenciasSqlFilter), cada sentencia por tipo con el
+// log de las lentas (DataSourceMedido) y la ocupacion del bulkhead de HilosVirtualesConfig
+@Configuration
+public class MetricasConfig {
+
+    // Devuelve el tipo concreto para que Spring vea que es Ordered antes de crearlo
+    @Bean
+    public static MedirDataSource medirDataSource(ObjectProvider<MeterRegistry> registros, Environment entorno) {
+        return new MedirDataSource(registros, entorno.getProperty("metricas.sql.umbral-lenta-ms", Long.class, 200L));
+    }
+
+    @Bean
+    public MeterBinder metricasBulkhead(DataSource dataSource) {
+        return registro -> {
+            DataSourceAcotado acotado = acotado(dataSource);
+            if (acotado == null) {
+                return;
+            }
+            Gauge.builder("datasource.bulkhead.en-uso", acotado, DataSourceAcotado::getEnUso)
+                    .description("Conexiones en uso dentro del bulkhead")
+                    .register(registro);
+            Gauge.builder("datasource.bulkhead.en-espera", acotado, DataSourceAcotado::getEnEspera)
+                    .description("Hilos esperando un permiso del bulkhead")
+                    .register(registro);
+        };
+    }
+
+    private static DataSourceAcotado acotado(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(DataSourceAcotado.class) ? dataSource.unwrap(DataSourceAcotado.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    // Ordered para envolver el DataSource antes que el bulkhead: se mide solo la ejecucion de cada
+    // sentencia, no la espera por una conexion, y el DataSource expuesto sigue siendo DataSourceAcotado
+    static class MedirDataSource implements BeanPostProcessor, Ordered {
+
+        private final ObjectProvider<MeterRegistry> registros;
+
+        private final long umbralLentaMs;
+
+        MedirDataSource(ObjectProvider<MeterRegistry> registros, long umbralLentaMs) {
+            this.registros = registros;
+            this.umbralLentaMs = umbralLentaMs;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String nombre) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof DataSourceMedido)
+                    && !(bean instanceof DataSourceAcotado)) {
+                return new DataSourceMedido(dataSource, registros, umbralLentaMs);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -5,17 +5,35 @@ import java.util.Collections;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
-@SpringBootApplication
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
+
+// R2DBC solo esta en el classpath con el perfil maven reactivo y se configura en ReactivoConfig: su
+// autoconfiguracion añadiria un segundo gestor de transacciones y @Transactional dejaria de saber cual usar
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcDataAutoConfiguration.class,
+		R2dbcRepositoriesAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 public class SpringumaApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(SpringumaApplication.class, args);
 	}
 
+// Escribir el JSON no lanza una consulta por cada relacion LAZY sin cargar: cada endpoint que
+// devuelve relaciones las carga antes con su grafo (ver los @EntityGraph de los repositorios)
+@Bean
+public Hibernate6Module hibernateModule() {
+    Hibernate6Module modulo = new Hibernate6Module();
+    modulo.disable(Hibernate6Module.Feature.USE_TRANSIENT_ANNOTATION);
+    return modulo;
+}
+
 @Bean
 public CorsFilter corsFilter() {
     final UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,23 @@
+package com.uma.example.springuma.controller;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.uma.example.springuma.model.CacheService;
+
+@RestController
+@Profile("!reactivo")
+public class CacheController {
+
+    @Autowired
+    private CacheService cacheService;
+
+    @GetMapping("/cache/estadisticas")
+    public Map<String, Map<String, Long>> getEstadisticas() {
+        return cacheService.getEstadisticas();
+    }
+}
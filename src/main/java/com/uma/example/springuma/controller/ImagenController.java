@@ -1,53 +1,246 @@
 package com.uma.example.springuma.controller;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
 import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Miniatura;
+import com.uma.example.springuma.model.MiniaturaService;
 import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.Pagina;
+import com.uma.example.springuma.model.PrediccionBatcher;
+import com.uma.example.springuma.model.PrediccionJob;
+import com.uma.example.springuma.model.PrediccionJobService;
+
+import jakarta.persistence.EntityNotFoundException;
 
 @RestController
+@Profile("!reactivo")
 public class ImagenController {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagenController.class);
+
     @Autowired
     private ImagenService imagenService;
 
+    @Autowired
+    private PrediccionJobService prediccionJobService;
+
+    @Autowired
+    private PrediccionBatcher prediccionBatcher;
+
+    @Value("${prediccion.espera-ms:30000}")
+    private long esperaPrediccion;
+
+    @Autowired
+    private MiniaturaService miniaturaService;
+
 	@GetMapping("/imagen/{id}")
-	public ResponseEntity<?> downloadImage(@PathVariable long id){
-		byte[] imageData=imagenService.downloadImage(id);
+	public ResponseEntity<StreamingResponseBody> downloadImage(@PathVariable long id, WebRequest webRequest,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range){
+        Imagen imagen = imagenService.getImagenDescarga(id);
+        if (imagen == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // El contenido de una imagen no cambia, asi que su hash sirve de ETag. checkNotModified
+        // tambien añade ETag y Last-Modified a la respuesta.
+        String etag = imagen.getContentHash() != null ? "\"" + imagen.getContentHash() + "\"" : null;
+        long lastModified = imagen.getFecha() != null ? imagen.getFecha().getTimeInMillis() : -1;
+        if (etag != null ? webRequest.checkNotModified(etag, lastModified) : webRequest.checkNotModified(lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        MediaType tipo = MediaType.valueOf("image/png");
+        Long tamano = imagen.getContentSize();
+        if (tamano == null) {
+            // Imagenes antiguas, sin tamaño conocido: siempre completas
+            StreamingResponseBody imageData = out -> comprobarEscrita(imagenService.downloadImage(imagen, out), id);
+            return ResponseEntity.ok().contentType(tipo).body(imageData);
+        }
+
+        List<HttpRange> rangos = rangosSolicitados(range, webRequest.getHeader(HttpHeaders.IF_RANGE), etag);
+        // Con varios rangos se devuelve la imagen completa, que tambien es una respuesta valida
+        if (rangos.size() == 1) {
+            long inicio = rangos.get(0).getRangeStart(tamano);
+            long fin = rangos.get(0).getRangeEnd(tamano);
+            if (inicio >= tamano || fin < inicio) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano)
+                        .build();
+            }
+            StreamingResponseBody parte = out -> comprobarEscrita(imagenService.downloadImage(imagen, inicio, fin - inicio + 1, out), id);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamano)
+                    .contentType(tipo)
+                    .contentLength(fin - inicio + 1)
+                    .body(parte);
+        }
+
+        // La imagen se descomprime mientras se envia, sin materializarla en memoria
+        StreamingResponseBody imageData = out -> comprobarEscrita(imagenService.downloadImage(imagen, out), id);
 		return ResponseEntity.ok()
-        .contentType(MediaType.valueOf(
-            "image/png"
-        ))
+        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+        .contentType(tipo)
+        .contentLength(tamano)
         .body(imageData);
 	}
 
+    // El contenido ya se ha comprobado al preparar la descarga; si desaparece antes de enviarlo (un
+    // borrado a la vez), la respuesta se corta con un error en lugar de acabar vacia como si fuera valida
+    private static void comprobarEscrita(boolean escrita, long id) throws IOException {
+        if (!escrita) {
+            throw new IOException("La imagen " + id + " ya no tiene contenido");
+        }
+    }
+
+    // Rangos de la cabecera Range; se ignoran si son invalidos o si If-Range no coincide con el ETag actual
+    private List<HttpRange> rangosSolicitados(String range, String ifRange, String etag) {
+        if (range == null || (ifRange != null && !ifRange.equals(etag))) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    // Las miniaturas no cambian nunca: con el ETag, un If-None-Match que coincide devuelve 304
+    @GetMapping("/imagen/{id}/thumbnail")
+    public ResponseEntity<?> getMiniatura(@PathVariable long id, @RequestParam(name = "size", defaultValue = "128") int size) throws IOException {
+        if (!miniaturaService.getTamanos().contains(size)) {
+            return ResponseEntity.badRequest().body("Tamaños disponibles: " + miniaturaService.getTamanos());
+        }
+        Miniatura miniatura = miniaturaService.getMiniatura(id, size);
+        if (miniatura == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(miniatura.getEtag())
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                .contentType(MediaType.IMAGE_JPEG)
+                .body(miniatura.getContenido());
+    }
+
     @GetMapping("/imagen/info/{id}")
-    public Imagen getImagen(@PathVariable("id") Long id){
-        return imagenService.getImagen(id);
+    public ResponseEntity<Imagen> getImagen(@PathVariable("id") Long id){
+        Imagen imagen = imagenService.getImagen(id);
+        if (imagen != null) {
+            return ResponseEntity.ok(imagen);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     @GetMapping("/imagen/predict/{id}")
     public ResponseEntity<?>  getImagenPrediction(@PathVariable("id") Long id){
+        if (!imagenService.existeImagen(id)) {
+            return ResponseEntity.notFound().build();
+        }
         try{
-            return ResponseEntity.ok(imagenService.getNewPrediccion(id));
+            return ResponseEntity.ok(prediccionBatcher.submit(id).get(esperaPrediccion, TimeUnit.MILLISECONDS));
+        }
+        catch(TimeoutException e){
+            log.warn("La prediccion de la imagen {} ha tardado mas de {} ms", id, esperaPrediccion);
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("La prediccion ha tardado demasiado");
         }
         catch(Exception e){
-            e.printStackTrace();
+            if (causa(e, RejectedExecutionException.class) != null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Demasiadas predicciones en curso");
+            }
+            EntityNotFoundException noExiste = causa(e, EntityNotFoundException.class);
+            if (noExiste != null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(noExiste.getMessage());
+            }
+            log.error("Error al predecir la imagen {}", id, e);
             return ResponseEntity.internalServerError().body("Error al realizar la prediccion"+e.getMessage());
         }
         
+    }
+
+    // Los fallos del lote llegan envueltos en la ExecutionException de su futuro: el predictor rechaza
+    // la llamada (RejectedExecutionException) cuando esta saturado, y una imagen borrada despues de
+    // encolar su peticion falla con EntityNotFoundException
+    private static <T extends Throwable> T causa(Throwable e, Class<T> tipo) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (tipo.isInstance(causa)) {
+                return tipo.cast(causa);
+            }
+        }
+        return null;
+    }
+ 
+    // Prediccion de varias imagenes a la vez, agrupadas en lotes hacia el predictor
+    @PostMapping(value = "/imagen/predict/batch", consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> getImagenesPrediction(@RequestBody List<Long> ids) {
+        List<Long> inexistentes = imagenService.imagenesInexistentes(ids);
+        if (!inexistentes.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No existen las imagenes " + inexistentes);
+        }
+        try{
+            return ResponseEntity.ok(prediccionBatcher.predecir(ids));
+        }
+        catch(TimeoutException e){
+            log.warn("La prediccion de las imagenes {} ha tardado mas de {} ms", ids, esperaPrediccion);
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("La prediccion ha tardado demasiado");
+        }
+        catch(Exception e){
+            if (causa(e, RejectedExecutionException.class) != null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Demasiadas predicciones en curso");
+            }
+            EntityNotFoundException noExiste = causa(e, EntityNotFoundException.class);
+            if (noExiste != null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(noExiste.getMessage());
+            }
+            log.error("Error al predecir las imagenes {}", ids, e);
+            return ResponseEntity.internalServerError().body("Error al realizar la prediccion"+e.getMessage());
+        }
+    }
+
+    // Lanza la prediccion en segundo plano; el resultado se consulta en /prediccion/{id}
+    @PostMapping("/imagen/predict/{id}")
+    public ResponseEntity<?> submitImagenPrediction(@PathVariable("id") Long id) {
+        if (!imagenService.existeImagen(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            PrediccionJob job = prediccionJobService.submit(id, null);
+            return ResponseEntity.accepted().location(URI.create("/prediccion/" + job.getId())).body(job);
+        }
+        catch(TaskRejectedException e){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Demasiadas predicciones en curso");
+        }
     }
  
 	@PostMapping(value ="/imagen",     consumes = { MediaType.MULTIPART_FORM_DATA_VALUE, MediaType.APPLICATION_JSON_VALUE} )
@@ -57,9 +250,31 @@ public class ImagenController {
 		return ResponseEntity.ok(uploadImage);
 	}
 
+    @GetMapping("/imagen")
+    public List<ImagenResumen> getAllImagenes() {
+        return imagenService.getResumenImagenes();
+    }
+
     @GetMapping("/imagen/paciente/{id}")
-    public List<Imagen> getImagenes (@PathVariable("id") Long id) {
-        return imagenService.getImagenesPaciente(id);
+    public List<ImagenResumen> getImagenes (@PathVariable("id") Long id) {
+        return imagenService.getResumenImagenesPaciente(id);
+    }
+
+    // Listado paginado por clave: ?cursor=<siguiente de la pagina anterior>&tamano=&orden=asc|desc&campo=id|fecha
+    @GetMapping("/imagen/pagina")
+    public Pagina<ImagenResumen> getPaginaImagenes(@RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "tamano", required = false) Integer tamano,
+            @RequestParam(name = "orden", defaultValue = "asc") String orden,
+            @RequestParam(name = "campo", defaultValue = Pagina.Cursor.ID) String campo) {
+        return imagenService.getResumenImagenes(Pagina.Cursor.de(cursor, orden, campo, ImagenService.CAMPOS_ORDEN), tamano);
+    }
+
+    @GetMapping("/imagen/paciente/{id}/pagina")
+    public Pagina<ImagenResumen> getPaginaImagenesPaciente(@PathVariable("id") Long id, @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "tamano", required = false) Integer tamano,
+            @RequestParam(name = "orden", defaultValue = "asc") String orden,
+            @RequestParam(name = "campo", defaultValue = Pagina.Cursor.ID) String campo) {
+        return imagenService.getResumenImagenesPaciente(id, Pagina.Cursor.de(cursor, orden, campo, ImagenService.CAMPOS_ORDEN), tamano);
     }
 
     @DeleteMapping("/imagen/{id}")
@@ -69,7 +284,7 @@ public class ImagenController {
             return ResponseEntity.noContent().build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al eliminar la imagen {}", id, e);
             return ResponseEntity.internalServerError().body("Error al eliminar la imagen");
         }
     }
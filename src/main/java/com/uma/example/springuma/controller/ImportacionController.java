@@ -0,0 +1,70 @@
+package com.uma.example.springuma.controller;
+
+import java.net.URI;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.uma.example.springuma.model.Importacion;
+import com.uma.example.springuma.model.ImportacionService;
+
+@RestController
+@Profile("!reactivo")
+public class ImportacionController {
+
+    @Autowired
+    private ImportacionService importacionService;
+
+    // Lanza la importacion de {"origen": "<directorio o zip dentro de importacion.directorio>"};
+    // el progreso se consulta en /importacion/{id}
+    @PostMapping(value = "/importacion",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
+    public ResponseEntity<?> importar(@RequestBody Importacion importacion) {
+        try {
+            Importacion creada = importacionService.importar(importacion.getOrigen());
+            return ResponseEntity.accepted().location(URI.create("/importacion/" + creada.getId())).body(creada);
+        }
+        catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        catch(TaskRejectedException e){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Demasiadas importaciones en curso");
+        }
+    }
+
+    @GetMapping("/importacion/{id}")
+    public ResponseEntity<Importacion> getImportacion(@PathVariable("id") Long id) {
+        Importacion importacion = importacionService.getImportacion(id);
+        if (importacion != null) {
+            return ResponseEntity.ok(importacion);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Continua una importacion interrumpida o fallida desde su punto de control
+    @PostMapping("/importacion/{id}/reanudar")
+    public ResponseEntity<?> reanudar(@PathVariable("id") Long id) {
+        if (importacionService.getImportacion(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            Importacion importacion = importacionService.reanudar(id);
+            if (importacion == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("La importacion ya esta completada o en curso");
+            }
+            return ResponseEntity.accepted().location(URI.create("/importacion/" + id)).body(importacion);
+        }
+        catch(TaskRejectedException e){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Demasiadas importaciones en curso");
+        }
+    }
+}
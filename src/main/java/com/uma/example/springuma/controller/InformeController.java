@@ -1,9 +1,16 @@
 package com.uma.example.springuma.controller;
 
+import java.net.URI;
 import java.util.List;
 
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,16 +18,31 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.uma.example.springuma.model.ExportacionService;
 import com.uma.example.springuma.model.Informe;
 import com.uma.example.springuma.model.InformeService;
+import com.uma.example.springuma.model.Pagina;
+import com.uma.example.springuma.model.PrediccionJob;
+import com.uma.example.springuma.model.PrediccionJobService;
 
 @RestController
+@Profile("!reactivo")
 public class InformeController {
+
+    private static final Logger log = LoggerFactory.getLogger(InformeController.class);
     
     @Autowired
     private InformeService informeService;
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    @Autowired
+    private PrediccionJobService prediccionJobService;
     
     @GetMapping("/informe/{id}")
     public Informe getInforme(@PathVariable("id") Long id) {
@@ -32,7 +54,41 @@ public class InformeController {
         return informeService.getInformesImagen(id);
     }
 
-    
+
+    // Listado paginado por clave: ?cursor=<siguiente de la pagina anterior>&tamano=&orden=asc|desc&campo=id|prediccion
+    @GetMapping("/informe/pagina")
+    public Pagina<Informe> getPaginaInformes(@RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "tamano", required = false) Integer tamano,
+            @RequestParam(name = "orden", defaultValue = "asc") String orden,
+            @RequestParam(name = "campo", defaultValue = Pagina.Cursor.ID) String campo) {
+        return informeService.getInformes(Pagina.Cursor.de(cursor, orden, campo, InformeService.CAMPOS_ORDEN), tamano);
+    }
+
+    @GetMapping("/informe/imagen/{id}/pagina")
+    public Pagina<Informe> getPaginaInformesImagen(@PathVariable("id") Long id, @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "tamano", required = false) Integer tamano,
+            @RequestParam(name = "orden", defaultValue = "asc") String orden,
+            @RequestParam(name = "campo", defaultValue = Pagina.Cursor.ID) String campo) {
+        return informeService.getInformesImagen(id, Pagina.Cursor.de(cursor, orden, campo, InformeService.CAMPOS_ORDEN), tamano);
+    }
+
+    // Exporta todos los informes en streaming (?formato=ndjson|csv), sin cargarlos en memoria
+    @GetMapping("/informe/export")
+    public ResponseEntity<StreamingResponseBody> exportInformes(@RequestParam(name = "formato", defaultValue = "ndjson") String formato) {
+        ExportacionService.Formato salida;
+        try {
+            salida = ExportacionService.Formato.de(formato);
+        }
+        catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody cuerpo = out -> exportacionService.exportarInformes(salida, out);
+        return ResponseEntity.ok()
+                .contentType(salida.getTipo())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"informes." + salida.getExtension() + "\"")
+                .body(cuerpo);
+    }
+
     @PostMapping(value = "/informe",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
 	public ResponseEntity<?> saveInforme(@RequestBody Informe informe) {
         try{
@@ -40,11 +96,48 @@ public class InformeController {
             return ResponseEntity.status(201).build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al guardar el informe", e);
             return ResponseEntity.internalServerError().body("El informe ya existe");
         }
 	}
 
+    // Alta de varios informes en una transaccion, con las predicciones calculadas en un solo lote;
+    // devuelve sus ids en el mismo orden
+    @PostMapping(value = "/informe/batch",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
+    public ResponseEntity<?> saveInformes(@RequestBody List<Informe> informes) {
+        try{
+            List<Long> ids = informeService.addInformes(informes).stream().map(Informe::getId).toList();
+            return ResponseEntity.status(201).body(ids);
+        }
+        catch(IllegalArgumentException e){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        catch(Exception e){
+            log.error("Error al guardar {} informes", informes.size(), e);
+            return ResponseEntity.internalServerError().body("Error al guardar los informes");
+        }
+    }
+
+    // Guarda el informe y calcula su prediccion en segundo plano (ver /prediccion/{id})
+    @PostMapping(value = "/informe/async",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
+    public ResponseEntity<?> saveInformeAsync(@RequestBody Informe informe) {
+        Informe guardado = null;
+        try{
+            guardado = informeService.addInformeSinPrediccion(informe);
+            PrediccionJob job = prediccionJobService.submit(guardado.getImagen().getId(), guardado.getId());
+            return ResponseEntity.accepted().location(URI.create("/prediccion/" + job.getId())).body(job);
+        }
+        catch(TaskRejectedException e){
+            // Sin prediccion en camino el informe se quedaria sin ella para siempre: se deshace el alta
+            informeService.removeInformeByID(guardado.getId());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Demasiadas predicciones en curso");
+        }
+        catch(Exception e){
+            log.error("Error al guardar el informe", e);
+            return ResponseEntity.internalServerError().body("Error al guardar el informe");
+        }
+    }
+
     @DeleteMapping("/informe/{id}")
     public ResponseEntity<?> deleteInforme(@PathVariable("id") Long id) {
         try{
@@ -52,7 +145,7 @@ public class InformeController {
             return ResponseEntity.noContent().build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al eliminar el informe {}", id, e);
             return ResponseEntity.internalServerError().body("Error al eliminar el informe");
         }
     }
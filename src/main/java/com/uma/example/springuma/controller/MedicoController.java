@@ -1,7 +1,13 @@
 package com.uma.example.springuma.controller;
 
+import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -10,13 +16,18 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.uma.example.springuma.model.Medico;
 import com.uma.example.springuma.model.MedicoService;
+import com.uma.example.springuma.model.Pagina;
 
 @RestController
+@Profile("!reactivo")
 public class MedicoController {
+
+    private static final Logger log = LoggerFactory.getLogger(MedicoController.class);
     
     @Autowired
     private MedicoService medicoService;
@@ -26,6 +37,15 @@ public class MedicoController {
         return medicoService.getMedico(id);
     }
 
+    // Listado paginado por clave: ?cursor=<siguiente de la pagina anterior>&tamano=&orden=asc|desc&campo=id|nombre|dni
+    @GetMapping("/medico/pagina")
+    public Pagina<Medico> getMedicos(@RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "tamano", required = false) Integer tamano,
+            @RequestParam(name = "orden", defaultValue = "asc") String orden,
+            @RequestParam(name = "campo", defaultValue = Pagina.Cursor.ID) String campo) {
+        return medicoService.getMedicos(Pagina.Cursor.de(cursor, orden, campo, MedicoService.CAMPOS_ORDEN), tamano);
+    }
+
     @PostMapping(value = "/medico",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
 	public ResponseEntity<?> saveMedico(@RequestBody Medico medico) {
         try{
@@ -37,6 +57,19 @@ public class MedicoController {
         }
 	}
 
+    // Alta de varios medicos en una transaccion; devuelve sus ids en el mismo orden
+    @PostMapping(value = "/medico/batch",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
+    public ResponseEntity<?> saveMedicos(@RequestBody List<Medico> medicos) {
+        try{
+            List<Long> ids = medicoService.addMedicos(medicos).stream().map(Medico::getId).toList();
+            return ResponseEntity.status(201).body(ids);
+        }
+        catch(DataIntegrityViolationException e){
+            // Dni repetido, dentro del bloque o con uno ya guardado; no se guarda ninguno
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Alguno de los medicos ya existe");
+        }
+    }
+
     @PutMapping(value = "/medico",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
     public ResponseEntity<?> updateMedico (@RequestBody Medico medico) {
         try{
@@ -44,7 +77,7 @@ public class MedicoController {
             return ResponseEntity.noContent().build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al actualizar el medico {}", medico.getId(), e);
             return ResponseEntity.internalServerError().body("Error al actualizar el medico");
         }
     }
@@ -52,18 +85,14 @@ public class MedicoController {
     @DeleteMapping("/medico/{id}")
     public ResponseEntity<?> deleteMedico(@PathVariable("id") Long id) {
         try{
-            Medico medico = medicoService.getMedico(id);
-            System.out.println(medico);
-            if (medico != null) {
-                medicoService.removeMedicoID(id);
-                return ResponseEntity.ok().build();
-            } else {
-                return ResponseEntity.internalServerError().build();
+            if (!medicoService.existeMedico(id)) {
+                return ResponseEntity.notFound().build();
             }
-            
+            medicoService.removeMedicoID(id);
+            return ResponseEntity.ok().build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al eliminar el medico {}", id, e);
             return ResponseEntity.internalServerError().body("Error al eliminar el medico");
         }
     }
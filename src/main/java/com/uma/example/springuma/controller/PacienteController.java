@@ -2,7 +2,13 @@ package com.uma.example.springuma.controller;
 
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,20 +17,35 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.uma.example.springuma.model.ExportacionService;
+import com.uma.example.springuma.model.Pagina;
 import com.uma.example.springuma.model.Paciente;
 import com.uma.example.springuma.model.PacienteService;
 
 @RestController
+@Profile("!reactivo")
 public class PacienteController {
+
+    private static final Logger log = LoggerFactory.getLogger(PacienteController.class);
     
     @Autowired
     private PacienteService pacienteService;
+
+    @Autowired
+    private ExportacionService exportacionService;
     
     @GetMapping("/paciente/{id}")
-    public Paciente getPaciente(@PathVariable("id") Long id) {
-        return pacienteService.getPaciente(id);
+    public ResponseEntity<Paciente> getPaciente(@PathVariable("id") Long id) {
+        Paciente paciente = pacienteService.getPaciente(id);
+        if (paciente != null) {
+            return ResponseEntity.ok(paciente);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     @GetMapping("/paciente/medico/{id}")
@@ -32,6 +53,40 @@ public class PacienteController {
         return pacienteService.getPacientesMedico(id);
     }
 
+    // Listado paginado por clave: ?cursor=<siguiente de la pagina anterior>&tamano=&orden=asc|desc&campo=id|nombre|cita|dni
+    @GetMapping("/paciente/pagina")
+    public Pagina<Paciente> getPaginaPacientes(@RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "tamano", required = false) Integer tamano,
+            @RequestParam(name = "orden", defaultValue = "asc") String orden,
+            @RequestParam(name = "campo", defaultValue = Pagina.Cursor.ID) String campo) {
+        return pacienteService.getPacientes(Pagina.Cursor.de(cursor, orden, campo, PacienteService.CAMPOS_ORDEN), tamano);
+    }
+
+    @GetMapping("/paciente/medico/{id}/pagina")
+    public Pagina<Paciente> getPaginaPacientesMedico(@PathVariable("id") Long id, @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "tamano", required = false) Integer tamano,
+            @RequestParam(name = "orden", defaultValue = "asc") String orden,
+            @RequestParam(name = "campo", defaultValue = Pagina.Cursor.ID) String campo) {
+        return pacienteService.getPacientesMedico(id, Pagina.Cursor.de(cursor, orden, campo, PacienteService.CAMPOS_ORDEN), tamano);
+    }
+
+    // Exporta todos los pacientes en streaming (?formato=ndjson|csv), sin cargarlos en memoria
+    @GetMapping("/paciente/export")
+    public ResponseEntity<StreamingResponseBody> exportPacientes(@RequestParam(name = "formato", defaultValue = "ndjson") String formato) {
+        ExportacionService.Formato salida;
+        try {
+            salida = ExportacionService.Formato.de(formato);
+        }
+        catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody cuerpo = out -> exportacionService.exportarPacientes(salida, out);
+        return ResponseEntity.ok()
+                .contentType(salida.getTipo())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"pacientes." + salida.getExtension() + "\"")
+                .body(cuerpo);
+    }
+
     @PostMapping(value = "/paciente",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
 	public ResponseEntity<?> savePaciente(@RequestBody Paciente paciente) {
         try{
@@ -43,6 +98,19 @@ public class PacienteController {
         }
 	}
 
+    // Alta de varios pacientes en una transaccion; devuelve sus ids en el mismo orden
+    @PostMapping(value = "/paciente/batch",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
+    public ResponseEntity<?> savePacientes(@RequestBody List<Paciente> pacientes) {
+        try{
+            List<Long> ids = pacienteService.addPacientes(pacientes).stream().map(Paciente::getId).toList();
+            return ResponseEntity.status(201).body(ids);
+        }
+        catch(DataIntegrityViolationException e){
+            // Dni repetido, dentro del bloque o con uno ya guardado; no se guarda ninguno
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Alguno de los pacientes ya existe");
+        }
+    }
+
     @PutMapping(value = "/paciente",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
     public ResponseEntity<?> updateCuenta (@RequestBody Paciente paciente) {
         try{
@@ -50,7 +118,7 @@ public class PacienteController {
             return ResponseEntity.noContent().build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al actualizar el paciente {}", paciente.getId(), e);
             return ResponseEntity.internalServerError().body("Error al actualizar el paciente ");
         }
     }
@@ -58,16 +126,14 @@ public class PacienteController {
     @DeleteMapping("/paciente/{id}")
     public ResponseEntity<?> deleteCuenta(@PathVariable("id") Long id) {
         try{
-            Paciente paciente = pacienteService.getPaciente(id);
-            System.out.println(paciente);
-            if (paciente != null) {
-                pacienteService.removePaciente(paciente);
-                return ResponseEntity.ok().build();
-            } else {
-                return ResponseEntity.internalServerError().build();
+            if (!pacienteService.existePaciente(id)) {
+                return ResponseEntity.notFound().build();
             }
+            pacienteService.removePacienteID(id);
+            return ResponseEntity.ok().build();
         }
         catch(Exception e){
+            log.error("Error al eliminar el paciente {}", id, e);
             return ResponseEntity.internalServerError().build();
         }
     }
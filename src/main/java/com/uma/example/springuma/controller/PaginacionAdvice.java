@@ -0,0 +1,19 @@
+package com.uma.example.springuma.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.uma.example.springuma.model.Pagina;
+
+// Los listados paginados responden 400 si el cursor, el orden o el campo de orden no son validos
+@RestControllerAdvice
+@Profile("!reactivo")
+public class PaginacionAdvice {
+
+    @ExceptionHandler(Pagina.ParametroNoValido.class)
+    public ResponseEntity<String> parametroNoValido(Pagina.ParametroNoValido e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -0,0 +1,42 @@
+package com.uma.example.springuma.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.uma.example.springuma.model.PrediccionJob;
+import com.uma.example.springuma.model.PrediccionJobService;
+
+@RestController
+@Profile("!reactivo")
+public class PrediccionController {
+
+    @Autowired
+    private PrediccionJobService prediccionJobService;
+
+    @GetMapping("/prediccion/{id}")
+    public ResponseEntity<PrediccionJob> getPrediccion(@PathVariable("id") Long id) {
+        PrediccionJob job = prediccionJobService.getJob(id);
+        if (job != null) {
+            return ResponseEntity.ok(job);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Envia un evento "prediccion" con el trabajo en cuanto termina
+    @GetMapping(value = "/prediccion/{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getEventosPrediccion(@PathVariable("id") Long id) throws IOException {
+        if (prediccionJobService.getJob(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(prediccionJobService.suscribir(id));
+    }
+}
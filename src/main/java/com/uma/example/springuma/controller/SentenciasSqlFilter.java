@@ -0,0 +1,59 @@
+package com.uma.example.springuma.controller;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.uma.example.springuma.utils.ContadorSql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Cuenta las sentencias SQL de cada peticion y el tiempo que pasan en la base de datos, con las
+// mismas etiquetas que http.server.requests (method, uri con el patron del endpoint, status). Incluye
+// lo que se ejecuta con la sesion abierta en la vista (OSIV), pero no lo que se escribe despues desde
+// otro hilo en las respuestas en streaming
+@Component
+@Profile("!reactivo")
+public class SentenciasSqlFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContadorSql contador = ContadorSql.iniciar(request.getMethod() + " " + request.getRequestURI());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ContadorSql.terminar();
+            Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            Tags etiquetas = Tags.of("method", request.getMethod(),
+                    "uri", patron != null ? patron.toString() : "UNKNOWN",
+                    "status", String.valueOf(response.getStatus()));
+            DistributionSummary.builder("sql.peticion.sentencias")
+                    .description("Sentencias SQL por peticion")
+                    .baseUnit("sentencias")
+                    .tags(etiquetas)
+                    .register(registro)
+                    .record(contador.getSentencias());
+            Timer.builder("sql.peticion.tiempo")
+                    .description("Tiempo en la base de datos por peticion")
+                    .tags(etiquetas)
+                    .register(registro)
+                    .record(contador.getNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.uma.example.springuma.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Operaciones sobre la cache de segundo nivel de Hibernate (regiones medico y paciente
+// y cache de consultas)
+@Service
+public class CacheService {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Los pacientes de un medico los borra la base de datos (ON DELETE CASCADE) sin pasar por
+    // Hibernate, asi que hay que sacarlos de la cache y de las consultas cacheadas
+    public void evictPacientes() {
+        org.hibernate.Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Paciente.class);
+        cache.evictQueryRegions();
+    }
+
+    // La API reactiva escribe medicos y pacientes por R2DBC, sin pasar por Hibernate: la fila
+    // cambiada se saca de su region y se invalidan las consultas cacheadas
+    public void evictMedico(Long id) {
+        org.hibernate.Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Medico.class, id);
+        cache.evictQueryRegions();
+    }
+
+    public void evictPaciente(Long id) {
+        org.hibernate.Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Paciente.class, id);
+        cache.evictQueryRegions();
+    }
+
+    // Aciertos, fallos y escrituras de cada region y de la cache de consultas
+    public Map<String, Map<String, Long>> getEstadisticas() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Map<String, Long>> estadisticas = new LinkedHashMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            estadisticas.put(region, contadores(regionStatistics.getHitCount(), regionStatistics.getMissCount(), regionStatistics.getPutCount()));
+        }
+        estadisticas.put("consultas", contadores(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+        return estadisticas;
+    }
+
+    private Map<String, Long> contadores(long hits, long misses, long puts) {
+        Map<String, Long> contadores = new LinkedHashMap<>();
+        contadores.put("hits", hits);
+        contadores.put("misses", misses);
+        contadores.put("puts", puts);
+        return contadores;
+    }
+}
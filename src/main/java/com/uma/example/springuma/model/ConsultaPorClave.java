@@ -0,0 +1,99 @@
+package com.uma.example.springuma.model;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+// Consulta de una pagina por clave en el orden (campo, id): filas posteriores al cursor (o
+// anteriores si el orden es descendente), sin OFFSET, pidiendo una fila de mas para saber si hay
+// pagina siguiente sin hacer un COUNT. Los null del campo van delante en orden ascendente y detras en
+// descendente, como los ordena H2, para que la pagina salga de los indices (campo, id) de V5.
+// El campo tiene que venir ya validado (Pagina.Cursor.de): se escribe tal cual en la consulta
+@Component
+public class ConsultaPorClave {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Pagina de entidades; filtro (o null) es una condicion sobre el alias e con sus parametros y grafo
+    // (o null) el grafo con el que se cargan las relaciones
+    public <T> Slice<T> pagina(Class<T> entidad, String grafo, String filtro, Map<String, Object> parametros,
+            Pagina.Cursor cursor, Integer tamano) {
+        return pagina(entidad, "e", entidad, grafo, filtro, parametros, cursor, tamano);
+    }
+
+    // Igual, devolviendo seleccion: una expresion sobre e, como un constructor de una proyeccion
+    public <T> Slice<T> pagina(Class<?> entidad, String seleccion, Class<T> tipo, String grafo,
+            String filtro, Map<String, Object> parametros, Pagina.Cursor cursor, Integer tamano) {
+        int limite = Pagina.limitar(tamano);
+        Map<String, Object> valores = new HashMap<>(parametros);
+        StringBuilder jpql = new StringBuilder("SELECT ").append(seleccion)
+                .append(" FROM ").append(entidad.getSimpleName()).append(" e WHERE 1 = 1");
+        if (filtro != null) {
+            jpql.append(" AND ").append(filtro);
+        }
+        String campo = "e." + cursor.campo();
+        String mayor = cursor.ascendente() ? ">" : "<";
+        if (cursor.ultimoId() != null) {
+            valores.put("ultimoId", cursor.ultimoId());
+            if (cursor.porId()) {
+                jpql.append(" AND e.id ").append(mayor).append(" :ultimoId");
+            } else if (cursor.ultimoValor() == null) {
+                jpql.append(cursor.ascendente()
+                        ? " AND ((" + campo + " IS NULL AND e.id > :ultimoId) OR " + campo + " IS NOT NULL)"
+                        : " AND " + campo + " IS NULL AND e.id < :ultimoId");
+            } else {
+                valores.put("ultimoValor", valor(entidad, cursor));
+                jpql.append(" AND (").append(campo).append(' ').append(mayor).append(" :ultimoValor")
+                        .append(cursor.ascendente() ? "" : " OR " + campo + " IS NULL")
+                        .append(" OR (").append(campo).append(" = :ultimoValor AND e.id ").append(mayor).append(" :ultimoId))");
+            }
+        }
+        String sentido = cursor.ascendente() ? " ASC" : " DESC";
+        jpql.append(" ORDER BY ");
+        if (!cursor.porId()) {
+            jpql.append(campo).append(sentido).append(cursor.ascendente() ? " NULLS FIRST, " : " NULLS LAST, ");
+        }
+        jpql.append("e.id").append(sentido);
+
+        TypedQuery<T> consulta = entityManager.createQuery(jpql.toString(), tipo).setMaxResults(limite + 1);
+        valores.forEach(consulta::setParameter);
+        if (grafo != null) {
+            consulta.setHint("jakarta.persistence.fetchgraph", entityManager.getEntityGraph(grafo));
+        }
+        List<T> filas = consulta.getResultList();
+        boolean hayMas = filas.size() > limite;
+        return new SliceImpl<>(hayMas ? filas.subList(0, limite) : filas, PageRequest.of(0, limite), hayMas);
+    }
+
+    // El valor del cursor viaja como texto; se convierte al tipo del atributo para compararlo
+    private Object valor(Class<?> entidad, Pagina.Cursor cursor) {
+        Class<?> tipo = entityManager.getMetamodel().entity(entidad).getAttribute(cursor.campo()).getJavaType();
+        try {
+            if (tipo == Integer.class || tipo == int.class) {
+                return Integer.valueOf(cursor.ultimoValor());
+            }
+            if (tipo == Long.class || tipo == long.class) {
+                return Long.valueOf(cursor.ultimoValor());
+            }
+            if (Calendar.class.isAssignableFrom(tipo)) {
+                Calendar fecha = Calendar.getInstance();
+                fecha.setTimeInMillis(Long.parseLong(cursor.ultimoValor()));
+                return fecha;
+            }
+        } catch (NumberFormatException e) {
+            throw new Pagina.ParametroNoValido("Cursor no valido: " + cursor.codificar());
+        }
+        return cursor.ultimoValor();
+    }
+}
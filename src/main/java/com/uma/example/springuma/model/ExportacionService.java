@@ -0,0 +1,146 @@
+package com.uma.example.springuma.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Exporta tablas completas escribiendo fila a fila mientras se leen del cursor de la base de datos,
+// de modo que la memoria usada no depende del numero de filas
+@Service
+public class ExportacionService {
+
+    public enum Formato {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType tipo;
+        private final String extension;
+
+        Formato(MediaType tipo, String extension) {
+            this.tipo = tipo;
+            this.extension = extension;
+        }
+
+        public MediaType getTipo() {
+            return tipo;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Formato de(String nombre) {
+            try {
+                return valueOf(nombre.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato de exportacion no valido: " + nombre);
+            }
+        }
+    }
+
+    private static final String[] COLUMNAS_INFORME = {"id", "prediccion", "contenido", "imagen_id", "imagen_nombre", "paciente_id"};
+
+    private static final String[] COLUMNAS_PACIENTE = {"id", "nombre", "edad", "cita", "dni", "medico_id", "medico_dni"};
+
+    @Autowired
+    private RepositoryInforme repositoryInforme;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public void exportarInformes(Formato formato, OutputStream out) throws IOException {
+        try (Stream<InformeExportado> informes = repositoryInforme.streamExportacion()) {
+            escribir(informes, formato, COLUMNAS_INFORME, informe -> new Object[] {informe.getId(), informe.getPrediccion(),
+                    informe.getContenido(), informe.getImagenId(), informe.getImagenNombre(), informe.getPacienteId()},
+                    informe -> { }, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportarPacientes(Formato formato, OutputStream out) throws IOException {
+        try (Stream<Paciente> pacientes = repositoryPaciente.streamExportacion()) {
+            escribir(pacientes, formato, COLUMNAS_PACIENTE, paciente -> {
+                Medico medico = paciente.getMedico();
+                return new Object[] {paciente.getId(), paciente.getNombre(), paciente.getEdad(), paciente.getCita(), paciente.getDni(),
+                        medico != null ? medico.getId() : null, medico != null ? medico.getDni() : null};
+            }, paciente -> {
+                // Ya escrito: se saca del contexto de persistencia para que no crezca con cada fila
+                entityManager.detach(paciente);
+                if (paciente.getMedico() != null) {
+                    entityManager.detach(paciente.getMedico());
+                }
+            }, out);
+        }
+    }
+
+    private <T> void escribir(Stream<T> filas, Formato formato, String[] columnas, Function<T, Object[]> valores,
+            Consumer<T> liberar, OutputStream out) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (formato == Formato.CSV) {
+            escribirCsv(escritor, columnas);
+        }
+        try {
+            filas.forEach(fila -> {
+                try {
+                    if (formato == Formato.CSV) {
+                        escribirCsv(escritor, valores.apply(fila));
+                    } else {
+                        escritor.write(objectMapper.writeValueAsString(fila));
+                        escritor.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                liberar.accept(fila);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        escritor.flush();
+    }
+
+    private static void escribirCsv(Writer escritor, Object[] valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                escritor.write(',');
+            }
+            if (valores[i] != null) {
+                escritor.write(campoCsv(valores[i].toString()));
+            }
+        }
+        escritor.write("\r\n");
+    }
+
+    // RFC 4180: entre comillas si contiene separadores, comillas o saltos de linea
+    private static String campoCsv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,34 @@
+package com.uma.example.springuma.model;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Inserta una lista de entidades en una sola transaccion, en lotes de hibernate.jdbc.batch_size:
+// cada lote sale como un unico batch JDBC y despues se saca del contexto de persistencia,
+// para que la memoria no crezca con el tamaño de la lista
+@Component
+public class GuardadoPorLotes {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int tamanoLote;
+
+    @Transactional
+    public <T> List<T> guardar(JpaRepository<T, Long> repository, List<T> entidades) {
+        for (int i = 0; i < entidades.size(); i += tamanoLote) {
+            repository.saveAll(entidades.subList(i, Math.min(i + tamanoLote, entidades.size())));
+            repository.flush();
+            entityManager.clear();
+        }
+        return entidades;
+    }
+}
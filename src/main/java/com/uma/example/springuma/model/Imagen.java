@@ -5,15 +5,26 @@ import java.util.Calendar;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_imagen_paciente", columnList = "paciente_id, id"),
+        @Index(name = "idx_imagen_fecha", columnList = "fecha, id"),
+        @Index(name = "idx_imagen_paciente_fecha", columnList = "paciente_id, fecha, id"),
+        @Index(name = "idx_imagen_content_hash", columnList = "content_hash")})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // para ignorar el serializador al devolver un objeto cuenta
+// Imagen con su paciente y el medico de este, como se devuelve en /imagen/info/{id}
+@NamedEntityGraph(name = "Imagen.paciente",
+        attributeNodes = @NamedAttributeNode(value = "paciente", subgraph = "paciente"),
+        subgraphs = @NamedSubgraph(name = "paciente", attributeNodes = @NamedAttributeNode("medico")))
 public class Imagen {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "imagen_seq")
+    @SequenceGenerator(name = "imagen_seq", sequenceName = "imagen_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "nombre")
@@ -30,15 +41,31 @@ public class Imagen {
         this.fecha = fecha;
     }
     // Relación con Paciente (muchas imágenes pueden pertenecer a un paciente)
-    @ManyToOne()
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "paciente_id")
     private Paciente paciente;
 
+    // Solo se escribe desde el ImageStore (por JDBC), nunca al actualizar la entidad.
+    // Se carga bajo demanda (requiere el enhancement de Hibernate) y no se serializa a JSON.
     @Lob
-    @Column(name = "file_content")
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "file_content", updatable = false)
+    @JsonIgnore
     private byte[] file_content;
 
+    // SHA-256 del contenido sin comprimir
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Tamaño en bytes del contenido sin comprimir
+    @Column(name = "content_size")
+    private Long contentSize;
+
+    // Como esta codificado el contenido almacenado; null en las filas antiguas (deflate)
+    @Column(name = "codec", length = 16)
+    private String codec;
+
     public byte[] getFile_content(){
          return file_content;
      }
@@ -68,6 +95,30 @@ public class Imagen {
         this.nombre = nombre;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Long getContentSize() {
+        return contentSize;
+    }
+
+    public void setContentSize(Long contentSize) {
+        this.contentSize = contentSize;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
     public Paciente getPaciente() {
         return paciente;
     }
@@ -1,55 +1,179 @@
 package com.uma.example.springuma.model;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.http.HttpResponse;
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
-
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
+@Component
 public class ImagenAPIPredictor {
     //Class that is responsible for creating API call to external API service which will predict imagage.
     //Call in this version is based on the path of the image, but i checked if it works from our spring project
 
-    private static final String API_URL = "https://api-inference.huggingface.co/models/MUmairAB/Breast_Cancer_Detector";
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${prediccion.api.url:https://api-inference.huggingface.co/models/MUmairAB/Breast_Cancer_Detector}")
+    private String apiUrl;
+
     // @TODO: replace USE_TOKEN_HERE with your token
-    private static final String TOKEN = "Bearer USE_TOKEN_HERE";
-    
-    public static Map<String, Double> query(byte[] file_data) throws IOException, Exception {
-    
-
-        byte[] data = file_data;
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpPost request = new HttpPost(API_URL);
-            request.setHeader("Authorization", TOKEN);
-            request.setEntity(new ByteArrayEntity(data));
-
-            HttpResponse response = client.execute(request);
-            String jsonResponse = EntityUtils.toString(response.getEntity());
-            return processResponse(jsonResponse);
+    @Value("${prediccion.api.token:USE_TOKEN_HERE}")
+    private String token;
+
+    @Value("${prediccion.api.pool.max-total:20}")
+    private int maxConexiones;
+
+    @Value("${prediccion.api.pool.max-per-route:10}")
+    private int maxConexionesPorRuta;
+
+    @Value("${prediccion.api.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${prediccion.api.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
+    @Value("${prediccion.api.max-concurrentes:8}")
+    private int maxConcurrentes;
+
+    @Value("${prediccion.api.espera-ms:500}")
+    private long esperaMs;
+
+    private PoolingHttpClientConnectionManager conexiones;
+
+    private CloseableHttpClient client;
+
+    private Semaphore bulkhead;
+
+    // Un unico cliente con pool de conexiones keep-alive para todas las llamadas, en lugar de
+    // abrir una conexion (y hacer el handshake TLS) en cada prediccion. max-per-route se aplica a la
+    // ruta del host del predictor; cualquier otra (una redireccion) se queda con el limite por defecto
+    @PostConstruct
+    public void iniciar() {
+        conexiones = new PoolingHttpClientConnectionManager();
+        conexiones.setMaxTotal(maxConexiones);
+        conexiones.setMaxPerRoute(rutaPredictor(), maxConexionesPorRuta);
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setConnectionRequestTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .build();
+        client = HttpClients.custom()
+                .setConnectionManager(conexiones)
+                .setDefaultRequestConfig(config)
+                .evictExpiredConnections()
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+        bulkhead = new Semaphore(maxConcurrentes);
+    }
+
+    // Ruta como la calcula el cliente para cada peticion: el puerto por defecto del esquema explicito y
+    // segura si es https
+    private HttpRoute rutaPredictor() {
+        URI uri = URI.create(apiUrl);
+        boolean segura = "https".equalsIgnoreCase(uri.getScheme());
+        int puerto = uri.getPort() != -1 ? uri.getPort() : segura ? 443 : 80;
+        return new HttpRoute(new HttpHost(uri.getHost(), puerto, uri.getScheme()), null, segura);
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        client.close();
+    }
+
+    public Map<String, Double> query(byte[] file_data) throws IOException, Exception {
+        HttpPost request = new HttpPost(apiUrl);
+        request.setEntity(new ByteArrayEntity(file_data));
+        return processResponse(ejecutar(request));
+    }
+
+    // Envia varias imagenes en una misma peticion ({"inputs": [base64, ...]}) y devuelve
+    // las puntuaciones de cada una en el mismo orden
+    public List<Map<String, Double>> queryBatch(List<byte[]> files_data) throws IOException, Exception {
+        List<String> inputs = new ArrayList<>();
+        for (byte[] data : files_data) {
+            inputs.add(Base64.getEncoder().encodeToString(data));
+        }
+        HttpPost request = new HttpPost(apiUrl);
+        request.setEntity(new StringEntity(mapper.writeValueAsString(Map.of("inputs", inputs)), ContentType.APPLICATION_JSON));
+        return processBatchResponse(ejecutar(request));
+    }
+
+    // Como mucho prediccion.api.max-concurrentes llamadas a la vez; si el servicio va lento el resto
+    // se rechaza tras prediccion.api.espera-ms en lugar de dejar bloqueados los hilos del servidor.
+    // Con hilos virtuales acota ademas cuantos pueden quedar fijados a su hilo portador: HttpClient 4
+    // abre las conexiones nuevas (TCP y TLS) dentro de un bloque synchronized
+    private String ejecutar(HttpPost request) throws IOException, InterruptedException {
+        if (!bulkhead.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+            throw new TaskRejectedException("Demasiadas predicciones en curso contra " + apiUrl);
         }
-        catch(Exception e){
-            throw new Exception(e.getMessage());
+        try {
+            request.setHeader("Authorization", "Bearer " + token);
+            try (CloseableHttpResponse response = client.execute(request)) {
+                // Consumir la respuesta entera devuelve la conexion al pool
+                String cuerpo = EntityUtils.toString(response.getEntity());
+                int estado = response.getStatusLine().getStatusCode();
+                // Un error del servicio (un 503 mientras carga el modelo, un 401 sin token...) no se
+                // interpreta como puntuaciones aunque su cuerpo lo parezca
+                if (estado < 200 || estado >= 300) {
+                    throw new HttpResponseException(estado, "El modelo ha respondido " + estado + ": " + cuerpo);
+                }
+                return cuerpo;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private List<Map<String, Double>> processBatchResponse(String jsonResponse) throws Exception {
+        if (!jsonResponse.trim().startsWith("[[")) {
+            // Un error o una respuesta sin agrupar se procesa como en la llamada individual
+            return List.of(processResponse(jsonResponse));
+        }
+        List<List<Map<String, Object>>> responseList = mapper.readValue(jsonResponse, new TypeReference<List<List<Map<String, Object>>>>() {});
+        List<Map<String, Double>> results = new ArrayList<>();
+        for (List<Map<String, Object>> imagen : responseList) {
+            Map<String, Double> resultMap = new HashMap<>();
+            for (Map<String, Object> entry : imagen) {
+                resultMap.put((String) entry.get("label"), ((Number) entry.get("score")).doubleValue());
+            }
+            results.add(resultMap);
         }
+        return results;
     }
 
-    private static Map<String, Double> processResponse(String jsonResponse) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
+    private Map<String, Double> processResponse(String jsonResponse) throws Exception {
         if (jsonResponse.trim().startsWith("[")) {
             List<Map<String, Object>> responseList = mapper.readValue(jsonResponse, new TypeReference<List<Map<String, Object>>>() {});
             Map<String, Double> resultMap = new HashMap<>();
             for (Map<String, Object> entry : responseList) {
-                resultMap.put((String) entry.get("label"), (Double) entry.get("score"));
+                resultMap.put((String) entry.get("label"), ((Number) entry.get("score")).doubleValue());
 
             }
             return resultMap;
@@ -0,0 +1,65 @@
+package com.uma.example.springuma.model;
+
+import java.util.Calendar;
+
+// Datos de una imagen sin su contenido, para los listados
+public class ImagenResumen {
+
+    private long id;
+    private String nombre;
+    private Calendar fecha;
+    // Tamaño en bytes de la imagen sin comprimir
+    private Long size;
+    private long pacienteId;
+
+    public ImagenResumen() {
+    }
+
+    public ImagenResumen(long id, String nombre, Calendar fecha, Long size, long pacienteId) {
+        this.id = id;
+        this.nombre = nombre;
+        this.fecha = fecha;
+        this.size = size;
+        this.pacienteId = pacienteId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public Calendar getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(Calendar fecha) {
+        this.fecha = fecha;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public long getPacienteId() {
+        return pacienteId;
+    }
+
+    public void setPacienteId(long pacienteId) {
+        this.pacienteId = pacienteId;
+    }
+}
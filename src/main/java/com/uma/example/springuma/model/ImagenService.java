@@ -2,41 +2,96 @@ package com.uma.example.springuma.model;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.uma.example.springuma.prediccion.Puntuacion;
+import com.uma.example.springuma.storage.ImageCodecPolicy;
+import com.uma.example.springuma.storage.ImageStore;
 import com.uma.example.springuma.utils.ImageUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Calendar;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import io.micrometer.core.instrument.Timer;
+
 @Service
 public class ImagenService {
 
+    // Campos por los que se pueden ordenar las paginas de imagenes
+    public static final List<String> CAMPOS_ORDEN = List.of("id", "fecha");
+
+    // Listado sin el contenido de las imagenes (ver RepositoryImagen.findResumenByPacienteId)
+    private static final String RESUMEN =
+            "new com.uma.example.springuma.model.ImagenResumen(e.id, e.nombre, e.fecha, e.contentSize, e.paciente.id)";
+
     @Autowired
     private RepositoryImagen repositoryImagen;
 
+    @Autowired
+    private ConsultaPorClave consultaPorClave;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageCodecPolicy imageCodecPolicy;
+
+    @Autowired
+    private PrediccionCache prediccionCache;
+
+    @Autowired
+    private MetricasImagen metricasImagen;
+
     public List<Imagen> getAllImagenes() {
         return repositoryImagen.findAll();
     }
 
+    // Imagen con su paciente y el medico; null si no existe
     public Imagen getImagen(Long id) {
-        return repositoryImagen.getReferenceById(id);
+        return repositoryImagen.findConPacienteById(id).orElse(null);
     }
 
     public String getNewPrediccion(Long id) throws IOException, Exception{
-        /* API Deprecated
-        Map<String, Double> response = 
-        ImagenAPIPredictor.query(ImageUtils.decompressImage(repositoryImagen.getReferenceById(id).getFile_content()));
-        System.out.println("resp");
-        System.out.println( response);
-        double score_0 = response.get("LABEL_0");
-        double score_1 = response.get("LABEL_1");
-        System.out.println("resp");
-        System.out.println( response);*/
-        double score_0 = Math.random();
-        double score_1 = Math.random();
+        Timer.Sample muestra = metricasImagen.iniciar();
+        String resultado = MetricasImagen.ERROR;
+        try {
+            Imagen imagen = repositoryImagen.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("No existe la imagen " + id));
+            Puntuacion puntuacion = prediccionCache.obtener(imagen);
+            String prediccion = formatearPrediccion(puntuacion.score_0(), puntuacion.score_1());
+            resultado = MetricasImagen.OK;
+            return prediccion;
+        } finally {
+            metricasImagen.prediccion(muestra, "imagen", resultado);
+        }
+    }
+
+    // Predice varias imagenes con una sola llamada al predictor
+    public Map<Long, String> getNewPrediccionBatch(List<Long> ids) throws IOException, Exception{
+        Timer.Sample muestra = metricasImagen.iniciar();
+        String resultado = MetricasImagen.ERROR;
+        try {
+            List<Imagen> imagenes = repositoryImagen.findAllById(ids);
+            List<Puntuacion> puntuaciones = prediccionCache.obtener(imagenes);
+            Map<Long, String> predicciones = new LinkedHashMap<>();
+            for (int i = 0; i < imagenes.size(); i++) {
+                predicciones.put(imagenes.get(i).getId(), formatearPrediccion(puntuaciones.get(i).score_0(), puntuaciones.get(i).score_1()));
+            }
+            resultado = MetricasImagen.OK;
+            return predicciones;
+        } finally {
+            metricasImagen.prediccion(muestra, "lote", resultado);
+        }
+    }
+
+    private String formatearPrediccion(double score_0, double score_1) {
         String resulString;
         if (score_0 > score_1){
             resulString = "{'status': 'Not cancer',  'score': " + score_0+"}";
@@ -54,35 +109,122 @@ public class ImagenService {
         repositoryImagen.save(imagen);
     }
 
-    public void removeImagen(Imagen imagen) {
+    // El almacen libera el contenido cuando se confirma el borrado de la fila
+    @Transactional
+    public void removeImagen(Imagen imagen) throws IOException {
         repositoryImagen.delete(imagen);
+        imageStore.delete(imagen);
     }
 
-    public void removeImagenByID(Long id) {
+    @Transactional
+    public void removeImagenByID(Long id) throws IOException {
+        Imagen imagen = repositoryImagen.findById(id).orElse(null);
         repositoryImagen.deleteById(id);
+        if (imagen != null) {
+            imageStore.delete(imagen);
+        }
     }
 
     public List<Imagen> getImagenesPaciente(Long id) {
         return repositoryImagen.getByPacienteId(id);
     }
 
+    public List<ImagenResumen> getResumenImagenesPaciente(Long id) {
+        return repositoryImagen.findResumenByPacienteId(id);
+    }
+
+    public List<ImagenResumen> getResumenImagenes() {
+        return repositoryImagen.findAllResumen();
+    }
+
+    // Pagina del listado sin contenido siguiente al cursor, en el orden del cursor
+    public Pagina<ImagenResumen> getResumenImagenes(Pagina.Cursor cursor, Integer tamano) {
+        return Pagina.de(consultaPorClave.pagina(Imagen.class, RESUMEN, ImagenResumen.class, null, null, Map.of(),
+                cursor, tamano), cursor);
+    }
+
+    public Pagina<ImagenResumen> getResumenImagenesPaciente(Long id, Pagina.Cursor cursor, Integer tamano) {
+        return Pagina.de(consultaPorClave.pagina(Imagen.class, RESUMEN, ImagenResumen.class, null, "e.paciente.id = :paciente",
+                Map.of("paciente", id), cursor, tamano), cursor);
+    }
+
+    @Transactional
     public String uploadImage(MultipartFile file, Paciente paciente) throws IOException {
-        Imagen imagen = new Imagen();
-        imagen.setNombre(file.getOriginalFilename());
-        imagen.setFile_content(ImageUtils.compressImage(file.getBytes()));
-        imagen.setPaciente(paciente);
-        imagen.setFecha(Calendar.getInstance());
-        imagen = repositoryImagen.saveAndFlush(imagen);
-        if (imagen != null) {
-            return "{\"response\" : \"file uploaded successfully : " + file.getOriginalFilename()+"\"}";
+        Timer.Sample muestra = metricasImagen.iniciar();
+        String resultado = MetricasImagen.ERROR;
+        try {
+            Imagen imagen = new Imagen();
+            imagen.setNombre(file.getOriginalFilename());
+            imagen.setPaciente(paciente);
+            imagen.setFecha(Calendar.getInstance());
+            imagen = repositoryImagen.saveAndFlush(imagen);
+            // El fichero se pasa en streaming al almacen, sin cargarlo entero en memoria
+            try (InputStream contenido = file.getInputStream()) {
+                imageStore.save(imagen, contenido, imageCodecPolicy.codecPara(file.getContentType(), file.getOriginalFilename()));
+            }
+            resultado = MetricasImagen.OK;
+            if (imagen != null) {
+                return "{\"response\" : \"file uploaded successfully : " + file.getOriginalFilename()+"\"}";
+            }
+            return null;
+        } finally {
+            metricasImagen.subida(muestra, resultado);
         }
-        return null;
     }
 
-    public byte[] downloadImage(long id) {
-        Imagen dbImageData = repositoryImagen.getReferenceById(id);
-        byte[] images = ImageUtils.decompressImage(dbImageData.getFile_content());
-        return images;
+    public byte[] downloadImage(long id) throws IOException {
+        ByteArrayOutputStream images = new ByteArrayOutputStream();
+        downloadImage(id, images);
+        return images.toByteArray();
+    }
+
+    public boolean existeImagen(long id) {
+        return repositoryImagen.existsById(id);
+    }
+
+    // Ids de la lista que no corresponden a ninguna imagen
+    public List<Long> imagenesInexistentes(List<Long> ids) {
+        List<Long> existentes = repositoryImagen.findAllById(ids).stream().map(Imagen::getId).toList();
+        return ids.stream().filter(id -> !existentes.contains(id)).distinct().toList();
+    }
+
+    // Escribe la imagen descomprimida directamente en el stream de salida, leyendo el contenido por partes
+    public boolean downloadImage(long id, OutputStream out) throws IOException {
+        return medirDescarga(() -> {
+            Imagen imagen = repositoryImagen.findById(id).orElse(null);
+            return imagen != null && imageStore.read(imagen, out);
+        });
+    }
+
+    // Imagen sin su contenido (hash, tamaño, fecha...), para preparar la descarga; null si no existe
+    // o no tiene contenido que descargar
+    public Imagen getImagenDescarga(long id) {
+        return repositoryImagen.findById(id).filter(imageStore::tieneContenido).orElse(null);
+    }
+
+    public boolean downloadImage(Imagen imagen, OutputStream out) throws IOException {
+        return medirDescarga(() -> imageStore.read(imagen, out));
+    }
+
+    // Solo los bytes [inicio, inicio + longitud) del contenido descomprimido
+    public boolean downloadImage(Imagen imagen, long inicio, long longitud, OutputStream out) throws IOException {
+        return medirDescarga(() -> imageStore.read(imagen, inicio, longitud, out));
+    }
+
+    private interface Descarga {
+        boolean escribir() throws IOException;
+    }
+
+    private boolean medirDescarga(Descarga descarga) throws IOException {
+        Timer.Sample muestra = metricasImagen.iniciar();
+        String resultado = MetricasImagen.ERROR;
+        try {
+            boolean escrita = descarga.escribir();
+            resultado = escrita ? MetricasImagen.OK : MetricasImagen.SIN_CONTENIDO;
+            return escrita;
+        } finally {
+            metricasImagen.descarga(muestra, resultado);
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.uma.example.springuma.model;
+
+import java.util.Calendar;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+
+// Importacion masiva de imagenes desde un directorio o un ZIP con un manifiesto (fichero;dni).
+// "procesadas" es el punto de control: las entradas del manifiesto anteriores ya estan guardadas
+// (importadas o fallidas) y al reanudar se continua desde ahi.
+@Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class Importacion {
+
+    public enum Estado {
+        PENDIENTE, EN_CURSO, COMPLETADA, ERROR
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "importacion_seq")
+    @SequenceGenerator(name = "importacion_seq", sequenceName = "importacion_seq", allocationSize = 50)
+    private long id;
+
+    // Directorio o ZIP, relativo a importacion.directorio
+    @Column(name = "origen", length = 512)
+    private String origen;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", length = 16)
+    private Estado estado;
+
+    // Entradas del manifiesto
+    @Column(name = "total")
+    private int total;
+
+    @Column(name = "procesadas")
+    private int procesadas;
+
+    @Column(name = "importadas")
+    private int importadas;
+
+    @Column(name = "fallidas")
+    private int fallidas;
+
+    // Motivo de las primeras entradas fallidas, una por linea
+    @Column(name = "errores", columnDefinition = "TEXT")
+    private String errores;
+
+    @Column(name = "fecha_creacion")
+    private Calendar fechaCreacion;
+
+    @Column(name = "fecha_fin")
+    private Calendar fechaFin;
+
+    public Importacion() {
+    }
+
+    public Importacion(String origen) {
+        this.origen = origen;
+        this.estado = Estado.PENDIENTE;
+        this.fechaCreacion = Calendar.getInstance();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getOrigen() {
+        return origen;
+    }
+
+    public void setOrigen(String origen) {
+        this.origen = origen;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public void setEstado(Estado estado) {
+        this.estado = estado;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getProcesadas() {
+        return procesadas;
+    }
+
+    public void setProcesadas(int procesadas) {
+        this.procesadas = procesadas;
+    }
+
+    public int getImportadas() {
+        return importadas;
+    }
+
+    public void setImportadas(int importadas) {
+        this.importadas = importadas;
+    }
+
+    public int getFallidas() {
+        return fallidas;
+    }
+
+    public void setFallidas(int fallidas) {
+        this.fallidas = fallidas;
+    }
+
+    public String getErrores() {
+        return errores;
+    }
+
+    public void setErrores(String errores) {
+        this.errores = errores;
+    }
+
+    public Calendar getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(Calendar fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public Calendar getFechaFin() {
+        return fechaFin;
+    }
+
+    public void setFechaFin(Calendar fechaFin) {
+        this.fechaFin = fechaFin;
+    }
+
+    public boolean isTerminada() {
+        return estado == Estado.COMPLETADA || estado == Estado.ERROR;
+    }
+}
@@ -0,0 +1,330 @@
+package com.uma.example.springuma.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.uma.example.springuma.model.OrigenImportacion.Entrada;
+import com.uma.example.springuma.storage.ImageCodecPolicy;
+import com.uma.example.springuma.storage.ImageStore;
+import com.uma.example.springuma.utils.FlujoMedido;
+import com.uma.example.springuma.utils.ImageCodec;
+import com.uma.example.springuma.utils.ImageUtils;
+
+import jakarta.annotation.PreDestroy;
+
+// Importa de golpe las imagenes de un directorio o un ZIP de importacion.directorio, segun un
+// manifiesto que asocia cada fichero al dni de su paciente. El manifiesto se recorre en bloques
+// de importacion.lote entradas: cada bloque se lee, valida, hashea y codifica en paralelo en un
+// ForkJoinPool y despues se guarda en una sola transaccion (inserts en batch JDBC) junto con el
+// punto de control, asi que una importacion interrumpida se reanuda en el primer bloque sin guardar.
+@Service
+public class ImportacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionService.class);
+
+    // Las imagenes se validan decodificandolas a este tamaño, saltando pixeles
+    private static final int TAMANO_VALIDACION = 64;
+
+    @Autowired
+    private RepositoryImportacion repositoryImportacion;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private GuardadoPorLotes guardadoPorLotes;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageCodecPolicy imageCodecPolicy;
+
+    @Autowired
+    private MetricasImagen metricasImagen;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${importacion.directorio:./importaciones}")
+    private String directorio;
+
+    @Value("${importacion.manifiesto:manifest.csv}")
+    private String manifiesto;
+
+    @Value("${importacion.lote:50}")
+    private int lote;
+
+    @Value("${importacion.max-errores:100}")
+    private int maxErrores;
+
+    // Un hilo por importacion en curso; no se declara como bean (ver PrediccionJobService)
+    private final ThreadPoolTaskExecutor executor;
+
+    // Etapa paralela de lectura, validacion y codificacion. Es trabajo de CPU, asi que sigue en hilos
+    // de plataforma tambien con hilos virtuales
+    private final ForkJoinPool pool;
+
+    // Importaciones encoladas o en curso en esta instancia, para no lanzar dos veces la misma
+    private final Set<Long> activas = ConcurrentHashMap.newKeySet();
+
+    public ImportacionService(@Value("${importacion.simultaneas:1}") int simultaneas,
+            @Value("${importacion.paralelismo:0}") int paralelismo, Environment entorno) {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(simultaneas);
+        executor.setMaxPoolSize(simultaneas);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("importacion-");
+        if (Threading.VIRTUAL.isActive(entorno)) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("importacion-").getVirtualThreadFactory());
+        }
+        executor.initialize();
+        pool = new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdown();
+        pool.shutdown();
+    }
+
+    public Importacion getImportacion(Long id) {
+        return repositoryImportacion.findById(id).orElse(null);
+    }
+
+    // Crea y lanza una importacion. Lanza IllegalArgumentException si el origen no existe o queda
+    // fuera de importacion.directorio, y TaskRejectedException si hay demasiadas en cola.
+    public Importacion importar(String origen) {
+        if (origen == null || !Files.exists(resolver(origen))) {
+            throw new IllegalArgumentException("No existe el origen " + origen);
+        }
+        Importacion importacion = repositoryImportacion.saveAndFlush(new Importacion(origen));
+        encolar(importacion);
+        return importacion;
+    }
+
+    // Vuelve a lanzar una importacion interrumpida o fallida desde su punto de control.
+    // Devuelve null si ya esta completada o en curso.
+    public Importacion reanudar(long id) {
+        Importacion importacion = getImportacion(id);
+        if (importacion == null || importacion.getEstado() == Importacion.Estado.COMPLETADA || activas.contains(id)) {
+            return null;
+        }
+        importacion.setEstado(Importacion.Estado.PENDIENTE);
+        importacion.setFechaFin(null);
+        importacion = repositoryImportacion.save(importacion);
+        encolar(importacion);
+        return importacion;
+    }
+
+    private void encolar(Importacion importacion) {
+        long id = importacion.getId();
+        if (!activas.add(id)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    procesar(id);
+                } finally {
+                    activas.remove(id);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            activas.remove(id);
+            importacion.setEstado(Importacion.Estado.ERROR);
+            importacion.setErrores("Cola de importaciones llena");
+            repositoryImportacion.save(importacion);
+            throw e;
+        }
+    }
+
+    // Las importaciones que quedaron a medias en una ejecucion anterior continuan desde su punto de control
+    @EventListener(ApplicationReadyEvent.class)
+    public void reanudarPendientes() {
+        for (Importacion importacion : repositoryImportacion.findByEstadoInOrderById(
+                EnumSet.of(Importacion.Estado.PENDIENTE, Importacion.Estado.EN_CURSO))) {
+            try {
+                encolar(importacion);
+            } catch (TaskRejectedException e) {
+                log.warn("No se ha podido reanudar la importacion {}", importacion.getId());
+            }
+        }
+    }
+
+    private void procesar(long id) {
+        Importacion importacion = repositoryImportacion.findById(id).orElse(null);
+        if (importacion == null) {
+            return;
+        }
+        importacion.setEstado(Importacion.Estado.EN_CURSO);
+        importacion = repositoryImportacion.save(importacion);
+        try (OrigenImportacion origen = OrigenImportacion.abrir(resolver(importacion.getOrigen()))) {
+            List<Entrada> entradas = origen.manifiesto(manifiesto);
+            importacion.setTotal(entradas.size());
+            importacion = repositoryImportacion.save(importacion);
+            for (int inicio = importacion.getProcesadas(); inicio < entradas.size(); inicio += lote) {
+                List<Entrada> bloque = entradas.subList(inicio, Math.min(inicio + lote, entradas.size()));
+                List<Preparada> preparadas = pool.submit(() -> bloque.parallelStream()
+                        .map(entrada -> preparar(origen, entrada))
+                        .toList()).get();
+                importacion = new TransactionTemplate(transactionManager).execute(estado -> guardar(id, preparadas));
+            }
+            importacion.setEstado(Importacion.Estado.COMPLETADA);
+        } catch (IOException | RuntimeException | ExecutionException e) {
+            log.error("Error en la importacion {}", id, e);
+            importacion = repositoryImportacion.findById(id).orElse(importacion);
+            importacion.setEstado(Importacion.Estado.ERROR);
+            anotarError(importacion, "Importacion detenida: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // Se queda EN_CURSO y se reanuda en el siguiente arranque
+            Thread.currentThread().interrupt();
+            return;
+        }
+        importacion.setFechaFin(Calendar.getInstance());
+        repositoryImportacion.save(importacion);
+    }
+
+    // Entrada del manifiesto lista para guardar, o con el motivo por el que no se puede importar
+    private record Preparada(Entrada entrada, String hash, long tamano, ImageCodec codec, byte[] codificado, String error) {
+    }
+
+    // Etapa paralela: no toca la base de datos
+    private Preparada preparar(OrigenImportacion origen, Entrada entrada) {
+        try {
+            byte[] datos = origen.leer(entrada.fichero());
+            String error = validar(entrada.fichero(), datos);
+            if (error != null) {
+                return new Preparada(entrada, null, 0, null, null, error);
+            }
+            ImageCodec codec = imageCodecPolicy.codecPara(null, entrada.fichero());
+            byte[] codificado;
+            try (FlujoMedido contenido = new FlujoMedido(codec.encode(new ByteArrayInputStream(datos)))) {
+                codificado = contenido.readAllBytes();
+                metricasImagen.codificacion(codec, datos.length, contenido);
+            }
+            return new Preparada(entrada, sha256(datos), datos.length, codec, codificado, null);
+        } catch (IOException | RuntimeException e) {
+            return new Preparada(entrada, null, 0, null, null, e.toString());
+        }
+    }
+
+    // Los DICOM (que ImageIO no decodifica) se comprueban por su prefijo "DICM"; el resto decodificandolos
+    private String validar(String fichero, byte[] datos) throws IOException {
+        if (fichero.toLowerCase(Locale.ROOT).endsWith(".dcm")) {
+            boolean dicom = datos.length >= 132
+                    && new String(Arrays.copyOfRange(datos, 128, 132), StandardCharsets.US_ASCII).equals("DICM");
+            return dicom ? null : "No es un fichero DICOM";
+        }
+        if (ImageUtils.readImage(new ByteArrayInputStream(datos), TAMANO_VALIDACION, TAMANO_VALIDACION) == null) {
+            return "Formato de imagen no reconocido";
+        }
+        return null;
+    }
+
+    // Guarda un bloque y avanza el punto de control en la misma transaccion
+    private Importacion guardar(long id, List<Preparada> preparadas) {
+        Importacion importacion = repositoryImportacion.findById(id).orElseThrow();
+        Map<String, Paciente> pacientes = new HashMap<>();
+        List<Imagen> imagenes = new ArrayList<>();
+        for (Preparada preparada : preparadas) {
+            Entrada entrada = preparada.entrada();
+            if (preparada.error() != null) {
+                anotarFallo(importacion, entrada, preparada.error());
+                continue;
+            }
+            Paciente paciente = pacientes.computeIfAbsent(entrada.dni(), repositoryPaciente::findByDni);
+            if (paciente == null) {
+                anotarFallo(importacion, entrada, "No existe el paciente con dni " + entrada.dni());
+                continue;
+            }
+            Imagen imagen = new Imagen();
+            imagen.setNombre(Paths.get(entrada.fichero()).getFileName().toString());
+            imagen.setPaciente(paciente);
+            imagen.setFecha(Calendar.getInstance());
+            imagen.setContentHash(preparada.hash());
+            imagen.setContentSize(preparada.tamano());
+            // Si el bloque se deshace, el almacen borra los ficheros que haya escrito en el
+            try {
+                imageStore.saveEncoded(imagen, preparada.codificado(), preparada.codec());
+            } catch (IOException e) {
+                anotarFallo(importacion, entrada, e.toString());
+                continue;
+            }
+            imagenes.add(imagen);
+        }
+        importacion.setProcesadas(importacion.getProcesadas() + preparadas.size());
+        importacion.setImportadas(importacion.getImportadas() + imagenes.size());
+        importacion = repositoryImportacion.save(importacion);
+        guardadoPorLotes.guardar(repositoryImagen, imagenes);
+        return importacion;
+    }
+
+    private void anotarFallo(Importacion importacion, Entrada entrada, String motivo) {
+        importacion.setFallidas(importacion.getFallidas() + 1);
+        anotarError(importacion, entrada.fichero() + ": " + motivo);
+    }
+
+    private void anotarError(Importacion importacion, String error) {
+        String errores = importacion.getErrores();
+        int lineas = errores == null ? 0 : errores.split("\n").length;
+        if (lineas < maxErrores) {
+            importacion.setErrores(errores == null ? error : errores + "\n" + error);
+        }
+    }
+
+    // Los origenes son siempre relativos a importacion.directorio
+    private Path resolver(String origen) {
+        Path raiz = Paths.get(directorio).toAbsolutePath().normalize();
+        Path ruta = raiz.resolve(origen).normalize();
+        if (!ruta.startsWith(raiz)) {
+            throw new IllegalArgumentException("El origen debe estar dentro de " + raiz);
+        }
+        return ruta;
+    }
+
+    private static String sha256(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
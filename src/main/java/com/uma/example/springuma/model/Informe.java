@@ -7,18 +7,35 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_informe_imagen", columnList = "imagen_id, id"),
+        @Index(name = "idx_informe_imagen_prediccion", columnList = "imagen_id, prediccion, id")})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+// Listados de informes: cada informe con su imagen, el paciente y el medico en una sola consulta
+@NamedEntityGraph(name = "Informe.imagen",
+        attributeNodes = @NamedAttributeNode(value = "imagen", subgraph = "imagen"),
+        subgraphs = {
+                @NamedSubgraph(name = "imagen", attributeNodes = @NamedAttributeNode(value = "paciente", subgraph = "paciente")),
+                @NamedSubgraph(name = "paciente", attributeNodes = @NamedAttributeNode("medico"))})
 public class Informe {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "informe_seq")
+    @SequenceGenerator(name = "informe_seq", sequenceName = "informe_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "prediccion")
@@ -28,7 +45,7 @@ public class Informe {
     private String contenido;
 
     // Relación con imagen (muchas imágenes pueden pertenecer a un informe)
-    @ManyToOne()
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "imagen_id")
     private Imagen imagen;
@@ -0,0 +1,72 @@
+package com.uma.example.springuma.model;
+
+// Fila de la exportacion de informes: solo los ids de su imagen y paciente, sin cargar sus entidades
+public class InformeExportado {
+
+    private long id;
+    private String prediccion;
+    private String contenido;
+    private Long imagenId;
+    private String imagenNombre;
+    private Long pacienteId;
+
+    public InformeExportado() {
+    }
+
+    public InformeExportado(long id, String prediccion, String contenido, Long imagenId, String imagenNombre, Long pacienteId) {
+        this.id = id;
+        this.prediccion = prediccion;
+        this.contenido = contenido;
+        this.imagenId = imagenId;
+        this.imagenNombre = imagenNombre;
+        this.pacienteId = pacienteId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getPrediccion() {
+        return prediccion;
+    }
+
+    public void setPrediccion(String prediccion) {
+        this.prediccion = prediccion;
+    }
+
+    public String getContenido() {
+        return contenido;
+    }
+
+    public void setContenido(String contenido) {
+        this.contenido = contenido;
+    }
+
+    public Long getImagenId() {
+        return imagenId;
+    }
+
+    public void setImagenId(Long imagenId) {
+        this.imagenId = imagenId;
+    }
+
+    public String getImagenNombre() {
+        return imagenNombre;
+    }
+
+    public void setImagenNombre(String imagenNombre) {
+        this.imagenNombre = imagenNombre;
+    }
+
+    public Long getPacienteId() {
+        return pacienteId;
+    }
+
+    public void setPacienteId(Long pacienteId) {
+        this.pacienteId = pacienteId;
+    }
+}
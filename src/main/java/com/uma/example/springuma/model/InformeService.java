@@ -1,45 +1,94 @@
 package com.uma.example.springuma.model;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.uma.example.springuma.utils.ImageUtils;
+import com.uma.example.springuma.prediccion.Puntuacion;
 
-import java.util.Map;
+import io.micrometer.core.instrument.Timer;
 
 
 @Service
 public class InformeService {
 
+    private static final Logger log = LoggerFactory.getLogger(InformeService.class);
+
+    // Campos por los que se pueden ordenar las paginas de informes
+    public static final List<String> CAMPOS_ORDEN = List.of("id", "prediccion");
+
     @Autowired
     private RepositoryInforme repositoryInforme;
 
     @Autowired
     private RepositoryImagen repositoryImage;
 
+    @Autowired
+    private PrediccionCache prediccionCache;
+
+    @Autowired
+    private GuardadoPorLotes guardadoPorLotes;
+
+    @Autowired
+    private ConsultaPorClave consultaPorClave;
+
+    @Autowired
+    private MetricasImagen metricasImagen;
+
     public List<Informe> getAllInformes() {
         return repositoryInforme.findAll();
     }
 
+    // Pagina de informes (con imagen, paciente y medico) siguiente al cursor, en el orden del cursor
+    public Pagina<Informe> getInformes(Pagina.Cursor cursor, Integer tamano) {
+        return Pagina.de(consultaPorClave.pagina(Informe.class, "Informe.imagen", null, Map.of(), cursor, tamano), cursor);
+    }
+
     public Informe getInforme(Long id) {
-        return repositoryInforme.findById(id).orElse(null);
+        return repositoryInforme.findConImagenById(id).orElse(null);
     }
 
     
     public Informe addInforme(Informe informe) throws IOException, Exception {
         String neew_pred = getNewPrediccion(informe);
         //double neew_pred = Math.random();
-        System.out.println(neew_pred);
+        log.debug("Prediccion del informe de la imagen {}: {}", informe.getImagen().getId(), neew_pred);
         informe.setPrediccion(((neew_pred)));
 
         return repositoryInforme.saveAndFlush(informe);
     }
     
+    // Calcula las predicciones de todas las imagenes con una sola llamada al predictor (fuera de
+    // la transaccion) y guarda los informes en lotes; si alguno falla no se guarda ninguno
+    public List<Informe> addInformes(List<Informe> informes) throws IOException, Exception {
+        List<Long> ids = informes.stream().map(informe -> informe.getImagen().getId()).distinct().toList();
+        Map<Long, Imagen> imagenes = new HashMap<>();
+        for (Imagen imagen : repositoryImage.findAllById(ids)) {
+            imagenes.put(imagen.getId(), imagen);
+        }
+        for (Long id : ids) {
+            if (!imagenes.containsKey(id)) {
+                throw new IllegalArgumentException("No existe la imagen " + id);
+            }
+        }
+        List<Imagen> lista = ids.stream().map(imagenes::get).toList();
+        List<Puntuacion> puntuaciones = prediccionCache.obtener(lista);
+        Map<Long, String> predicciones = new HashMap<>();
+        for (int i = 0; i < lista.size(); i++) {
+            predicciones.put(lista.get(i).getId(), formatearPrediccion(puntuaciones.get(i)));
+        }
+        for (Informe informe : informes) {
+            informe.setPrediccion(predicciones.get(informe.getImagen().getId()));
+        }
+        return guardadoPorLotes.guardar(repositoryInforme, informes);
+    }
 
-    
     public void updateInforme(Informe informe) throws IOException, Exception {
         // Puedes implementar la lógica de actualización según tus necesidades
         // Aquí se muestra un ejemplo básico:
@@ -52,6 +101,22 @@ public class InformeService {
     }
     
 
+    // Guarda el informe sin prediccion; se rellena cuando termina su PrediccionJob
+    public Informe addInformeSinPrediccion(Informe informe) {
+        informe.setPrediccion(null);
+        return repositoryInforme.saveAndFlush(informe);
+    }
+
+    // Calcula la prediccion de un informe ya guardado y la persiste
+    public String actualizarPrediccion(Long id) throws IOException, Exception {
+        Informe informe = repositoryInforme.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("No existe el informe " + id));
+        String prediccion = getNewPrediccion(informe);
+        informe.setPrediccion(prediccion);
+        repositoryInforme.save(informe);
+        return prediccion;
+    }
+
     public void removeInforme(Informe informe) {
         repositoryInforme.delete(informe);
     }
@@ -64,19 +129,29 @@ public class InformeService {
         return repositoryInforme.findByImagenId(id);
     }
 
+    public Pagina<Informe> getInformesImagen(Long id, Pagina.Cursor cursor, Integer tamano) {
+        return Pagina.de(consultaPorClave.pagina(Informe.class, "Informe.imagen", "e.imagen.id = :imagen",
+                Map.of("imagen", id), cursor, tamano), cursor);
+    }
+
     
     public String getNewPrediccion(Informe informe) throws IOException, Exception{
-        /*Map<String, Double> response =  ImagenAPIPredictor
-        .query(ImageUtils.decompressImage(repositoryImage.getReferenceById(informe.getImagen().getId())
-        .getFile_content()));
-        //informe.setPrediccion((String)response.get("0"));
-        System.out.println("resp");
-        System.out.println( response);
-        double score_0 = response.get("LABEL_0");
-        double score_1 = response.get("LABEL_1");*/
-
-        double score_0 = Math.random();
-        double score_1 = Math.random();
+        Timer.Sample muestra = metricasImagen.iniciar();
+        String resultado = MetricasImagen.ERROR;
+        try {
+            Imagen imagen = repositoryImage.findById(informe.getImagen().getId())
+                    .orElseThrow(() -> new IllegalArgumentException("No existe la imagen " + informe.getImagen().getId()));
+            String prediccion = formatearPrediccion(prediccionCache.obtener(imagen));
+            resultado = MetricasImagen.OK;
+            return prediccion;
+        } finally {
+            metricasImagen.prediccion(muestra, "informe", resultado);
+        }
+    }
+
+    private String formatearPrediccion(Puntuacion puntuacion) {
+        double score_0 = puntuacion.score_0();
+        double score_1 = puntuacion.score_1();
         String resulString;
         if (score_0 > score_1){
             resulString = "{\"status\": \"Not cancer\",  \"score\": " + score_0+"}";
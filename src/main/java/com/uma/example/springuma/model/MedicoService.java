@@ -1,37 +1,67 @@
 package com.uma.example.springuma.model;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class MedicoService {
+
+    // Campos por los que se pueden ordenar las paginas de medicos
+    public static final List<String> CAMPOS_ORDEN = List.of("id", "nombre", "dni");
+
     @Autowired
     RepositoryMedico repositoryMedico;
 
+    @Autowired
+    private ConsultaPorClave consultaPorClave;
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private GuardadoPorLotes guardadoPorLotes;
+
     public List<Medico> getAllMedicos(){
         return repositoryMedico.findAll();
     }
 
+    // Pagina de medicos siguiente al cursor, en el orden del cursor
+    public Pagina<Medico> getMedicos(Pagina.Cursor cursor, Integer tamano) {
+        return Pagina.de(consultaPorClave.pagina(Medico.class, null, null, Map.of(), cursor, tamano), cursor);
+    }
+
     public Medico getMedico(Long id){
         return repositoryMedico.getReferenceById(id);
     }
 
+    public boolean existeMedico(Long id){
+        return repositoryMedico.existsById(id);
+    }
+
     public Medico addMedico(Medico m){
         return repositoryMedico.saveAndFlush(m);
     }
 
+    // Todos o ninguno: si alguno falla (p.ej. dni repetido) no se guarda ninguno
+    public List<Medico> addMedicos(List<Medico> medicos){
+        return guardadoPorLotes.guardar(repositoryMedico, medicos);
+    }
+
     public void updateMedico(Medico m){
         repositoryMedico.save(m);
     }
 
     public void removeMedico(Medico m){
         repositoryMedico.delete(m);
+        cacheService.evictPacientes();
     }
 
     public void removeMedicoID(Long id){
         repositoryMedico.deleteById(id);
+        cacheService.evictPacientes();
     }
 
     public Medico getMedicoByDni(String dni) {
@@ -0,0 +1,126 @@
+package com.uma.example.springuma.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.uma.example.springuma.model.RepositoryImagenContenido.LectorContenido;
+import com.uma.example.springuma.utils.FlujoMedido;
+import com.uma.example.springuma.utils.ImageCodec;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Metricas de cada etapa de las imagenes, publicadas en /actuator/prometheus:
+//  - imagen.subida e imagen.descarga: la operacion completa de ImagenService
+//  - imagen.codificacion, imagen.escritura e imagen.bytes (entrada/almacenados) e
+//    imagen.compresion.ratio: la subida dentro del almacen, por codec y almacen
+//  - imagen.lectura e imagen.decodificacion (inflate) con imagen.bytes (leidos/decodificados)
+//  - prediccion (por origen), prediccion.inferencia y prediccion.lote (por modelo) y
+//    prediccion.cache (aciertos y fallos)
+// Los timers llevan la etiqueta resultado: ok, error o sin-contenido
+@Component
+public class MetricasImagen {
+
+    public static final String OK = "ok";
+
+    public static final String ERROR = "error";
+
+    public static final String SIN_CONTENIDO = "sin-contenido";
+
+    @Autowired
+    private MeterRegistry registro;
+
+    public Timer.Sample iniciar() {
+        return Timer.start(registro);
+    }
+
+    public void subida(Timer.Sample muestra, String resultado) {
+        muestra.stop(timer("imagen.subida", "Subida completa de una imagen", "resultado", resultado));
+    }
+
+    public void descarga(Timer.Sample muestra, String resultado) {
+        muestra.stop(timer("imagen.descarga", "Descarga completa de una imagen", "resultado", resultado));
+    }
+
+    // La subida dentro del almacen: codificado es el stream del codec que se ha ido escribiendo, asi
+    // que su tiempo es el de codificar (y leer la subida) y el resto de nanos el de escribir
+    public void escritura(String almacen, ImageCodec codec, long bytesEntrada, FlujoMedido codificado, long nanos, boolean ok) {
+        timer("imagen.escritura", "Escritura del contenido codificado en el almacen", "almacen", almacen, "resultado", ok ? OK : ERROR)
+                .record(Math.max(0, nanos - codificado.getNanos()), TimeUnit.NANOSECONDS);
+        if (ok) {
+            codificacion(codec, bytesEntrada, codificado);
+        }
+    }
+
+    // Contenido ya codificado entero, al guardar o en las importaciones
+    public void codificacion(ImageCodec codec, long bytesEntrada, FlujoMedido codificado) {
+        timer("imagen.codificacion", "Codificacion del contenido al guardarlo", "codec", codec.getTag())
+                .record(codificado.getNanos(), TimeUnit.NANOSECONDS);
+        bytes("entrada", codec, bytesEntrada);
+        bytes("almacenados", codec, codificado.getBytes());
+        if (codificado.getBytes() > 0) {
+            DistributionSummary.builder("imagen.compresion.ratio")
+                    .description("Bytes sin comprimir por cada byte almacenado")
+                    .tag("codec", codec.getTag())
+                    .register(registro)
+                    .record((double) bytesEntrada / codificado.getBytes());
+        }
+    }
+
+    // Decodifica lo almacenado y se lo pasa al lector, midiendo por separado la lectura del almacen
+    // y la decodificacion
+    public void leer(String almacen, ImageCodec codec, InputStream almacenado, LectorContenido lector) throws IOException {
+        FlujoMedido leido = new FlujoMedido(almacenado);
+        FlujoMedido decodificado = new FlujoMedido(codec.decode(leido));
+        boolean ok = false;
+        try (decodificado) {
+            lector.leer(decodificado);
+            ok = true;
+        } finally {
+            timer("imagen.lectura", "Lectura del contenido codificado del almacen", "almacen", almacen, "resultado", ok ? OK : ERROR)
+                    .record(leido.getNanos(), TimeUnit.NANOSECONDS);
+            timer("imagen.decodificacion", "Decodificacion del contenido al leerlo", "codec", codec.getTag())
+                    .record(Math.max(0, decodificado.getNanos() - leido.getNanos()), TimeUnit.NANOSECONDS);
+            bytes("leidos", codec, leido.getBytes());
+            bytes("decodificados", codec, decodificado.getBytes());
+        }
+    }
+
+    public void prediccion(Timer.Sample muestra, String origen, String resultado) {
+        muestra.stop(timer("prediccion", "Prediccion pedida por ImagenService o InformeService", "origen", origen, "resultado", resultado));
+    }
+
+    public void inferencia(Timer.Sample muestra, String modelo, int imagenes, String resultado) {
+        muestra.stop(timer("prediccion.inferencia", "Llamada al predictor", "modelo", modelo, "resultado", resultado));
+        DistributionSummary.builder("prediccion.lote")
+                .description("Imagenes por llamada al predictor")
+                .tag("modelo", modelo)
+                .register(registro)
+                .record(imagenes);
+    }
+
+    public void cache(String modelo, int aciertos, int fallos) {
+        Counter.builder("prediccion.cache").tag("modelo", modelo).tag("resultado", "acierto").register(registro).increment(aciertos);
+        Counter.builder("prediccion.cache").tag("modelo", modelo).tag("resultado", "fallo").register(registro).increment(fallos);
+    }
+
+    private Timer timer(String nombre, String descripcion, String... etiquetas) {
+        return Timer.builder(nombre).description(descripcion).tags(etiquetas).register(registro);
+    }
+
+    private void bytes(String tipo, ImageCodec codec, long bytes) {
+        DistributionSummary.builder("imagen.bytes")
+                .description("Tamaño del contenido en cada etapa")
+                .baseUnit("bytes")
+                .tag("tipo", tipo)
+                .tag("codec", codec.getTag())
+                .register(registro)
+                .record(bytes);
+    }
+}
@@ -0,0 +1,95 @@
+package com.uma.example.springuma.model;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Lob;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+// Version reducida (JPEG) de una imagen, con su lado mayor de `tamano` pixeles.
+// Se genera la primera vez que se pide y se borra junto con la imagen.
+@Entity
+@Table(name = "miniatura", uniqueConstraints = @UniqueConstraint(columnNames = {"imagen_id", "tamano"}))
+public class Miniatura {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "miniatura_seq")
+    @SequenceGenerator(name = "miniatura_seq", sequenceName = "miniatura_seq", allocationSize = 50)
+    private long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "imagen_id")
+    private Imagen imagen;
+
+    @Column(name = "tamano")
+    private int tamano;
+
+    @Lob
+    @Column(name = "contenido")
+    private byte[] contenido;
+
+    // Identifica el contenido de la miniatura; se usa como ETag
+    @Column(name = "etag", length = 80)
+    private String etag;
+
+    public Miniatura() {
+    }
+
+    public Miniatura(Imagen imagen, int tamano, byte[] contenido, String etag) {
+        this.imagen = imagen;
+        this.tamano = tamano;
+        this.contenido = contenido;
+        this.etag = etag;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public Imagen getImagen() {
+        return imagen;
+    }
+
+    public void setImagen(Imagen imagen) {
+        this.imagen = imagen;
+    }
+
+    public int getTamano() {
+        return tamano;
+    }
+
+    public void setTamano(int tamano) {
+        this.tamano = tamano;
+    }
+
+    public byte[] getContenido() {
+        return contenido;
+    }
+
+    public void setContenido(byte[] contenido) {
+        this.contenido = contenido;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+}
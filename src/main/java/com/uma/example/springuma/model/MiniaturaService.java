@@ -0,0 +1,84 @@
+package com.uma.example.springuma.model;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import com.uma.example.springuma.storage.ImageStore;
+import com.uma.example.springuma.utils.ImageUtils;
+
+@Service
+public class MiniaturaService {
+
+    @Autowired
+    private RepositoryMiniatura repositoryMiniatura;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Value("${imagen.miniatura.tamanos:64,128,256}")
+    private List<Integer> tamanos;
+
+    public List<Integer> getTamanos() {
+        return tamanos;
+    }
+
+    // Devuelve null si la imagen no existe. La miniatura se genera la primera vez que se pide.
+    public Miniatura getMiniatura(long imagenId, int tamano) throws IOException {
+        Optional<Miniatura> guardada = repositoryMiniatura.findByImagenIdAndTamano(imagenId, tamano);
+        if (guardada.isPresent()) {
+            return guardada.get();
+        }
+        Imagen imagen = repositoryImagen.findById(imagenId).orElse(null);
+        if (imagen == null) {
+            return null;
+        }
+        byte[] contenido = generar(imagen, tamano);
+        // El contenido de una imagen no cambia, asi que su hash identifica tambien cada miniatura
+        String etag = (imagen.getContentHash() != null ? imagen.getContentHash() : DigestUtils.md5DigestAsHex(contenido)) + "-" + tamano;
+        try {
+            return repositoryMiniatura.saveAndFlush(new Miniatura(imagen, tamano, contenido, etag));
+        } catch (DataIntegrityViolationException e) {
+            // Otra peticion la ha generado a la vez
+            return repositoryMiniatura.findByImagenIdAndTamano(imagenId, tamano).orElseThrow(() -> e);
+        }
+    }
+
+    // JPEG con el lado mayor de `tamano` pixeles (las imagenes mas pequeñas no se amplian)
+    private byte[] generar(Imagen imagen, int tamano) throws IOException {
+        BufferedImage[] original = new BufferedImage[1];
+        boolean encontrada = imageStore.leer(imagen, contenido -> original[0] = ImageUtils.readImage(contenido, tamano, tamano));
+        if (!encontrada || original[0] == null) {
+            throw new IOException("No se puede generar la miniatura de la imagen " + imagen.getId());
+        }
+        double escala = Math.min(1, (double) tamano / Math.max(original[0].getWidth(), original[0].getHeight()));
+        int ancho = Math.max(1, (int) Math.round(original[0].getWidth() * escala));
+        int alto = Math.max(1, (int) Math.round(original[0].getHeight() * escala));
+
+        BufferedImage miniatura = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = miniatura.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(original[0], 0, 0, ancho, alto, null);
+        g.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(miniatura, "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,104 @@
+package com.uma.example.springuma.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Ficheros de una importacion: un directorio o un ZIP con el manifiesto en su raiz. Se pueden
+// leer varias entradas a la vez desde distintos hilos.
+abstract class OrigenImportacion implements Closeable {
+
+    // Fila del manifiesto: fichero relativo al origen y dni del paciente
+    record Entrada(String fichero, String dni) {
+    }
+
+    static OrigenImportacion abrir(Path ruta) throws IOException {
+        if (Files.isDirectory(ruta)) {
+            return new Directorio(ruta);
+        }
+        if (Files.isRegularFile(ruta)) {
+            return new Zip(new ZipFile(ruta.toFile()));
+        }
+        throw new NoSuchFileException(ruta.toString());
+    }
+
+    abstract InputStream abrirFichero(String fichero) throws IOException;
+
+    byte[] leer(String fichero) throws IOException {
+        try (InputStream contenido = abrirFichero(fichero)) {
+            return contenido.readAllBytes();
+        }
+    }
+
+    // Una entrada por linea, "fichero,dni"; se ignoran las lineas vacias, los comentarios (#)
+    // y una cabecera "fichero,dni"
+    List<Entrada> manifiesto(String nombre) throws IOException {
+        String texto = new String(leer(nombre), StandardCharsets.UTF_8);
+        List<Entrada> entradas = new ArrayList<>();
+        for (String linea : texto.split("\\R")) {
+            linea = linea.strip();
+            if (linea.isEmpty() || linea.startsWith("#") || linea.equalsIgnoreCase("fichero,dni")) {
+                continue;
+            }
+            int coma = linea.lastIndexOf(',');
+            if (coma <= 0) {
+                throw new IOException("Linea del manifiesto no valida: " + linea);
+            }
+            entradas.add(new Entrada(linea.substring(0, coma).strip(), linea.substring(coma + 1).strip()));
+        }
+        return entradas;
+    }
+
+    private static final class Directorio extends OrigenImportacion {
+
+        private final Path raiz;
+
+        Directorio(Path raiz) {
+            this.raiz = raiz.normalize();
+        }
+
+        @Override
+        InputStream abrirFichero(String fichero) throws IOException {
+            Path ruta = raiz.resolve(fichero).normalize();
+            if (!ruta.startsWith(raiz)) {
+                throw new IOException("Fichero fuera del directorio de la importacion: " + fichero);
+            }
+            return Files.newInputStream(ruta);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class Zip extends OrigenImportacion {
+
+        private final ZipFile zip;
+
+        Zip(ZipFile zip) {
+            this.zip = zip;
+        }
+
+        @Override
+        InputStream abrirFichero(String fichero) throws IOException {
+            ZipEntry entrada = zip.getEntry(fichero);
+            if (entrada == null || entrada.isDirectory()) {
+                throw new NoSuchFileException(fichero);
+            }
+            return zip.getInputStream(entrada);
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.uma.example.springuma.model;
 
 import java.io.Serializable;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -10,11 +12,21 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_paciente_medico", columnList = "medico_id, id"),
+        @Index(name = "idx_paciente_nombre", columnList = "nombre, id"),
+        @Index(name = "idx_paciente_medico_nombre", columnList = "medico_id, nombre, id"),
+        @Index(name = "idx_paciente_medico_cita", columnList = "medico_id, cita, id")})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "paciente")
+// Listados de pacientes: cada paciente con su medico en la misma consulta
+@NamedEntityGraph(name = "Paciente.medico", attributeNodes = @NamedAttributeNode("medico"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // para ignorar el serializador al devolver un objeto cuenta
 public class Paciente implements Serializable{
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "paciente_seq")
+    @SequenceGenerator(name = "paciente_seq", sequenceName = "paciente_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "nombre")
@@ -29,7 +41,7 @@ public class Paciente implements Serializable{
     @Column(name = "dni", unique = true)
     private String dni;
 
-    @ManyToOne()
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     private Medico medico;
 
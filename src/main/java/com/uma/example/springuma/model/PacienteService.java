@@ -1,28 +1,70 @@
 package com.uma.example.springuma.model;
 
 import java.util.List;
+import java.util.Map;
 
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManagerFactory;
 
 @Service
 public class PacienteService {
 
+    // Campos por los que se pueden ordenar las paginas de pacientes
+    public static final List<String> CAMPOS_ORDEN = List.of("id", "nombre", "cita", "dni");
+
     @Autowired
     RepositoryPaciente repositoryPaciente; // Cambio el nombre y tipo del repositorio
 
+    @Autowired
+    private ConsultaPorClave consultaPorClave;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private GuardadoPorLotes guardadoPorLotes;
+
     public List<Paciente> getAllPacientes(){
         return repositoryPaciente.findAll(); // Cambio el método para devolver una lista de Pacientes
     }
 
+    // Pagina de pacientes (con su medico) siguiente al cursor, en el orden del cursor
+    public Pagina<Paciente> getPacientes(Pagina.Cursor cursor, Integer tamano) {
+        return Pagina.de(consultaPorClave.pagina(Paciente.class, "Paciente.medico", null, Map.of(), cursor, tamano), cursor);
+    }
+
+    // Paciente con su medico; null si no existe. La consulta con el grafo Paciente.medico no pasa por la
+    // cache de segundo nivel: si el paciente ya esta en ella se lee por id, y su medico tambien por id
+    // (normalmente de la cache); si no, se leen los dos en una sola consulta, que lo deja en la cache
+    @Transactional(readOnly = true)
     public Paciente getPaciente(Long id){
-        return repositoryPaciente.getReferenceById(id); // Cambio el tipo de retorno a Paciente
+        if (!entityManagerFactory.getCache().contains(Paciente.class, id)) {
+            return repositoryPaciente.findConMedicoById(id).orElse(null);
+        }
+        Paciente paciente = repositoryPaciente.findById(id).orElse(null);
+        if (paciente != null) {
+            Hibernate.initialize(paciente.getMedico());
+        }
+        return paciente;
+    }
+
+    public boolean existePaciente(Long id){
+        return repositoryPaciente.existsById(id);
     }
 
     public Paciente addPaciente(Paciente p){
         return repositoryPaciente.saveAndFlush(p); // Cambio el tipo de argumento y retorno a Paciente
     }
 
+    // Todos o ninguno: si alguno falla (p.ej. dni repetido) no se guarda ninguno
+    public List<Paciente> addPacientes(List<Paciente> pacientes){
+        return guardadoPorLotes.guardar(repositoryPaciente, pacientes);
+    }
+
     public void updatePaciente(Paciente p){
         /*Paciente paciente = repositoryPaciente.getReferenceById(p.getId());
         // Aquí podrías actualizar los campos específicos del paciente
@@ -45,4 +87,9 @@ public class PacienteService {
     public List<Paciente> getPacientesMedico(Long id) {
         return repositoryPaciente.findByMedicoId(id);
     }
+
+    public Pagina<Paciente> getPacientesMedico(Long id, Pagina.Cursor cursor, Integer tamano) {
+        return Pagina.de(consultaPorClave.pagina(Paciente.class, "Paciente.medico", "e.medico.id = :medico",
+                Map.of("medico", id), cursor, tamano), cursor);
+    }
 }
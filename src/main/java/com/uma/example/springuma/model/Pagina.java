@@ -0,0 +1,115 @@
+package com.uma.example.springuma.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.List;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Slice;
+
+// Una pagina de un listado paginado por clave (keyset): en lugar de OFFSET, cada pagina empieza
+// despues del ultimo elemento de la anterior en el orden (campo, id), asi el coste no crece con el
+// numero de pagina. "siguiente" es el cursor opaco para pedir la pagina siguiente, o null si es la ultima.
+public record Pagina<T>(List<T> elementos, String siguiente) {
+
+    public static final int TAMANO_DEFECTO = 20;
+
+    public static final int TAMANO_MAXIMO = 100;
+
+    // Cursor, orden o campo de un listado paginado que no son validos; se responde 400
+    public static class ParametroNoValido extends IllegalArgumentException {
+
+        public ParametroNoValido(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    // Posicion dentro de un listado ordenado por campo y, a igualdad, por id: el valor del campo y el
+    // id del ultimo elemento devuelto (ultimoId null en la primera pagina; ultimoValor null si el campo
+    // era null o se ordena por id) y el sentido del orden
+    public record Cursor(String campo, boolean ascendente, Long ultimoId, String ultimoValor) {
+
+        public static final String ID = "id";
+
+        public static Cursor inicio(String campo, boolean ascendente) {
+            return new Cursor(campo, ascendente, null, null);
+        }
+
+        // El cursor de una pagina anterior manda sobre los parametros orden y campo; campo (por
+        // defecto id) tiene que ser uno de los campos por los que se puede ordenar el listado
+        public static Cursor de(String token, String orden, String campo, List<String> campos) {
+            if (token == null || token.isBlank()) {
+                return inicio(campoValido(campo == null ? ID : campo, campos), ascendente(orden));
+            }
+            String[] partes;
+            long ultimoId;
+            try {
+                partes = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 4);
+                ultimoId = Long.parseLong(partes[1]);
+            } catch (RuntimeException e) {
+                throw new ParametroNoValido("Cursor no valido: " + token);
+            }
+            String campoCursor = partes.length > 2 ? partes[2] : ID;
+            if (!campos.contains(campoCursor)) {
+                throw new ParametroNoValido("Cursor no valido: " + token);
+            }
+            return new Cursor(campoCursor, ascendente(partes[0]), ultimoId, partes.length > 3 ? partes[3] : null);
+        }
+
+        private static String campoValido(String campo, List<String> campos) {
+            if (!campos.contains(campo)) {
+                throw new ParametroNoValido("Campo de orden no valido: " + campo + " (se admite " + String.join(", ", campos) + ")");
+            }
+            return campo;
+        }
+
+        private static boolean ascendente(String orden) {
+            if (orden == null || orden.equalsIgnoreCase("asc")) {
+                return true;
+            }
+            if (orden.equalsIgnoreCase("desc")) {
+                return false;
+            }
+            throw new ParametroNoValido("Orden no valido: " + orden);
+        }
+
+        public boolean porId() {
+            return ID.equals(campo);
+        }
+
+        // Cursor que sigue a un elemento con ese id y ese valor del campo
+        public Cursor despuesDe(long id, Object valor) {
+            String texto = null;
+            if (!porId() && valor != null) {
+                texto = valor instanceof Calendar fecha ? Long.toString(fecha.getTimeInMillis()) : valor.toString();
+            }
+            return new Cursor(campo, ascendente, id, texto);
+        }
+
+        public String codificar() {
+            String valor = (ascendente ? "asc" : "desc") + ":" + ultimoId;
+            if (!porId()) {
+                valor += ":" + campo + (ultimoValor != null ? ":" + ultimoValor : "");
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // El cursor siguiente sale del id y del campo de orden del ultimo elemento de la pagina
+    public static <T> Pagina<T> de(Slice<T> slice, Cursor cursor) {
+        List<T> elementos = slice.getContent();
+        String siguiente = null;
+        if (slice.hasNext() && !elementos.isEmpty()) {
+            BeanWrapper ultimo = PropertyAccessorFactory.forBeanPropertyAccess(elementos.get(elementos.size() - 1));
+            long id = ((Number) ultimo.getPropertyValue(Cursor.ID)).longValue();
+            siguiente = cursor.despuesDe(id, cursor.porId() ? null : ultimo.getPropertyValue(cursor.campo())).codificar();
+        }
+        return new Pagina<>(elementos, siguiente);
+    }
+
+    public static int limitar(Integer tamano) {
+        return tamano == null ? TAMANO_DEFECTO : Math.max(1, Math.min(tamano, TAMANO_MAXIMO));
+    }
+}
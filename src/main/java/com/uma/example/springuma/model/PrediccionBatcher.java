@@ -0,0 +1,198 @@
+package com.uma.example.springuma.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+
+// Agrupa las predicciones que llegan en un intervalo corto (hasta prediccion.batch.max-size
+// imagenes o prediccion.batch.max-wait-ms) y las resuelve con una sola llamada al predictor
+@Component
+public class PrediccionBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PrediccionBatcher.class);
+
+    private record Pendiente(Long id, CompletableFuture<String> resultado) {
+    }
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Value("${prediccion.batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${prediccion.batch.max-size:16}")
+    private int maxSize;
+
+    @Value("${prediccion.batch.max-wait-ms:20}")
+    private long maxWaitMs;
+
+    // Tiempo maximo que predecir espera el resultado de todas sus imagenes
+    @Value("${prediccion.espera-ms:30000}")
+    private long esperaMs;
+
+    private final BlockingQueue<Pendiente> pendientes = new LinkedBlockingQueue<>();
+
+    // Los lotes se resuelven en un pool acotado para que varias llamadas al predictor esten en curso
+    // a la vez. El hilo que forma los lotes coge antes un permiso: mientras todos los hilos estan
+    // ocupados no saca peticiones de la cola, y el siguiente lote sale mas lleno
+    private final ThreadPoolTaskExecutor executor;
+
+    private final Semaphore libres;
+
+    private volatile boolean detenido;
+
+    private Thread hilo;
+
+    public PrediccionBatcher(@Value("${prediccion.batch.concurrentes:4}") int concurrentes, Environment entorno) {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrentes);
+        executor.setMaxPoolSize(concurrentes);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("prediccion-lote-");
+        if (Threading.VIRTUAL.isActive(entorno)) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("prediccion-lote-").getVirtualThreadFactory());
+        }
+        libres = new Semaphore(concurrentes);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (enabled) {
+            executor.initialize();
+            hilo = new Thread(this::procesar, "prediccion-batcher");
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+    }
+
+    // Las peticiones que aun esperan en la cola se terminan con error antes de parar: si no, quien
+    // espera su futuro sin limite de tiempo se quedaria bloqueado. Los lotes en curso terminan
+    @PreDestroy
+    public void detener() {
+        detenido = true;
+        if (hilo != null) {
+            hilo.interrupt();
+        }
+        cancelarPendientes();
+        executor.shutdown();
+    }
+
+    private void cancelarPendientes() {
+        List<Pendiente> restantes = new ArrayList<>();
+        pendientes.drainTo(restantes);
+        restantes.forEach(pendiente -> pendiente.resultado()
+                .completeExceptionally(new IllegalStateException("La aplicacion se esta deteniendo")));
+    }
+
+    public CompletableFuture<String> submit(Long id) {
+        if (!enabled) {
+            try {
+                return CompletableFuture.completedFuture(imagenService.getNewPrediccion(id));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        CompletableFuture<String> resultado = new CompletableFuture<>();
+        pendientes.add(new Pendiente(id, resultado));
+        if (detenido) {
+            // Llega despues de vaciar la cola en detener
+            cancelarPendientes();
+        }
+        return resultado;
+    }
+
+    // Prediccion de varias imagenes; se reparten en lotes junto con el resto de peticiones. Lanza
+    // TimeoutException si no estan todas en prediccion.espera-ms
+    public Map<Long, String> predecir(List<Long> ids) throws Exception {
+        Map<Long, CompletableFuture<String>> futuros = new LinkedHashMap<>();
+        for (Long id : ids) {
+            futuros.computeIfAbsent(id, this::submit);
+        }
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        Map<Long, String> resultados = new LinkedHashMap<>();
+        for (Map.Entry<Long, CompletableFuture<String>> futuro : futuros.entrySet()) {
+            try {
+                resultados.put(futuro.getKey(), futuro.getValue().get(limite - System.nanoTime(), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                futuros.values().forEach(pendiente -> pendiente.cancel(false));
+                throw e;
+            }
+        }
+        return resultados;
+    }
+
+    private void procesar() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Pendiente> lote = new ArrayList<>(maxSize);
+            try {
+                libres.acquire();
+                lote.add(pendientes.take());
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (lote.size() < maxSize) {
+                    Pendiente siguiente = pendientes.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lote.forEach(pendiente -> pendiente.resultado().cancel(false));
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        resolver(lote);
+                    } finally {
+                        libres.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Pool ya parado
+                libres.release();
+                lote.forEach(pendiente -> pendiente.resultado().completeExceptionally(e));
+            }
+        }
+    }
+
+    private void resolver(List<Pendiente> lote) {
+        List<Long> ids = lote.stream().map(Pendiente::id).distinct().toList();
+        try {
+            Map<Long, String> predicciones = imagenService.getNewPrediccionBatch(ids);
+            for (Pendiente pendiente : lote) {
+                String prediccion = predicciones.get(pendiente.id());
+                if (prediccion != null) {
+                    pendiente.resultado().complete(prediccion);
+                } else {
+                    // Borrada despues de encolar la peticion
+                    pendiente.resultado().completeExceptionally(new EntityNotFoundException("No existe la imagen " + pendiente.id()));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error en el lote de predicciones {}", ids, e);
+            lote.forEach(pendiente -> pendiente.resultado().completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.uma.example.springuma.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.uma.example.springuma.prediccion.Predictor;
+import com.uma.example.springuma.prediccion.Puntuacion;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+// Cache de predicciones por (hash del contenido, modelo y su version). Como el contenido de una imagen
+// no cambia, repetir la prediccion de la misma imagen, o de otra subida con los mismos bytes,
+// no vuelve a pasar por el predictor. Opcionalmente se guarda tambien en la tabla prediccion_guardada
+// para conservarla entre reinicios.
+@Component
+public class PrediccionCache {
+
+    @Autowired
+    private Predictor predictor;
+
+    @Autowired
+    private RepositoryPrediccionGuardada repositoryPrediccionGuardada;
+
+    @Autowired
+    private MetricasImagen metricasImagen;
+
+    @Value("${prediccion.modelo.version:1}")
+    private String version;
+
+    @Value("${prediccion.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${prediccion.cache.persistente:false}")
+    private boolean persistente;
+
+    private Cache<String, Puntuacion> cache;
+
+    private String modelo;
+
+    @PostConstruct
+    public void iniciar() {
+        // Caffeine usa W-TinyLFU para decidir que entradas descartar al llegar a max-size
+        cache = Caffeine.newBuilder().maximumSize(maxSize).build();
+        modelo = predictor.getModelo() + ":" + version;
+    }
+
+    public Puntuacion obtener(Imagen imagen) throws Exception {
+        return obtener(List.of(imagen)).get(0);
+    }
+
+    // Solo se pasan al predictor las imagenes que no estan en cache. Las imagenes sin hash
+    // (filas antiguas) se predicen siempre.
+    public List<Puntuacion> obtener(List<Imagen> imagenes) throws Exception {
+        List<Puntuacion> puntuaciones = new ArrayList<>();
+        List<Imagen> pendientes = new ArrayList<>();
+        for (Imagen imagen : imagenes) {
+            Puntuacion puntuacion = imagen.getContentHash() != null ? buscar(imagen.getContentHash()) : null;
+            puntuaciones.add(puntuacion);
+            if (puntuacion == null) {
+                pendientes.add(imagen);
+            }
+        }
+        metricasImagen.cache(predictor.getModelo(), imagenes.size() - pendientes.size(), pendientes.size());
+        if (!pendientes.isEmpty()) {
+            List<Puntuacion> calculadas = inferir(pendientes);
+            int siguiente = 0;
+            for (int i = 0; i < imagenes.size(); i++) {
+                if (puntuaciones.get(i) == null) {
+                    Puntuacion calculada = calculadas.get(siguiente++);
+                    puntuaciones.set(i, calculada);
+                    if (imagenes.get(i).getContentHash() != null) {
+                        guardar(imagenes.get(i).getContentHash(), calculada);
+                    }
+                }
+            }
+        }
+        return puntuaciones;
+    }
+
+    private List<Puntuacion> inferir(List<Imagen> pendientes) throws Exception {
+        Timer.Sample muestra = metricasImagen.iniciar();
+        String resultado = MetricasImagen.ERROR;
+        try {
+            List<Puntuacion> calculadas = predictor.predecir(pendientes);
+            resultado = MetricasImagen.OK;
+            return calculadas;
+        } finally {
+            metricasImagen.inferencia(muestra, predictor.getModelo(), pendientes.size(), resultado);
+        }
+    }
+
+    private Puntuacion buscar(String hash) {
+        String clave = clave(hash);
+        Puntuacion puntuacion = cache.getIfPresent(clave);
+        if (puntuacion == null && persistente) {
+            puntuacion = repositoryPrediccionGuardada.findById(clave)
+                    .map(guardada -> new Puntuacion(guardada.getScore_0(), guardada.getScore_1()))
+                    .orElse(null);
+            if (puntuacion != null) {
+                cache.put(clave, puntuacion);
+            }
+        }
+        return puntuacion;
+    }
+
+    private void guardar(String hash, Puntuacion puntuacion) {
+        cache.put(clave(hash), puntuacion);
+        if (persistente) {
+            repositoryPrediccionGuardada.save(new PrediccionGuardada(hash, modelo, puntuacion.score_0(), puntuacion.score_1()));
+        }
+    }
+
+    private String clave(String hash) {
+        return hash + ":" + modelo;
+    }
+
+    public void vaciar() {
+        cache.invalidateAll();
+    }
+}
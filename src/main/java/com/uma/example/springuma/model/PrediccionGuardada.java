@@ -0,0 +1,94 @@
+package com.uma.example.springuma.model;
+
+import java.util.Calendar;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Puntuaciones ya calculadas para un contenido de imagen (por su hash) con una version del modelo
+@Entity
+@Table(name = "prediccion_guardada")
+public class PrediccionGuardada {
+
+    // content_hash + ":" + modelo
+    @Id
+    @Column(name = "clave", length = 128)
+    private String clave;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "modelo", length = 64)
+    private String modelo;
+
+    @Column(name = "score_0")
+    private double score_0;
+
+    @Column(name = "score_1")
+    private double score_1;
+
+    @Column(name = "fecha")
+    private Calendar fecha;
+
+    public PrediccionGuardada() {
+    }
+
+    public PrediccionGuardada(String contentHash, String modelo, double score_0, double score_1) {
+        this.clave = contentHash + ":" + modelo;
+        this.contentHash = contentHash;
+        this.modelo = modelo;
+        this.score_0 = score_0;
+        this.score_1 = score_1;
+        this.fecha = Calendar.getInstance();
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    public void setClave(String clave) {
+        this.clave = clave;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getModelo() {
+        return modelo;
+    }
+
+    public void setModelo(String modelo) {
+        this.modelo = modelo;
+    }
+
+    public double getScore_0() {
+        return score_0;
+    }
+
+    public void setScore_0(double score_0) {
+        this.score_0 = score_0;
+    }
+
+    public double getScore_1() {
+        return score_1;
+    }
+
+    public void setScore_1(double score_1) {
+        this.score_1 = score_1;
+    }
+
+    public Calendar getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(Calendar fecha) {
+        this.fecha = fecha;
+    }
+}
@@ -0,0 +1,150 @@
+package com.uma.example.springuma.model;
+
+import java.util.Calendar;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+// Prediccion de una imagen que se ejecuta en segundo plano. Si se lanzo al crear un informe,
+// el resultado se guarda tambien en ese informe.
+@Entity
+@Table(indexes = @Index(name = "idx_prediccion_job_estado", columnList = "estado, id"))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class PrediccionJob {
+
+    // Longitud de las columnas resultado y error (V6); el texto que no cabe se recorta
+    public static final int LONGITUD_TEXTO = 4000;
+
+    public enum Estado {
+        PENDIENTE, EN_CURSO, COMPLETADA, ERROR
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prediccion_job_seq")
+    @SequenceGenerator(name = "prediccion_job_seq", sequenceName = "prediccion_job_seq", allocationSize = 50)
+    private long id;
+
+    @Column(name = "imagen_id")
+    private long imagenId;
+
+    @Column(name = "informe_id")
+    private Long informeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", length = 16)
+    private Estado estado;
+
+    @Column(name = "resultado", length = LONGITUD_TEXTO)
+    private String resultado;
+
+    @Column(name = "error", length = LONGITUD_TEXTO)
+    private String error;
+
+    @Column(name = "fecha_creacion")
+    private Calendar fechaCreacion;
+
+    @Column(name = "fecha_fin")
+    private Calendar fechaFin;
+
+    public PrediccionJob() {
+    }
+
+    public PrediccionJob(long imagenId, Long informeId) {
+        this.imagenId = imagenId;
+        this.informeId = informeId;
+        this.estado = Estado.PENDIENTE;
+        this.fechaCreacion = Calendar.getInstance();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getImagenId() {
+        return imagenId;
+    }
+
+    public void setImagenId(long imagenId) {
+        this.imagenId = imagenId;
+    }
+
+    public Long getInformeId() {
+        return informeId;
+    }
+
+    public void setInformeId(Long informeId) {
+        this.informeId = informeId;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public void setEstado(Estado estado) {
+        this.estado = estado;
+    }
+
+    public String getResultado() {
+        return resultado;
+    }
+
+    public void setResultado(String resultado) {
+        this.resultado = recortar(resultado);
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = recortar(error);
+    }
+
+    public Calendar getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(Calendar fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public Calendar getFechaFin() {
+        return fechaFin;
+    }
+
+    public void setFechaFin(Calendar fechaFin) {
+        this.fechaFin = fechaFin;
+    }
+
+    private static String recortar(String texto) {
+        return texto != null && texto.length() > LONGITUD_TEXTO ? texto.substring(0, LONGITUD_TEXTO) : texto;
+    }
+
+    public boolean isTerminado() {
+        return estado == Estado.COMPLETADA || estado == Estado.ERROR;
+    }
+
+    @Override
+    public String toString() {
+        return "PrediccionJob{" +
+                "id=" + id +
+                ", imagenId=" + imagenId +
+                ", informeId=" + informeId +
+                ", estado=" + estado +
+                '}';
+    }
+}
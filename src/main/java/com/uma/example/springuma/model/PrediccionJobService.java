@@ -0,0 +1,200 @@
+package com.uma.example.springuma.model;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+
+// Ejecuta las predicciones fuera del hilo de la peticion. Los trabajos se guardan en base de
+// datos, se procesan en un pool acotado y su resultado se consulta por id o se recibe por SSE.
+@Service
+public class PrediccionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrediccionJobService.class);
+
+    @Autowired
+    private RepositoryPrediccionJob repositoryPrediccionJob;
+
+    @Autowired
+    private PrediccionBatcher prediccionBatcher;
+
+    @Autowired
+    private InformeService informeService;
+
+    @Value("${prediccion.sse-timeout:60000}")
+    private long sseTimeout;
+
+    // Tiempo maximo que un trabajo espera su prediccion antes de terminar con error
+    @Value("${prediccion.espera-ms:30000}")
+    private long esperaPrediccion;
+
+    // No se declara como bean: un Executor en el contexto desactivaria el applicationTaskExecutor
+    // de Spring Boot que usan las descargas en streaming
+    private final ThreadPoolTaskExecutor executor;
+
+    private final Map<Long, List<SseEmitter>> suscriptores = new ConcurrentHashMap<>();
+
+    // Con hilos virtuales (spring.threads.virtual.enabled) el pool sigue acotando cuantas predicciones
+    // corren a la vez y cuantas esperan, pero un trabajo bloqueado en la llamada al predictor ya
+    // no ocupa un hilo de plataforma, y prediccion.workers se puede subir sin coste
+    public PrediccionJobService(@Value("${prediccion.workers:4}") int workers,
+            @Value("${prediccion.cola:100}") int cola, Environment entorno) {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("prediccion-");
+        if (Threading.VIRTUAL.isActive(entorno)) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("prediccion-").getVirtualThreadFactory());
+        }
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdown();
+    }
+
+    public PrediccionJob getJob(Long id) {
+        return repositoryPrediccionJob.findById(id).orElse(null);
+    }
+
+    // Lanza la prediccion de una imagen; si se indica un informe, el resultado se guarda en el.
+    // Lanza TaskRejectedException si la cola de trabajos esta llena.
+    public PrediccionJob submit(long imagenId, Long informeId) {
+        PrediccionJob job = repositoryPrediccionJob.saveAndFlush(new PrediccionJob(imagenId, informeId));
+        encolar(job);
+        return job;
+    }
+
+    private void encolar(PrediccionJob job) {
+        long id = job.getId();
+        try {
+            executor.execute(() -> procesar(id));
+        } catch (TaskRejectedException e) {
+            job.setEstado(PrediccionJob.Estado.ERROR);
+            job.setError("Cola de predicciones llena");
+            job.setFechaFin(Calendar.getInstance());
+            repositoryPrediccionJob.save(job);
+            throw e;
+        }
+    }
+
+    // Los trabajos que quedaron sin terminar en una ejecucion anterior se vuelven a encolar
+    @EventListener(ApplicationReadyEvent.class)
+    public void reanudarPendientes() {
+        for (PrediccionJob job : repositoryPrediccionJob.findByEstadoInOrderById(
+                EnumSet.of(PrediccionJob.Estado.PENDIENTE, PrediccionJob.Estado.EN_CURSO))) {
+            try {
+                encolar(job);
+            } catch (TaskRejectedException e) {
+                log.warn("No se ha podido reanudar la prediccion {}", job.getId());
+            }
+        }
+    }
+
+    private void procesar(long id) {
+        PrediccionJob job = repositoryPrediccionJob.findById(id).orElse(null);
+        if (job == null) {
+            return;
+        }
+        job.setEstado(PrediccionJob.Estado.EN_CURSO);
+        job = repositoryPrediccionJob.save(job);
+        try {
+            String resultado = job.getInformeId() != null
+                    ? informeService.actualizarPrediccion(job.getInformeId())
+                    : prediccionBatcher.submit(job.getImagenId()).get(esperaPrediccion, TimeUnit.MILLISECONDS);
+            job.setResultado(resultado);
+            job.setEstado(PrediccionJob.Estado.COMPLETADA);
+        } catch (TimeoutException e) {
+            log.warn("La prediccion {} ha tardado mas de {} ms", id, esperaPrediccion);
+            job.setError("La prediccion ha tardado mas de " + esperaPrediccion + " ms");
+            job.setEstado(PrediccionJob.Estado.ERROR);
+        } catch (Exception e) {
+            log.error("Error en la prediccion {}", id, e);
+            job.setError(e.getMessage());
+            job.setEstado(PrediccionJob.Estado.ERROR);
+        }
+        job.setFechaFin(Calendar.getInstance());
+        try {
+            job = repositoryPrediccionJob.save(job);
+        } catch (RuntimeException e) {
+            // Si no se puede guardar el resultado, el trabajo no debe quedarse EN_CURSO
+            log.error("No se ha podido guardar el resultado de la prediccion {}", id, e);
+            job.setResultado(null);
+            job.setError("No se ha podido guardar el resultado de la prediccion");
+            job.setEstado(PrediccionJob.Estado.ERROR);
+            job = repositoryPrediccionJob.save(job);
+        }
+        notificar(job);
+    }
+
+    // Emisor SSE que recibe el trabajo cuando termina. Si ya ha terminado se envia en el momento.
+    public SseEmitter suscribir(long id) throws IOException {
+        SseEmitter emitter = new SseEmitter(sseTimeout);
+        suscriptores.compute(id, (k, emisores) -> {
+            List<SseEmitter> lista = emisores != null ? emisores : new CopyOnWriteArrayList<>();
+            lista.add(emitter);
+            return lista;
+        });
+        emitter.onCompletion(() -> quitar(id, emitter));
+        emitter.onTimeout(() -> quitar(id, emitter));
+        emitter.onError(e -> quitar(id, emitter));
+        // Se comprueba despues de registrarse para no perder una notificacion intermedia. Si el
+        // trabajo ya ha terminado nadie mas lo va a notificar: el emisor se quita aqui mismo
+        PrediccionJob job = getJob(id);
+        if (job != null && job.isTerminado()) {
+            quitar(id, emitter);
+            enviar(emitter, job);
+        }
+        return emitter;
+    }
+
+    // La lista de un trabajo se borra del mapa al quedarse vacia
+    private void quitar(long id, SseEmitter emitter) {
+        suscriptores.computeIfPresent(id, (k, emisores) -> {
+            emisores.remove(emitter);
+            return emisores.isEmpty() ? null : emisores;
+        });
+    }
+
+    private void notificar(PrediccionJob job) {
+        List<SseEmitter> emisores = suscriptores.remove(job.getId());
+        if (emisores != null) {
+            for (SseEmitter emitter : emisores) {
+                enviar(emitter, job);
+            }
+        }
+    }
+
+    private void enviar(SseEmitter emitter, PrediccionJob job) {
+        try {
+            emitter.send(SseEmitter.event().name("prediccion").data(job));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // El cliente ya se ha desconectado o el emisor ya se habia completado
+            emitter.completeWithError(e);
+        }
+    }
+}
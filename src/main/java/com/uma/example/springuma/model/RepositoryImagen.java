@@ -2,13 +2,46 @@ package com.uma.example.springuma.model;
 
 
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface RepositoryImagen extends JpaRepository<Imagen, Long> {
 
+    @Override
+    @EntityGraph("Imagen.paciente")
+    List<Imagen> findAll();
+
+    // Imagen con su paciente y el medico de este (grafo Imagen.paciente)
+    @EntityGraph("Imagen.paciente")
+    Optional<Imagen> findConPacienteById(Long id);
+
+    @EntityGraph("Imagen.paciente")
     List<Imagen> getByPacienteId(Long id);
 
+    // Listado sin cargar el contenido de las imagenes
+    @Query("SELECT new com.uma.example.springuma.model.ImagenResumen(i.id, i.nombre, i.fecha, i.contentSize, i.paciente.id) "
+            + "FROM Imagen i WHERE i.paciente.id = :id ORDER BY i.id")
+    List<ImagenResumen> findResumenByPacienteId(@Param("id") Long id);
+
+    @Query("SELECT new com.uma.example.springuma.model.ImagenResumen(i.id, i.nombre, i.fecha, i.contentSize, i.paciente.id) "
+            + "FROM Imagen i ORDER BY i.id")
+    List<ImagenResumen> findAllResumen();
+
+    long countByContentHash(String contentHash);
+
+    // Codecs de las imagenes de un hash cuyo contenido ya no esta en file_content (esta en disco)
+    @Query("SELECT i.codec FROM Imagen i WHERE i.contentHash = :hash AND i.codec IS NOT NULL AND i.file_content IS NULL")
+    List<String> findCodecsEnDiscoByContentHash(@Param("hash") String contentHash);
+
+    // Imagenes cuyo contenido sigue en file_content: las anteriores al ImageStore, que no tienen
+    // hash, y las guardadas con imagen.store.type=database, que si lo tienen
+    @Query("SELECT i.id FROM Imagen i WHERE i.file_content IS NOT NULL ORDER BY i.id")
+    List<Long> findIdsConFileContent();
+
 
     // Aquí puedes añadir métodos personalizados si es necesario.
     // Por ejemplo, si quieres buscar imágenes por una propiedad específica:
@@ -0,0 +1,68 @@
+package com.uma.example.springuma.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+// Acceso directo por JDBC a la columna file_content de Imagen, para leer el blob como stream
+// en lugar de cargar el byte[] completo a traves de la entidad
+@Repository
+public class RepositoryImagenContenido {
+
+    @FunctionalInterface
+    public interface LectorContenido {
+        void leer(InputStream contenido) throws IOException;
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Devuelve false si la imagen no existe o no tiene contenido. El stream solo es valido dentro del lector.
+    // En una transaccion JdbcTemplate usa la conexion de la sesion JPA de la peticion (open-in-view)
+    // en lugar de pedir una segunda al pool: con el pool agotado, todas las peticiones que ya
+    // tienen una conexion esperarian por otra hasta el timeout
+    @Transactional(readOnly = true)
+    public boolean leerContenido(long id, LectorContenido lector) throws IOException {
+        try {
+            Boolean encontrada = jdbcTemplate.query("SELECT file_content FROM imagen WHERE id = ?", rs -> {
+                if (!rs.next()) {
+                    return false;
+                }
+                try (InputStream contenido = rs.getBinaryStream(1)) {
+                    if (contenido == null) {
+                        return false;
+                    }
+                    lector.leer(contenido);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            }, id);
+            return Boolean.TRUE.equals(encontrada);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Si la imagen tiene contenido en file_content, sin leerlo
+    public boolean tieneContenido(long id) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM imagen WHERE id = ? AND file_content IS NOT NULL", Long.class, id) > 0;
+    }
+
+    // El contenido se vuelca al blob leyendo del stream, sin pasar por un byte[] intermedio
+    public void escribirContenido(long id, InputStream contenido) {
+        jdbcTemplate.update("UPDATE imagen SET file_content = ? WHERE id = ?", ps -> {
+            ps.setBinaryStream(1, contenido);
+            ps.setLong(2, id);
+        });
+    }
+
+    public void borrarContenido(long id) {
+        jdbcTemplate.update("UPDATE imagen SET file_content = NULL WHERE id = ?", id);
+    }
+}
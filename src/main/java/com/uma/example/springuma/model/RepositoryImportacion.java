@@ -0,0 +1,11 @@
+package com.uma.example.springuma.model;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RepositoryImportacion extends JpaRepository<Importacion, Long> {
+
+    List<Importacion> findByEstadoInOrderById(Collection<Importacion.Estado> estados);
+}
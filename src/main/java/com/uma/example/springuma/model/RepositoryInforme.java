@@ -1,13 +1,39 @@
 package com.uma.example.springuma.model;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import jakarta.persistence.QueryHint;
+
+// Los informes que se devuelven por la API llevan su imagen, el paciente y el medico (grafo
+// Informe.imagen), cargados con joins en la misma consulta en lugar de una consulta por fila
 public interface RepositoryInforme extends JpaRepository<Informe, Long>{
 
+    @Override
+    @EntityGraph("Informe.imagen")
+    List<Informe> findAll();
+
+    @EntityGraph("Informe.imagen")
+    Optional<Informe> findConImagenById(Long id);
+
+    @EntityGraph("Informe.imagen")
     List<Informe> findByImagenId(Long id);
 
+    // Todos los informes con un cursor JDBC de solo avance, para exportarlos sin cargar la imagen
+    // ni el paciente; se debe consumir dentro de una transaccion y cerrar al terminar
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new com.uma.example.springuma.model.InformeExportado(i.id, i.prediccion, i.contenido, im.id, im.nombre, p.id) "
+            + "FROM Informe i LEFT JOIN i.imagen im LEFT JOIN im.paciente p ORDER BY i.id")
+    Stream<InformeExportado> streamExportacion();
+
     // https://docs.spring.io/spring-data/jpa/docs/current/reference/html/#repositories.query-methods.query-creation
 	// Además de los metodos de consulta basicos, especifico un metodo que busque una cuenta por el CCC
 	// A través del nombre del metodo, spring sabe que tiene que hacer una consulta y devolver la cuenta con el ccc especificado
@@ -1,9 +1,14 @@
 package com.uma.example.springuma.model;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import jakarta.persistence.QueryHint;
 
 public interface RepositoryMedico extends JpaRepository<Medico, Long>{
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Medico getMedicoByDni(String dni);
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,10 @@
+package com.uma.example.springuma.model;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RepositoryMiniatura extends JpaRepository<Miniatura, Long> {
+
+    Optional<Miniatura> findByImagenIdAndTamano(long imagenId, int tamano);
+}
@@ -1,13 +1,41 @@
 package com.uma.example.springuma.model;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import jakarta.persistence.QueryHint;
+
+// Los pacientes que se devuelven por la API llevan su medico (grafo Paciente.medico)
 public interface RepositoryPaciente extends JpaRepository<Paciente, Long> {
 
+    @Override
+    @EntityGraph("Paciente.medico")
+    List<Paciente> findAll();
+
+    @EntityGraph("Paciente.medico")
+    Optional<Paciente> findConMedicoById(Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @EntityGraph("Paciente.medico")
     Paciente findByDni(String dni);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @EntityGraph("Paciente.medico")
     List<Paciente> findByMedicoId(Long id);
 
+    // Todos los pacientes con su medico en una sola consulta, con un cursor JDBC de solo avance y
+    // sin pasar por la cache de segundo nivel; se debe consumir dentro de una transaccion
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")})
+    @Query("SELECT p FROM Paciente p LEFT JOIN FETCH p.medico ORDER BY p.id")
+    Stream<Paciente> streamExportacion();
+
 }
@@ -0,0 +1,6 @@
+package com.uma.example.springuma.model;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RepositoryPrediccionGuardada extends JpaRepository<PrediccionGuardada, String> {
+}
@@ -0,0 +1,11 @@
+package com.uma.example.springuma.model;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RepositoryPrediccionJob extends JpaRepository<PrediccionJob, Long> {
+
+    List<PrediccionJob> findByEstadoInOrderById(Collection<PrediccionJob.Estado> estados);
+}
@@ -0,0 +1,16 @@
+package com.uma.example.springuma.prediccion;
+
+import java.util.List;
+
+import com.uma.example.springuma.model.Imagen;
+
+// Motor de prediccion. La implementacion se elige con prediccion.predictor:
+// random (por defecto), remoto (API externa) u onnx (modelo local, perfil maven onnx).
+public interface Predictor {
+
+    // Identifica el modelo; forma parte de la clave de la cache de predicciones
+    String getModelo();
+
+    // Devuelve las puntuaciones de cada imagen en el mismo orden
+    List<Puntuacion> predecir(List<Imagen> imagenes) throws Exception;
+}
@@ -0,0 +1,31 @@
+package com.uma.example.springuma.prediccion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.uma.example.springuma.model.Imagen;
+
+// Puntuaciones aleatorias, sin leer el contenido de las imagenes
+@Component
+@ConditionalOnProperty(name = "prediccion.predictor", havingValue = "random", matchIfMissing = true)
+public class PredictorAleatorio implements Predictor {
+
+    @Override
+    public String getModelo() {
+        return "random";
+    }
+
+    @Override
+    public List<Puntuacion> predecir(List<Imagen> imagenes) {
+        List<Puntuacion> puntuaciones = new ArrayList<>();
+        for (int i = 0; i < imagenes.size(); i++) {
+            double score_0 = Math.random();
+            double score_1 = Math.random();
+            puntuaciones.add(new Puntuacion(score_0, score_1));
+        }
+        return puntuaciones;
+    }
+}
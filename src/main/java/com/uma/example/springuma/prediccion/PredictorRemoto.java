@@ -0,0 +1,61 @@
+package com.uma.example.springuma.prediccion;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenAPIPredictor;
+import com.uma.example.springuma.storage.ImageStore;
+
+// Prediccion con el servicio externo (prediccion.api.*)
+@Component
+@ConditionalOnProperty(name = "prediccion.predictor", havingValue = "remoto")
+public class PredictorRemoto implements Predictor {
+
+    @Autowired
+    private ImagenAPIPredictor imagenAPIPredictor;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Override
+    public String getModelo() {
+        return "remoto";
+    }
+
+    @Override
+    public List<Puntuacion> predecir(List<Imagen> imagenes) throws Exception {
+        List<byte[]> contenidos = new ArrayList<>();
+        for (Imagen imagen : imagenes) {
+            ByteArrayOutputStream contenido = new ByteArrayOutputStream();
+            imageStore.read(imagen, contenido);
+            contenidos.add(contenido.toByteArray());
+        }
+        List<Map<String, Double>> responses = contenidos.size() == 1
+                ? List.of(imagenAPIPredictor.query(contenidos.get(0)))
+                : imagenAPIPredictor.queryBatch(contenidos);
+        if (responses.size() != imagenes.size()) {
+            throw new Exception("El servicio de prediccion ha devuelto " + responses.size()
+                    + " resultados para " + imagenes.size() + " imagenes");
+        }
+        List<Puntuacion> puntuaciones = new ArrayList<>();
+        for (Map<String, Double> response : responses) {
+            puntuaciones.add(new Puntuacion(score(response, "LABEL_0"), score(response, "LABEL_1")));
+        }
+        return puntuaciones;
+    }
+
+    private static double score(Map<String, Double> response, String etiqueta) {
+        Double score = response.get(etiqueta);
+        if (score == null) {
+            throw new IllegalStateException("La respuesta del servicio de prediccion no incluye " + etiqueta + ": " + response);
+        }
+        return score;
+    }
+}
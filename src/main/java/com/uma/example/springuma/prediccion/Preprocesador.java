@@ -0,0 +1,155 @@
+package com.uma.example.springuma.prediccion;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.storage.ImageStore;
+import com.uma.example.springuma.utils.ImageUtils;
+
+import jakarta.annotation.PostConstruct;
+
+// Prepara una imagen como entrada de un modelo: la decodifica leyendo directamente del ImageStore,
+// la escala al tamaño de entrada y la normaliza a RGB en [0, 1] en un FloatBuffer directo.
+// Los tensores preparados se cachean por hash del contenido (prediccion.preprocesado.cache-mb);
+// los de imagenes sin hash usan buffers de un pool que se devuelven al cerrar el Tensor.
+@Component
+public class Preprocesador {
+
+    private static final int CAPACIDAD_POOL = Runtime.getRuntime().availableProcessors() * 2;
+
+    // Tamaño de entrada del modelo y orden de los canales: [n, 3, alto, ancho] (NCHW) o [n, alto, ancho, 3] (NHWC)
+    public record Forma(int alto, int ancho, boolean nchw) {
+
+        public int getTamano() {
+            return alto * ancho * 3;
+        }
+
+        public long[] dimensiones(int n) {
+            return nchw ? new long[] {n, 3, alto, ancho} : new long[] {n, alto, ancho, 3};
+        }
+    }
+
+    // Entrada ya preparada. Los datos no se deben modificar: si estan en cache los comparten
+    // todas las predicciones de ese contenido.
+    public static final class Tensor implements AutoCloseable {
+
+        private final FloatBuffer datos;
+
+        private final BlockingQueue<FloatBuffer> pool;
+
+        private Tensor(FloatBuffer datos, BlockingQueue<FloatBuffer> pool) {
+            this.datos = datos;
+            this.pool = pool;
+        }
+
+        public FloatBuffer getDatos() {
+            return datos;
+        }
+
+        @Override
+        public void close() {
+            if (pool != null) {
+                datos.clear();
+                pool.offer(datos);
+            }
+        }
+    }
+
+    @Autowired
+    private ImageStore imageStore;
+
+    // 0 desactiva la cache de tensores
+    @Value("${prediccion.preprocesado.cache-mb:64}")
+    private long cacheMb;
+
+    private final Map<Forma, BlockingQueue<FloatBuffer>> pools = new ConcurrentHashMap<>();
+
+    private Cache<String, FloatBuffer> tensores;
+
+    @PostConstruct
+    public void iniciar() {
+        tensores = Caffeine.newBuilder()
+                .maximumWeight(cacheMb * 1024 * 1024)
+                .weigher((String clave, FloatBuffer datos) -> datos.capacity() * Float.BYTES)
+                .build();
+    }
+
+    public Tensor preparar(Imagen imagen, Forma forma) throws IOException {
+        String clave = imagen.getContentHash() != null && cacheMb > 0 ? imagen.getContentHash() + ":" + forma : null;
+        if (clave != null) {
+            FloatBuffer cacheado = tensores.getIfPresent(clave);
+            if (cacheado != null) {
+                return new Tensor(cacheado.duplicate(), null);
+            }
+        }
+        int[] pixeles = decodificar(imagen, forma);
+        if (clave != null) {
+            FloatBuffer datos = normalizar(pixeles, forma, reservar(forma));
+            tensores.put(clave, datos);
+            return new Tensor(datos.duplicate(), null);
+        }
+        BlockingQueue<FloatBuffer> pool = pools.computeIfAbsent(forma, f -> new ArrayBlockingQueue<>(CAPACIDAD_POOL));
+        FloatBuffer datos = pool.poll();
+        return new Tensor(normalizar(pixeles, forma, datos != null ? datos : reservar(forma)), pool);
+    }
+
+    // Pixeles RGB de la imagen ya escalada al tamaño de entrada
+    private int[] decodificar(Imagen imagen, Forma forma) throws IOException {
+        BufferedImage[] original = new BufferedImage[1];
+        boolean encontrada = imageStore.leer(imagen, contenido -> original[0] = ImageUtils.readImage(contenido, forma.ancho(), forma.alto()));
+        if (!encontrada || original[0] == null) {
+            throw new IOException("No se puede decodificar la imagen " + imagen.getId());
+        }
+        BufferedImage escalada = new BufferedImage(forma.ancho(), forma.alto(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = escalada.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(original[0], 0, 0, forma.ancho(), forma.alto(), null);
+        g.dispose();
+        return ((DataBufferInt) escalada.getRaster().getDataBuffer()).getData();
+    }
+
+    private FloatBuffer normalizar(int[] pixeles, Forma forma, FloatBuffer datos) {
+        int plano = forma.alto() * forma.ancho();
+        for (int i = 0; i < pixeles.length; i++) {
+            float r = ((pixeles[i] >> 16) & 0xff) / 255f;
+            float v = ((pixeles[i] >> 8) & 0xff) / 255f;
+            float b = (pixeles[i] & 0xff) / 255f;
+            if (forma.nchw()) {
+                datos.put(i, r);
+                datos.put(plano + i, v);
+                datos.put(2 * plano + i, b);
+            } else {
+                datos.put(3 * i, r);
+                datos.put(3 * i + 1, v);
+                datos.put(3 * i + 2, b);
+            }
+        }
+        return datos;
+    }
+
+    // Memoria fuera del heap y en el orden nativo, para que el motor de inferencia la use sin copiarla
+    private FloatBuffer reservar(Forma forma) {
+        return ByteBuffer.allocateDirect(forma.getTamano() * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    public void vaciar() {
+        tensores.invalidateAll();
+    }
+}
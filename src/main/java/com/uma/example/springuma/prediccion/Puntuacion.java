@@ -0,0 +1,5 @@
+package com.uma.example.springuma.prediccion;
+
+// Puntuaciones del modelo para una imagen: score_0 (no cancer) y score_1 (cancer)
+public record Puntuacion(double score_0, double score_1) {
+}
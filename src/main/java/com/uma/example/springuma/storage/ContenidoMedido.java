@@ -0,0 +1,64 @@
+package com.uma.example.springuma.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Stream que calcula el SHA-256 y cuenta los bytes a medida que se lee
+class ContenidoMedido extends FilterInputStream {
+
+    private final MessageDigest digest;
+    private long bytesLeidos;
+
+    ContenidoMedido(InputStream in) {
+        super(in);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            digest.update((byte) b);
+            bytesLeidos++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            digest.update(b, off, n);
+            bytesLeidos += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Saltar bytes falsearia el hash
+        return 0;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    // Solo es valido una vez leido todo el stream
+    String getHash() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    long getBytesLeidos() {
+        return bytesLeidos;
+    }
+}
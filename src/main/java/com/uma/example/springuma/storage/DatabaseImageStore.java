@@ -0,0 +1,76 @@
+package com.uma.example.springuma.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.MetricasImagen;
+import com.uma.example.springuma.model.RepositoryImagenContenido;
+import com.uma.example.springuma.model.RepositoryImagenContenido.LectorContenido;
+import com.uma.example.springuma.utils.FlujoMedido;
+import com.uma.example.springuma.utils.ImageCodec;
+
+// Guarda el contenido codificado en la columna file_content de la propia imagen
+@Component
+@ConditionalOnProperty(name = "imagen.store.type", havingValue = "database", matchIfMissing = true)
+public class DatabaseImageStore implements ImageStore {
+
+    private static final String ALMACEN = "database";
+
+    @Autowired
+    private RepositoryImagenContenido repositoryImagenContenido;
+
+    @Autowired
+    private MetricasImagen metricasImagen;
+
+    @Override
+    public void save(Imagen imagen, InputStream contenido, ImageCodec codec) throws IOException {
+        ContenidoMedido medido = new ContenidoMedido(contenido);
+        FlujoMedido codificado = new FlujoMedido(codec.encode(medido));
+        long inicio = System.nanoTime();
+        boolean ok = false;
+        try (codificado) {
+            repositoryImagenContenido.escribirContenido(imagen.getId(), codificado);
+            ok = true;
+        } finally {
+            metricasImagen.escritura(ALMACEN, codec, medido.getBytesLeidos(), codificado, System.nanoTime() - inicio, ok);
+        }
+        imagen.setContentHash(medido.getHash());
+        imagen.setContentSize(medido.getBytesLeidos());
+        imagen.setCodec(codec.getTag());
+    }
+
+    // El contenido viaja en el propio INSERT de la imagen, dentro del batch JDBC
+    @Override
+    public void saveEncoded(Imagen imagen, byte[] codificado, ImageCodec codec) {
+        imagen.setFile_content(codificado);
+        imagen.setCodec(codec.getTag());
+    }
+
+    @Override
+    public boolean read(Imagen imagen, OutputStream out) throws IOException {
+        return leer(imagen, contenido -> contenido.transferTo(out));
+    }
+
+    @Override
+    public boolean leer(Imagen imagen, LectorContenido lector) throws IOException {
+        ImageCodec codec = ImageCodec.fromTag(imagen.getCodec());
+        return repositoryImagenContenido.leerContenido(imagen.getId(),
+                almacenado -> metricasImagen.leer(ALMACEN, codec, almacenado, lector));
+    }
+
+    @Override
+    public boolean tieneContenido(Imagen imagen) {
+        return repositoryImagenContenido.tieneContenido(imagen.getId());
+    }
+
+    @Override
+    public void delete(Imagen imagen) {
+        // El contenido se borra con la propia fila
+    }
+}
@@ -0,0 +1,347 @@
+package com.uma.example.springuma.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.MetricasImagen;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryImagenContenido;
+import com.uma.example.springuma.model.RepositoryImagenContenido.LectorContenido;
+import com.uma.example.springuma.utils.FlujoMedido;
+import com.uma.example.springuma.utils.ImageCodec;
+
+// Guarda cada imagen en disco bajo su SHA-256, repartida en subdirectorios (ab/cd/abcd...).
+// Dos subidas con el mismo contenido comparten fichero, que se codifica con el codec de la
+// primera de ellas.
+@Component
+@ConditionalOnProperty(name = "imagen.store.type", havingValue = "filesystem")
+public class FileSystemImageStore implements ImageStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemImageStore.class);
+
+    private static final String ALMACEN = "filesystem";
+
+    private static final long ESPERA_CERROJO_SEGUNDOS = 30;
+
+    private final ReentrantLock[] cerrojos = new ReentrantLock[256];
+
+    // Clave de codecsEnTransaccion entre los recursos de la transaccion
+    private final Object codecsClave = new Object();
+
+    private final Path raiz;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    // Para las imagenes antiguas que aun tienen el contenido en file_content
+    @Autowired
+    private RepositoryImagenContenido repositoryImagenContenido;
+
+    @Autowired
+    private MetricasImagen metricasImagen;
+
+    private final TransactionTemplate nuevaTransaccion;
+
+    public FileSystemImageStore(@Value("${imagen.store.path:./imagenes}") String raiz,
+            PlatformTransactionManager transactionManager) throws IOException {
+        this.raiz = Paths.get(raiz).toAbsolutePath();
+        Files.createDirectories(this.raiz.resolve("tmp"));
+        nuevaTransaccion = new TransactionTemplate(transactionManager);
+        nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < cerrojos.length; i++) {
+            cerrojos[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void save(Imagen imagen, InputStream contenido, ImageCodec codec) throws IOException {
+        Path temporal = Files.createTempFile(raiz.resolve("tmp"), "subida", ".part");
+        try {
+            ContenidoMedido medido = new ContenidoMedido(contenido);
+            FlujoMedido codificado = new FlujoMedido(codec.encode(medido));
+            long inicio = System.nanoTime();
+            boolean ok = false;
+            try (codificado) {
+                Files.copy(codificado, temporal, StandardCopyOption.REPLACE_EXISTING);
+                ok = true;
+            } finally {
+                metricasImagen.escritura(ALMACEN, codec, medido.getBytesLeidos(), codificado, System.nanoTime() - inicio, ok);
+            }
+            String hash = medido.getHash();
+            imagen.setContentHash(hash);
+            imagen.setContentSize(medido.getBytesLeidos());
+            imagen.setCodec(publicar(hash, codec, () -> temporal).getTag());
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    @Override
+    public void saveEncoded(Imagen imagen, byte[] codificado, ImageCodec codec) throws IOException {
+        Path[] temporal = new Path[1];
+        try {
+            imagen.setCodec(publicar(imagen.getContentHash(), codec, () -> {
+                temporal[0] = Files.createTempFile(raiz.resolve("tmp"), "importacion", ".part");
+                return Files.write(temporal[0], codificado);
+            }).getTag());
+        } finally {
+            if (temporal[0] != null) {
+                Files.deleteIfExists(temporal[0]);
+            }
+        }
+    }
+
+    // Fichero temporal con el contenido codificado; solo se pide si el hash aun no tiene fichero
+    private interface Temporal {
+        Path crear() throws IOException;
+    }
+
+    // Deja el contenido como fichero del hash, o reutiliza el que ya hay, y devuelve el codec con el
+    // que queda guardado. Todo con el cerrojo del hash, que no se suelta hasta que termina la
+    // transaccion que guarda la fila (la subida o el bloque de una importacion): un borrado del mismo
+    // contenido espera a que esa fila se confirme y la cuenta, en lugar de borrar el fichero debajo
+    // de ella. Si la transaccion se deshace y el fichero era nuevo, se borra si nadie mas lo usa
+    private ImageCodec publicar(String hash, ImageCodec codec, Temporal temporal) throws IOException {
+        ReentrantLock cerrojo = bloquear(hash);
+        boolean publicado = false;
+        try {
+            Path destino = resolver(hash);
+            ImageCodec guardado;
+            if (Files.exists(destino)) {
+                // Contenido ya almacenado por otra imagen: se reutiliza con su codec
+                guardado = codecDe(hash, codec);
+            } else {
+                Files.createDirectories(destino.getParent());
+                try {
+                    Files.move(temporal.crear(), destino, StandardCopyOption.ATOMIC_MOVE);
+                    publicado = true;
+                    guardado = codec;
+                } catch (FileAlreadyExistsException e) {
+                    // Otra instancia con el mismo directorio ha llegado antes
+                    guardado = codecDe(hash, codec);
+                }
+            }
+            Map<String, ImageCodec> enTransaccion = codecsEnTransaccion();
+            if (enTransaccion != null) {
+                enTransaccion.put(hash, guardado);
+            }
+            return guardado;
+        } finally {
+            soltarAlTerminar(cerrojo, hash, publicado);
+        }
+    }
+
+    private void soltarAlTerminar(ReentrantLock cerrojo, String hash, boolean publicado) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cerrojo.unlock();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                try {
+                    if (publicado && estado != STATUS_COMMITTED) {
+                        borrarSinUsos(hash);
+                    }
+                } finally {
+                    cerrojo.unlock();
+                }
+            }
+        });
+    }
+
+    // Los hashes se reparten en 256 cerrojos por sus dos primeras cifras. Una importacion coge los de
+    // todo un bloque; si dos transacciones los cogen en distinto orden, la espera acotada convierte el
+    // interbloqueo en un fallo de esa imagen
+    private ReentrantLock bloquear(String hash) throws IOException {
+        ReentrantLock cerrojo = cerrojos[Integer.parseInt(hash.substring(0, 2), 16)];
+        try {
+            if (!cerrojo.tryLock(ESPERA_CERROJO_SEGUNDOS, TimeUnit.SECONDS)) {
+                throw new IOException("El contenido " + hash + " esta bloqueado por otra transaccion");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido esperando el contenido " + hash);
+        }
+        return cerrojo;
+    }
+
+    // Con el cerrojo del hash: borra el fichero si ninguna imagen confirmada lo usa. Se llama al
+    // terminar una transaccion, asi que la cuenta necesita una nueva
+    private void borrarSinUsos(String hash) {
+        try {
+            Long usos = nuevaTransaccion.execute(t -> repositoryImagen.countByContentHash(hash));
+            if (usos == 0) {
+                Files.deleteIfExists(resolver(hash));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se ha podido borrar el fichero {}", hash, e);
+        }
+    }
+
+    @Override
+    public boolean read(Imagen imagen, OutputStream out) throws IOException {
+        if (sinCodificarEnDisco(imagen)) {
+            transferir(resolver(imagen.getContentHash()), 0, Long.MAX_VALUE, out);
+            return true;
+        }
+        return leer(imagen, contenido -> contenido.transferTo(out));
+    }
+
+    // El contenido sin codificar se sirve directamente desde su posicion en el fichero
+    @Override
+    public boolean read(Imagen imagen, long inicio, long longitud, OutputStream out) throws IOException {
+        if (sinCodificarEnDisco(imagen)) {
+            transferir(resolver(imagen.getContentHash()), inicio, longitud, out);
+            return true;
+        }
+        return ImageStore.super.read(imagen, inicio, longitud, out);
+    }
+
+    private void transferir(Path fichero, long inicio, long longitud, OutputStream out) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            WritableByteChannel destino = Channels.newChannel(out);
+            long posicion = inicio;
+            long fin = longitud < canal.size() - inicio ? inicio + longitud : canal.size();
+            while (posicion < fin) {
+                posicion += canal.transferTo(posicion, fin - posicion, destino);
+            }
+        }
+    }
+
+    @Override
+    public boolean leer(Imagen imagen, LectorContenido lector) throws IOException {
+        ImageCodec codec = ImageCodec.fromTag(imagen.getCodec());
+        if (!enDisco(imagen)) {
+            return repositoryImagenContenido.leerContenido(imagen.getId(),
+                    almacenado -> metricasImagen.leer("database", codec, almacenado, lector));
+        }
+        metricasImagen.leer(ALMACEN, codec, Files.newInputStream(resolver(imagen.getContentHash())), lector);
+        return true;
+    }
+
+    @Override
+    public boolean tieneContenido(Imagen imagen) {
+        return enDisco(imagen) || repositoryImagenContenido.tieneContenido(imagen.getId());
+    }
+
+    @Override
+    public Optional<Path> fichero(Imagen imagen) {
+        return sinCodificarEnDisco(imagen) ? Optional.of(resolver(imagen.getContentHash())) : Optional.empty();
+    }
+
+    // Las imagenes anteriores al almacen en disco, y las guardadas con imagen.store.type=database aunque
+    // ya tengan hash, siguen en file_content hasta que ImageStoreMigration las pasa a disco
+    private boolean enDisco(Imagen imagen) {
+        return imagen.getContentHash() != null && Files.exists(resolver(imagen.getContentHash()));
+    }
+
+    private boolean sinCodificarEnDisco(Imagen imagen) {
+        return ImageCodec.fromTag(imagen.getCodec()) == ImageCodec.IDENTITY && enDisco(imagen);
+    }
+
+    // El fichero se borra cuando se confirma el borrado de la fila, con el cerrojo del hash y solo si
+    // ninguna otra imagen confirmada lo usa
+    @Override
+    public void delete(Imagen imagen) throws IOException {
+        String hash = imagen.getContentHash();
+        if (hash == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            borrarConCerrojo(hash);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                borrarConCerrojo(hash);
+            }
+        });
+    }
+
+    private void borrarConCerrojo(String hash) {
+        ReentrantLock cerrojo;
+        try {
+            cerrojo = bloquear(hash);
+        } catch (IOException e) {
+            log.warn("No se ha podido borrar el fichero {}", hash, e);
+            return;
+        }
+        try {
+            borrarSinUsos(hash);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Codec con el que se guardo el fichero de un hash: el que ya ha usado la transaccion en curso,
+    // o si no el de las imagenes que ya lo usan. Las que tienen el contenido en
+    // file_content pueden haberlo codificado con otro codec
+    private ImageCodec codecDe(String hash, ImageCodec porDefecto) {
+        Map<String, ImageCodec> enTransaccion = codecsEnTransaccion();
+        if (enTransaccion != null && enTransaccion.containsKey(hash)) {
+            return enTransaccion.get(hash);
+        }
+        return repositoryImagen.findCodecsEnDiscoByContentHash(hash).stream()
+                .findFirst()
+                .map(ImageCodec::fromTag)
+                .orElse(porDefecto);
+    }
+
+    // Codec de cada fichero que ha publicado o reutilizado la transaccion en curso. Sus filas aun no
+    // se ven en la base de datos (una importacion las guarda al final del bloque), asi que otra entrada
+    // del mismo contenido en la misma transaccion no encontraria en ellas el codec del fichero. Null
+    // fuera de una transaccion
+    @SuppressWarnings("unchecked")
+    private Map<String, ImageCodec> codecsEnTransaccion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<String, ImageCodec> codecs = (Map<String, ImageCodec>) TransactionSynchronizationManager.getResource(codecsClave);
+        if (codecs == null) {
+            codecs = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(codecsClave, codecs);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(codecsClave);
+                }
+            });
+        }
+        return codecs;
+    }
+
+    Path resolver(String hash) {
+        return raiz.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+}
@@ -0,0 +1,55 @@
+package com.uma.example.springuma.storage;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import com.uma.example.springuma.utils.ImageCodec;
+
+// Elige con que codec se guarda cada imagen segun su tipo de contenido.
+// PNG y JPEG ya van comprimidos, asi que por defecto se guardan tal cual.
+@Component
+@ConfigurationProperties(prefix = "imagen.codec")
+public class ImageCodecPolicy {
+
+    // Codec para los tipos no configurados
+    private String defecto = ImageCodec.DEFLATE_FAST.getTag();
+
+    // Codec por tipo de contenido, p. ej. imagen.codec.por-tipo[image/png]=identity
+    private Map<String, String> porTipo = new HashMap<>(Map.of(
+            MediaType.IMAGE_PNG_VALUE, ImageCodec.IDENTITY.getTag(),
+            MediaType.IMAGE_JPEG_VALUE, ImageCodec.IDENTITY.getTag()));
+
+    // Si el cliente no indica el tipo (o manda application/octet-stream) se deduce de la extension
+    public ImageCodec codecPara(String contentType, String nombreFichero) {
+        String tipo = contentType;
+        if (tipo == null || MediaType.APPLICATION_OCTET_STREAM_VALUE.equals(tipo)) {
+            tipo = MediaTypeFactory.getMediaType(nombreFichero)
+                    .map(MediaType::toString)
+                    .orElse(null);
+        }
+        String tag = tipo != null ? porTipo.get(tipo.toLowerCase(Locale.ROOT)) : null;
+        return ImageCodec.fromTag(tag != null ? tag : defecto);
+    }
+
+    public String getDefecto() {
+        return defecto;
+    }
+
+    public void setDefecto(String defecto) {
+        this.defecto = defecto;
+    }
+
+    public Map<String, String> getPorTipo() {
+        return porTipo;
+    }
+
+    public void setPorTipo(Map<String, String> porTipo) {
+        this.porTipo = porTipo;
+    }
+}
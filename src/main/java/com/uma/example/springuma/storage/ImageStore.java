@@ -0,0 +1,53 @@
+package com.uma.example.springuma.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.RepositoryImagenContenido.LectorContenido;
+import com.uma.example.springuma.utils.ImageCodec;
+import com.uma.example.springuma.utils.ImageUtils;
+
+// Almacen del contenido binario de las imagenes. La fila de Imagen solo guarda el hash,
+// el tamaño y el codec; donde y como se guardan los bytes depende de la implementacion
+// configurada en imagen.store.type
+public interface ImageStore {
+
+    // Guarda el contenido sin comprimir codificado con el codec indicado y rellena contentHash,
+    // contentSize y codec de la imagen. La imagen ya debe estar persistida (tener id).
+    void save(Imagen imagen, InputStream contenido, ImageCodec codec) throws IOException;
+
+    // Guarda contenido ya codificado con el codec indicado, para las importaciones que codifican
+    // fuera del almacen. La imagen aun no esta persistida; contentHash y contentSize ya vienen
+    // rellenos y aqui se rellena codec.
+    void saveEncoded(Imagen imagen, byte[] codificado, ImageCodec codec) throws IOException;
+
+    // Escribe la imagen sin comprimir en out. Devuelve false si la imagen no tiene contenido.
+    boolean read(Imagen imagen, OutputStream out) throws IOException;
+
+    // Escribe en out `longitud` bytes del contenido sin comprimir a partir de `inicio`. Por defecto
+    // se descarta lo anterior a `inicio` mientras se lee; las implementaciones que pueden saltar
+    // directamente a esa posicion lo sobrescriben.
+    default boolean read(Imagen imagen, long inicio, long longitud, OutputStream out) throws IOException {
+        return leer(imagen, contenido -> ImageUtils.copyRange(contenido, inicio, longitud, out));
+    }
+
+    // Pasa el contenido sin comprimir al lector como stream, sin copiarlo a memoria. El stream
+    // solo es valido dentro del lector. Devuelve false si la imagen no tiene contenido.
+    boolean leer(Imagen imagen, LectorContenido lector) throws IOException;
+
+    // Si la imagen tiene contenido que leer, para comprobarlo antes de empezar a enviarlo
+    boolean tieneContenido(Imagen imagen);
+
+    // Fichero que contiene la imagen sin comprimir, para que el modo reactivo lo envie con E/S
+    // asincrona en lugar de leerlo con un stream bloqueante. Vacio si el contenido no esta asi.
+    default Optional<Path> fichero(Imagen imagen) {
+        return Optional.empty();
+    }
+
+    // Se llama despues de borrar la fila de la imagen, para liberar su contenido
+    void delete(Imagen imagen) throws IOException;
+}
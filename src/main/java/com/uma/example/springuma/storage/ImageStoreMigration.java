@@ -0,0 +1,88 @@
+package com.uma.example.springuma.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryImagenContenido;
+import com.uma.example.springuma.utils.ImageCodec;
+
+// Pasa al almacen en disco el contenido de las imagenes que aun estan en file_content, tanto las
+// anteriores al ImageStore como las guardadas con imagen.store.type=database. Se activa con imagen.store.type=filesystem e imagen.store.migrate-on-startup=true.
+// Cada imagen se migra en su propia transaccion, asi que se puede interrumpir y relanzar.
+@Component
+@ConditionalOnExpression("'${imagen.store.type:database}' == 'filesystem' and ${imagen.store.migrate-on-startup:false}")
+public class ImageStoreMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageStoreMigration.class);
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageCodecPolicy imageCodecPolicy;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private RepositoryImagenContenido repositoryImagenContenido;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Long> pendientes = repositoryImagen.findIdsConFileContent();
+        log.info("Migrando {} imagenes al almacen en disco", pendientes.size());
+        int migradas = 0;
+        for (Long id : pendientes) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> migrar(id)))) {
+                    migradas++;
+                }
+            } catch (RuntimeException e) {
+                log.error("No se ha podido migrar la imagen {}", id, e);
+            }
+        }
+        log.info("Migradas {} de {} imagenes", migradas, pendientes.size());
+    }
+
+    private boolean migrar(long id) {
+        Imagen imagen = repositoryImagen.findById(id).orElse(null);
+        if (imagen == null) {
+            return false;
+        }
+        // Cada fila se decodifica con el codec con el que se guardo (deflate si es anterior a la columna)
+        ImageCodec codec = ImageCodec.fromTag(imagen.getCodec());
+        boolean[] guardada = new boolean[1];
+        try {
+            repositoryImagenContenido.leerContenido(id, almacenado -> {
+                try (InputStream contenido = codec.decode(almacenado)) {
+                    imageStore.save(imagen, contenido, imageCodecPolicy.codecPara(null, imagen.getNombre()));
+                    guardada[0] = true;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!guardada[0]) {
+            // Sin contenido que migrar
+            return false;
+        }
+        repositoryImagenContenido.borrarContenido(id);
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.uma.example.springuma.utils;
+
+// Sentencias SQL que ejecuta el hilo de una peticion y el tiempo que pasan en la base de datos. Lo
+// abre y lo cierra SentenciasSqlFilter y lo va sumando DataSourceMedido; fuera de una peticion (tareas
+// en segundo plano, cuerpos en streaming que se escriben desde otro hilo) no hay contador
+public class ContadorSql {
+
+    private static final ThreadLocal<ContadorSql> ACTUAL = new ThreadLocal<>();
+
+    private final String peticion;
+
+    private int sentencias;
+
+    private long nanos;
+
+    private ContadorSql(String peticion) {
+        this.peticion = peticion;
+    }
+
+    public static ContadorSql iniciar(String peticion) {
+        ContadorSql contador = new ContadorSql(peticion);
+        ACTUAL.set(contador);
+        return contador;
+    }
+
+    public static void terminar() {
+        ACTUAL.remove();
+    }
+
+    public static ContadorSql actual() {
+        return ACTUAL.get();
+    }
+
+    void sumar(long nanos) {
+        this.sentencias++;
+        this.nanos += nanos;
+    }
+
+    public String getPeticion() {
+        return peticion;
+    }
+
+    public int getSentencias() {
+        return sentencias;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,125 @@
+package com.uma.example.springuma.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// DataSource que deja como mucho maxConcurrentes conexiones en uso a la vez (bulkhead). Quien no
+// consigue una en esperaMs recibe SQLTransientConnectionException en lugar de quedarse en la cola
+// del pool. Los permisos se dan por orden de llegada con un Semaphore, que aparca los hilos
+// virtuales sin fijarlos a su hilo portador. El permiso es por hilo: las conexiones que un hilo abre
+// mientras ya tiene otra (una transaccion REQUIRES_NEW, un TransactionTemplate dentro de otra) no
+// piden otro, asi que un hilo nunca espera por un permiso que el mismo retiene. Esas conexiones
+// anidadas si salen del pool, por eso max-concurrentes deja margen por debajo de su tamaño (ver
+// HilosVirtualesConfig). El permiso se devuelve al cerrar la ultima conexion abierta por el hilo
+public class DataSourceAcotado extends DelegatingDataSource {
+
+    private final Semaphore permisos;
+
+    // Conexiones abiertas por cada hilo y aun sin cerrar
+    private final ThreadLocal<AtomicInteger> abiertas = ThreadLocal.withInitial(AtomicInteger::new);
+
+    private final int maxConcurrentes;
+
+    private final long esperaMs;
+
+    public DataSourceAcotado(DataSource dataSource, int maxConcurrentes, long esperaMs) {
+        super(dataSource);
+        this.permisos = new Semaphore(maxConcurrentes, true);
+        this.maxConcurrentes = maxConcurrentes;
+        this.esperaMs = esperaMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        AtomicInteger delHilo = adquirir();
+        try {
+            return liberarAlCerrar(obtainTargetDataSource().getConnection(), delHilo);
+        } catch (SQLException | RuntimeException e) {
+            liberar(delHilo);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        AtomicInteger delHilo = adquirir();
+        try {
+            return liberarAlCerrar(obtainTargetDataSource().getConnection(username, password), delHilo);
+        } catch (SQLException | RuntimeException e) {
+            liberar(delHilo);
+            throw e;
+        }
+    }
+
+    public int getEnUso() {
+        return maxConcurrentes - permisos.availablePermits();
+    }
+
+    public int getEnEspera() {
+        return permisos.getQueueLength();
+    }
+
+    // Devuelve el contador del hilo, que el cierre decrementa aunque ocurra en otro hilo
+    private AtomicInteger adquirir() throws SQLException {
+        AtomicInteger delHilo = abiertas.get();
+        if (delHilo.get() == 0) {
+            try {
+                if (!permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                    throw new SQLTransientConnectionException("Ninguna conexion libre tras " + esperaMs + " ms ("
+                            + maxConcurrentes + " en uso)");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrumpido esperando una conexion", e);
+            }
+        }
+        delHilo.incrementAndGet();
+        return delHilo;
+    }
+
+    private void liberar(AtomicInteger delHilo) {
+        if (delHilo.decrementAndGet() == 0) {
+            permisos.release();
+        }
+    }
+
+    // Cada conexion se descuenta una sola vez aunque se cierre varias
+    private Connection liberarAlCerrar(Connection conexion, AtomicInteger delHilo) {
+        AtomicBoolean cerrada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, metodo, argumentos) -> {
+                    switch (metodo.getName()) {
+                        case "close":
+                            try {
+                                conexion.close();
+                            } finally {
+                                if (cerrada.compareAndSet(false, true)) {
+                                    liberar(delHilo);
+                                }
+                            }
+                            return null;
+                        case "equals":
+                            return proxy == argumentos[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            try {
+                                return metodo.invoke(conexion, argumentos);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                    }
+                });
+    }
+}
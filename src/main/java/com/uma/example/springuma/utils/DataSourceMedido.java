@@ -0,0 +1,178 @@
+package com.uma.example.springuma.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// DataSource que mide cada sentencia que se ejecuta por sus conexiones, venga de Hibernate o de un
+// JdbcTemplate: la suma a la peticion en curso (ContadorSql), la registra en el timer sql.sentencias
+// por tipo y resultado y escribe en el log las que tardan umbralLentaMs o mas, con la peticion que
+// las lanzo. Un batch JDBC cuenta como una sentencia
+public class DataSourceMedido extends DelegatingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourceMedido.class);
+
+    private final ObjectProvider<MeterRegistry> registros;
+
+    private final long umbralLentaMs;
+
+    private volatile MeterRegistry registro;
+
+    public DataSourceMedido(DataSource dataSource, ObjectProvider<MeterRegistry> registros, long umbralLentaMs) {
+        super(dataSource);
+        this.registros = registros;
+        this.umbralLentaMs = umbralLentaMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return medir(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return medir(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection medir(Connection conexion) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, metodo, argumentos) -> {
+                    switch (metodo.getName()) {
+                        case "equals":
+                            return proxy == argumentos[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            Object resultado = invocar(conexion, metodo, argumentos);
+                            if (resultado instanceof Statement sentencia) {
+                                String sql = argumentos != null && argumentos.length > 0 && argumentos[0] instanceof String s ? s : null;
+                                return medir(sentencia, metodo.getReturnType(), sql);
+                            }
+                            return resultado;
+                    }
+                });
+    }
+
+    // Statement, PreparedStatement o CallableStatement, segun lo que devuelva el metodo de la conexion
+    private Statement medir(Statement sentencia, Class<?> tipo, String sqlPreparada) {
+        Class<?> interfaz = CallableStatement.class.isAssignableFrom(tipo) ? CallableStatement.class
+                : PreparedStatement.class.isAssignableFrom(tipo) ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { interfaz },
+                (proxy, metodo, argumentos) -> {
+                    switch (metodo.getName()) {
+                        case "equals":
+                            return proxy == argumentos[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            if (!metodo.getName().startsWith("execute")) {
+                                return invocar(sentencia, metodo, argumentos);
+                            }
+                            String sql = sqlPreparada != null ? sqlPreparada
+                                    : argumentos != null && argumentos.length > 0 && argumentos[0] instanceof String s ? s : null;
+                            long inicio = System.nanoTime();
+                            boolean ok = false;
+                            try {
+                                Object resultado = invocar(sentencia, metodo, argumentos);
+                                ok = true;
+                                return resultado;
+                            } finally {
+                                registrar(sql, System.nanoTime() - inicio, ok);
+                            }
+                    }
+                });
+    }
+
+    private void registrar(String sql, long nanos, boolean ok) {
+        ContadorSql contador = ContadorSql.actual();
+        if (contador != null) {
+            contador.sumar(nanos);
+        }
+        MeterRegistry registro = registro();
+        String tipo = tipo(sql);
+        if (registro != null) {
+            Timer.builder("sql.sentencias")
+                    .description("Sentencias SQL ejecutadas")
+                    .tag("tipo", tipo)
+                    .tag("resultado", ok ? "ok" : "error")
+                    .register(registro)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+        long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (ms >= umbralLentaMs) {
+            if (registro != null) {
+                Counter.builder("sql.sentencias.lentas")
+                        .description("Sentencias SQL por encima del umbral de metricas.sql.umbral-lenta-ms")
+                        .tag("tipo", tipo)
+                        .register(registro)
+                        .increment();
+            }
+            if (contador != null) {
+                log.warn("Sentencia lenta ({} ms) en {}: {}", ms, contador.getPeticion(), sql);
+            } else {
+                log.warn("Sentencia lenta ({} ms): {}", ms, sql);
+            }
+        }
+    }
+
+    // El registro se busca al ejecutar la primera sentencia, una vez creado el contexto
+    private MeterRegistry registro() {
+        MeterRegistry actual = registro;
+        if (actual == null) {
+            actual = registros.getIfAvailable();
+            registro = actual;
+        }
+        return actual;
+    }
+
+    private static String tipo(String sql) {
+        if (sql == null) {
+            return "otra";
+        }
+        String inicio = sql.stripLeading();
+        int fin = 0;
+        while (fin < inicio.length() && Character.isLetter(inicio.charAt(fin))) {
+            fin++;
+        }
+        String palabra = inicio.substring(0, fin).toLowerCase(Locale.ROOT);
+        switch (palabra) {
+            case "select":
+            case "insert":
+            case "update":
+            case "delete":
+            case "merge":
+            case "call":
+                return palabra;
+            case "with":
+                return "select";
+            default:
+                return "otra";
+        }
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] argumentos) throws Throwable {
+        try {
+            return metodo.invoke(destino, argumentos);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.uma.example.springuma.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Stream que cuenta los bytes que se leen de el y el tiempo que pasa dentro de read. Ese tiempo
+// incluye el de los streams de debajo: sobre un stream de codec es la codificacion mas la lectura
+// de su origen
+public class FlujoMedido extends FilterInputStream {
+
+    private long bytes;
+
+    private long nanos;
+
+    public FlujoMedido(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        long inicio = System.nanoTime();
+        try {
+            int b = super.read();
+            if (b != -1) {
+                bytes++;
+            }
+            return b;
+        } finally {
+            nanos += System.nanoTime() - inicio;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long inicio = System.nanoTime();
+        try {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                bytes += n;
+            }
+            return n;
+        } finally {
+            nanos += System.nanoTime() - inicio;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long inicio = System.nanoTime();
+        try {
+            return super.skip(n);
+        } finally {
+            nanos += System.nanoTime() - inicio;
+        }
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+}
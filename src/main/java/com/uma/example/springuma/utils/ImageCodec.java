@@ -0,0 +1,53 @@
+package com.uma.example.springuma.utils;
+
+import java.io.InputStream;
+import java.util.zip.Deflater;
+
+// Codificacion con la que se guarda el contenido de una imagen. La etiqueta se persiste en
+// Imagen.codec para poder decodificar cada fila con el codec con el que se escribio.
+public enum ImageCodec {
+
+    // Sin comprimir: para formatos que ya vienen comprimidos (PNG, JPEG)
+    IDENTITY("identity", -1),
+    DEFLATE_FAST("deflate-fast", Deflater.BEST_SPEED),
+    // Codec de las filas antiguas
+    DEFLATE("deflate", Deflater.BEST_COMPRESSION);
+
+    private final String tag;
+    private final int nivel;
+
+    ImageCodec(String tag, int nivel) {
+        this.tag = tag;
+        this.nivel = nivel;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    // Nivel de Deflater con el que comprime el codec (-1 en IDENTITY, que no comprime)
+    public int getNivel() {
+        return nivel;
+    }
+
+    public InputStream encode(InputStream contenido) {
+        return this == IDENTITY ? contenido : ImageUtils.compressImage(contenido, nivel);
+    }
+
+    public InputStream decode(InputStream almacenado) {
+        return this == IDENTITY ? almacenado : ImageUtils.decompressImage(almacenado);
+    }
+
+    // Las filas sin codec son anteriores a esta columna y estan en deflate
+    public static ImageCodec fromTag(String tag) {
+        if (tag == null) {
+            return DEFLATE;
+        }
+        for (ImageCodec codec : values()) {
+            if (codec.tag.equals(tag)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Codec desconocido: " + tag);
+    }
+}
@@ -1,47 +1,163 @@
 package com.uma.example.springuma.utils;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 
 public class ImageUtils {
 
 
     public static byte[] compressImage(byte[] data) {
-        Deflater deflater = new Deflater();
-        deflater.setLevel(Deflater.BEST_COMPRESSION);
-        deflater.setInput(data);
-        deflater.finish();
+        return compressImage(data, Deflater.BEST_COMPRESSION);
+    }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-        byte[] tmp = new byte[4*1024];
-        while (!deflater.finished()) {
-            int size = deflater.deflate(tmp);
-            outputStream.write(tmp, 0, size);
-        }
+    public static byte[] compressImage(byte[] data, int nivel) {
+        Deflater deflater = ZlibPool.borrowDeflater(nivel);
         try {
-            outputStream.close();
-        } catch (Exception ignored) {
+            deflater.setInput(data);
+            deflater.finish();
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
+            byte[] tmp = new byte[4*1024];
+            while (!deflater.finished()) {
+                int size = deflater.deflate(tmp);
+                outputStream.write(tmp, 0, size);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            ZlibPool.release(deflater);
         }
-        return outputStream.toByteArray();
     }
 
+    // Devuelve un stream que va comprimiendo la entrada a medida que se lee, con un buffer fijo
+    public static InputStream compressImage(InputStream in) {
+        return compressImage(in, Deflater.BEST_COMPRESSION);
+    }
 
+    public static InputStream compressImage(InputStream in, int nivel) {
+        Deflater deflater = ZlibPool.borrowDeflater(nivel);
+        return new DeflaterInputStream(in, deflater, 4*1024) {
+            private boolean cerrado;
 
+            @Override
+            public void close() throws IOException {
+                if (cerrado) {
+                    return;
+                }
+                cerrado = true;
+                try {
+                    super.close();
+                } finally {
+                    ZlibPool.release(deflater);
+                }
+            }
+        };
+    }
+
+    // Lanza UncheckedIOException si los datos no son deflate validos o estan truncados, como haria
+    // InflaterInputStream, en lugar de devolver lo descomprimido hasta el error como si fuera la imagen
     public static byte[] decompressImage(byte[] data) {
-        Inflater inflater = new Inflater();
+        Inflater inflater = ZlibPool.borrowInflater();
         inflater.setInput(data);
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
         byte[] tmp = new byte[4*1024];
         try {
             while (!inflater.finished()) {
                 int count = inflater.inflate(tmp);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    // Datos truncados: sin esta comprobacion el bucle no terminaria
+                    throw new UncheckedIOException(new EOFException("Fin inesperado de los datos comprimidos"));
+                }
                 outputStream.write(tmp, 0, count);
             }
-            outputStream.close();
-        } catch (Exception ignored) {
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new ZipException(e.getMessage()));
+        } finally {
+            ZlibPool.release(inflater);
         }
         return outputStream.toByteArray();
     }
 
+    // Devuelve un stream que va descomprimiendo la entrada a medida que se lee
+    public static InputStream decompressImage(InputStream in) {
+        Inflater inflater = ZlibPool.borrowInflater();
+        return new InflaterInputStream(in, inflater, 4*1024) {
+            private boolean cerrado;
+
+            @Override
+            public void close() throws IOException {
+                if (cerrado) {
+                    return;
+                }
+                cerrado = true;
+                try {
+                    super.close();
+                } finally {
+                    ZlibPool.release(inflater);
+                }
+            }
+        };
+    }
+
+    // Descomprime de un stream a otro usando un buffer fijo, sin cargar la imagen entera en memoria
+    public static void decompressImage(InputStream in, OutputStream out) throws IOException {
+        try (InputStream inflaterStream = decompressImage(in)) {
+            inflaterStream.transferTo(out);
+        }
+    }
+
+    // Copia `longitud` bytes de la entrada a partir de `inicio`, sin cargarla entera en memoria
+    public static void copyRange(InputStream in, long inicio, long longitud, OutputStream out) throws IOException {
+        in.skipNBytes(inicio);
+        byte[] buffer = new byte[8 * 1024];
+        long restante = longitud;
+        while (restante > 0) {
+            int leidos = in.read(buffer, 0, (int) Math.min(buffer.length, restante));
+            if (leidos < 0) {
+                break;
+            }
+            out.write(buffer, 0, leidos);
+            restante -= leidos;
+        }
+    }
+
+    // Decodifica una imagen (PNG, JPEG...) que se va a mostrar o procesar a ancho x alto. Las imagenes
+    // mucho mayores se decodifican saltando pixeles, sin llegar a tener la imagen completa en memoria.
+    // Devuelve null si ImageIO no reconoce el formato.
+    public static BufferedImage readImage(InputStream contenido, int ancho, int alto) throws IOException {
+        // Cache en memoria en lugar del fichero temporal que usa ImageIO por defecto
+        try (ImageInputStream entrada = new MemoryCacheImageInputStream(contenido)) {
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int paso = Math.max(1, Math.min(lector.getWidth(0) / ancho, lector.getHeight(0) / alto));
+                ImageReadParam parametros = lector.getDefaultReadParam();
+                parametros.setSourceSubsampling(paso, paso, 0, 0);
+                return lector.read(0, parametros);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package com.uma.example.springuma.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Pool acotado de Deflater/Inflater. Cada instancia reserva memoria nativa de zlib que solo se
+// libera con end(), asi que se reutilizan (reset) en lugar de crear una por llamada, y las que
+// no caben en el pool se cierran al devolverlas.
+public final class ZlibPool {
+
+    private static final int CAPACIDAD = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(CAPACIDAD);
+    private static final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(CAPACIDAD);
+
+    private ZlibPool() {
+    }
+
+    public static Deflater borrowDeflater(int nivel) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            return new Deflater(nivel);
+        }
+        deflater.setLevel(nivel);
+        return deflater;
+    }
+
+    public static void release(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    public static Inflater borrowInflater() {
+        Inflater inflater = inflaters.poll();
+        return inflater != null ? inflater : new Inflater();
+    }
+
+    public static void release(Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+-- Esquema de la aplicacion original, el mismo que tiene database.mv.db (lo generaba Hibernate con
+-- ddl-auto=update). Las bases de datos que ya existian se marcan como version 1
+-- (spring.flyway.baseline-on-migrate) y no lo ejecutan: todo lo que se añade despues va en V2 y
+-- siguientes para que lo reciban tambien ellas.
+
+create sequence imagen_seq start with 1 increment by 50;
+create sequence informe_seq start with 1 increment by 50;
+create sequence medico_seq start with 1 increment by 50;
+create sequence paciente_seq start with 1 increment by 50;
+
+create table medico (
+    id bigint not null,
+    dni varchar(255) unique,
+    especialidad varchar(255),
+    nombre varchar(255),
+    primary key (id)
+);
+
+create table paciente (
+    id bigint not null,
+    cita varchar(255),
+    dni varchar(255) unique,
+    edad integer,
+    nombre varchar(255),
+    medico_id bigint,
+    primary key (id)
+);
+
+create table imagen (
+    id bigint not null,
+    fecha timestamp(6),
+    file_content blob,
+    nombre varchar(255),
+    paciente_id bigint,
+    primary key (id)
+);
+
+create table informe (
+    id bigint not null,
+    contenido varchar,
+    prediccion varchar(255),
+    imagen_id bigint,
+    primary key (id)
+);
+
+alter table paciente add constraint fk_paciente_medico foreign key (medico_id) references medico on delete cascade;
+alter table imagen add constraint fk_imagen_paciente foreign key (paciente_id) references paciente on delete cascade;
+alter table informe add constraint fk_informe_imagen foreign key (imagen_id) references imagen on delete cascade;
@@ -0,0 +1,47 @@
+-- Columnas y tablas que se añadieron sobre el esquema original (V1)
+
+-- Hash, tamaño y codec del contenido de cada imagen (ver ImageStore)
+alter table imagen add column content_hash varchar(64);
+alter table imagen add column content_size bigint;
+alter table imagen add column codec varchar(16);
+
+-- Miniaturas cacheadas (ver MiniaturaService)
+create sequence miniatura_seq start with 1 increment by 50;
+
+create table miniatura (
+    tamano integer,
+    id bigint not null,
+    imagen_id bigint,
+    etag varchar(80),
+    contenido blob,
+    primary key (id),
+    unique (imagen_id, tamano)
+);
+
+alter table miniatura add constraint fk_miniatura_imagen foreign key (imagen_id) references imagen on delete cascade;
+
+-- Predicciones guardadas por hash del contenido y version del modelo (ver PrediccionCache)
+create table prediccion_guardada (
+    score_0 float(53),
+    score_1 float(53),
+    fecha timestamp(6),
+    content_hash varchar(64),
+    modelo varchar(64),
+    clave varchar(128) not null,
+    primary key (clave)
+);
+
+-- Predicciones en segundo plano (ver PrediccionJobService)
+create sequence prediccion_job_seq start with 1 increment by 50;
+
+create table prediccion_job (
+    fecha_creacion timestamp(6),
+    fecha_fin timestamp(6),
+    id bigint not null,
+    imagen_id bigint,
+    informe_id bigint,
+    estado varchar(16) check (estado in ('PENDIENTE','EN_CURSO','COMPLETADA','ERROR')),
+    error varchar(255),
+    resultado varchar(255),
+    primary key (id)
+);
@@ -0,0 +1,11 @@
+-- Indices de las claves ajenas por las que se buscan los listados. Incluyen el id para que
+-- las paginas por clave (medico_id = ? AND id > ? ORDER BY id) salgan del indice sin ordenar.
+create index if not exists idx_paciente_medico on paciente (medico_id, id);
+create index if not exists idx_imagen_paciente on imagen (paciente_id, id);
+create index if not exists idx_informe_imagen on informe (imagen_id, id);
+
+-- Deduplicacion de contenido y cache de predicciones por hash
+create index if not exists idx_imagen_content_hash on imagen (content_hash);
+
+-- Trabajos pendientes que se recuperan al arrancar
+create index if not exists idx_prediccion_job_estado on prediccion_job (estado, id);
@@ -0,0 +1,16 @@
+-- Importaciones masivas de imagenes (ver ImportacionService)
+create sequence importacion_seq start with 1 increment by 50;
+
+create table importacion (
+    id bigint not null,
+    origen varchar(512),
+    estado varchar(16) check (estado in ('PENDIENTE','EN_CURSO','COMPLETADA','ERROR')),
+    total integer not null,
+    procesadas integer not null,
+    importadas integer not null,
+    fallidas integer not null,
+    errores TEXT,
+    fecha_creacion timestamp(6),
+    fecha_fin timestamp(6),
+    primary key (id)
+);
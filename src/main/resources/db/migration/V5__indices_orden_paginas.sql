@@ -0,0 +1,10 @@
+-- Indices de los campos por los que se pueden ordenar las paginas por clave. Acaban en id, el
+-- desempate del orden, para que (campo, id) > (?, ?) ORDER BY campo, id salga del indice sin ordenar.
+-- Los listados de un medico o de una imagen llevan delante la clave ajena por la que se filtran.
+create index if not exists idx_medico_nombre on medico (nombre, id);
+create index if not exists idx_paciente_nombre on paciente (nombre, id);
+create index if not exists idx_paciente_medico_nombre on paciente (medico_id, nombre, id);
+create index if not exists idx_paciente_medico_cita on paciente (medico_id, cita, id);
+create index if not exists idx_imagen_fecha on imagen (fecha, id);
+create index if not exists idx_imagen_paciente_fecha on imagen (paciente_id, fecha, id);
+create index if not exists idx_informe_imagen_prediccion on informe (imagen_id, prediccion, id);
@@ -0,0 +1,5 @@
+-- El error de una prediccion puede ser un mensaje largo (una traza del predictor remoto); con
+-- varchar(255) el guardado final fallaba y el trabajo se quedaba EN_CURSO. PrediccionJob recorta
+-- ademas el texto a esta longitud.
+alter table prediccion_job alter column error varchar(4000);
+alter table prediccion_job alter column resultado varchar(4000);
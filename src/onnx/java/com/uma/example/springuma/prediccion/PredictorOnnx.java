@@ -0,0 +1,132 @@
+package com.uma.example.springuma.prediccion;
+
+import java.nio.FloatBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.uma.example.springuma.model.Imagen;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Inferencia en el propio proceso con ONNX Runtime a partir de un modelo local (prediccion.onnx.modelo).
+// El modelo se carga al arrancar y las imagenes se evaluan en paralelo en un pool fijo de hilos.
+@Component
+@ConditionalOnProperty(name = "prediccion.predictor", havingValue = "onnx")
+public class PredictorOnnx implements Predictor {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictorOnnx.class);
+
+    @Autowired
+    private Preprocesador preprocesador;
+
+    @Value("${prediccion.onnx.modelo}")
+    private String rutaModelo;
+
+    // 0 = un hilo por core
+    @Value("${prediccion.onnx.hilos:0}")
+    private int hilos;
+
+    private OrtEnvironment entorno;
+
+    private OrtSession sesion;
+
+    private String entrada;
+
+    // Entrada [n, alto, ancho, 3] (NHWC, modelos Keras) o [n, 3, alto, ancho] (NCHW)
+    private Preprocesador.Forma forma;
+
+    private ExecutorService inferencia;
+
+    @PostConstruct
+    public void cargar() throws OrtException {
+        entorno = OrtEnvironment.getEnvironment();
+        OrtSession.SessionOptions opciones = new OrtSession.SessionOptions();
+        // El paralelismo lo da el pool de inferencia; cada ejecucion usa un solo hilo
+        opciones.setIntraOpNumThreads(1);
+        opciones.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+        sesion = entorno.createSession(rutaModelo, opciones);
+
+        entrada = sesion.getInputNames().iterator().next();
+        long[] dimensiones = ((TensorInfo) sesion.getInputInfo().get(entrada).getInfo()).getShape();
+        boolean nchw = dimensiones[1] == 3;
+        forma = nchw ? new Preprocesador.Forma((int) dimensiones[2], (int) dimensiones[3], true)
+                : new Preprocesador.Forma((int) dimensiones[1], (int) dimensiones[2], false);
+
+        int numHilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        inferencia = Executors.newFixedThreadPool(numHilos, tarea -> {
+            Thread hilo = new Thread(tarea, "inferencia-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        // Primera ejecucion en el arranque para que no la pague la primera peticion
+        ejecutar(FloatBuffer.wrap(new float[forma.getTamano()]));
+        log.info("Modelo {} cargado: entrada {}, {} hilos de inferencia", rutaModelo, forma, numHilos);
+    }
+
+    @PreDestroy
+    public void cerrar() throws OrtException {
+        inferencia.shutdownNow();
+        sesion.close();
+    }
+
+    @Override
+    public String getModelo() {
+        return "onnx:" + Paths.get(rutaModelo).getFileName();
+    }
+
+    @Override
+    public List<Puntuacion> predecir(List<Imagen> imagenes) throws Exception {
+        List<Future<Puntuacion>> futuros = new ArrayList<>();
+        for (Imagen imagen : imagenes) {
+            futuros.add(inferencia.submit(() -> {
+                try (Preprocesador.Tensor tensor = preprocesador.preparar(imagen, forma)) {
+                    return ejecutar(tensor.getDatos());
+                }
+            }));
+        }
+        List<Puntuacion> puntuaciones = new ArrayList<>();
+        try {
+            for (Future<Puntuacion> futuro : futuros) {
+                puntuaciones.add(futuro.get());
+            }
+        } catch (ExecutionException e) {
+            futuros.forEach(futuro -> futuro.cancel(true));
+            throw e.getCause() instanceof Exception causa ? causa : e;
+        }
+        return puntuaciones;
+    }
+
+    // Salida [1, 2] (no cancer, cancer) o [1, 1] con la probabilidad de cancer
+    private Puntuacion ejecutar(FloatBuffer datos) throws OrtException {
+        try (OnnxTensor tensor = OnnxTensor.createTensor(entorno, datos, forma.dimensiones(1));
+                OrtSession.Result resultado = sesion.run(Map.of(entrada, tensor))) {
+            float[] salida = ((float[][]) resultado.get(0).getValue())[0];
+            if (salida.length == 1) {
+                return new Puntuacion(1 - salida[0], salida[0]);
+            }
+            return new Puntuacion(salida[0], salida[1]);
+        }
+    }
+}
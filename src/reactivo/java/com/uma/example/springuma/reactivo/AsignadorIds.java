@@ -0,0 +1,51 @@
+package com.uma.example.springuma.reactivo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+// Ids de las filas nuevas con el mismo optimizador pooled-lo que Hibernate: cada valor de la
+// secuencia <tabla>_seq (increment by 50) reserva el bloque [valor, valor + 50), que se reparte
+// en memoria. Asi JPA y R2DBC nunca se dan el mismo id y no se salta un bloque por cada insercion
+@Component
+@Profile("reactivo")
+public class AsignadorIds {
+
+    // Debe coincidir con el allocationSize de las entidades y el increment by de las secuencias
+    static final int TAMANO_BLOQUE = 50;
+
+    private record Bloque(AtomicLong siguiente, long limite) {
+    }
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private final Map<String, Bloque> bloques = new ConcurrentHashMap<>();
+
+    public Mono<Long> siguiente(String tabla) {
+        Bloque bloque = bloques.get(tabla);
+        if (bloque != null) {
+            long id = bloque.siguiente().getAndIncrement();
+            if (id < bloque.limite()) {
+                return Mono.just(id);
+            }
+        }
+        // Si dos inserciones agotan el bloque a la vez cada una reserva el suyo; los ids que
+        // queden en el bloque que se sustituye no se usan, como al reiniciar Hibernate
+        return databaseClient.sql("SELECT NEXT VALUE FOR " + tabla + "_seq")
+                .map(resultado -> resultado.get(0, Long.class))
+                .one()
+                .map(inicio -> {
+                    Bloque nuevo = new Bloque(new AtomicLong(inicio + 1), inicio + TAMANO_BLOQUE);
+                    bloques.put(tabla, nuevo);
+                    return inicio;
+                });
+    }
+}
@@ -0,0 +1,10 @@
+package com.uma.example.springuma.reactivo;
+
+// Fila de una tabla leida o escrita por R2DBC. Las filas nuevas no tienen id: se lo asigna
+// AsignadorIds con la secuencia <tabla>_seq antes de insertarlas
+public interface Fila<T extends Fila<T>> {
+
+    Long id();
+
+    T conId(long id);
+}
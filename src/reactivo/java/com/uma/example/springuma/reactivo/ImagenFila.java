@@ -0,0 +1,49 @@
+package com.uma.example.springuma.reactivo;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Paciente;
+
+// Fila de imagen sin file_content: el contenido se lee y escribe siempre a traves del ImageStore
+@Table("imagen")
+public record ImagenFila(@Id Long id, String nombre, LocalDateTime fecha, Long pacienteId,
+        String contentHash, Long contentSize, String codec) implements Fila<ImagenFila> {
+
+    @Override
+    public ImagenFila conId(long id) {
+        return new ImagenFila(id, nombre, fecha, pacienteId, contentHash, contentSize, codec);
+    }
+
+    // Con el hash, el tamaño y el codec que ha rellenado el ImageStore al guardar el contenido
+    public ImagenFila conContenido(Imagen imagen) {
+        return new ImagenFila(id, nombre, fecha, pacienteId, imagen.getContentHash(), imagen.getContentSize(), imagen.getCodec());
+    }
+
+    public Imagen aImagen(Paciente paciente) {
+        Imagen imagen = new Imagen();
+        imagen.setId(id);
+        imagen.setNombre(nombre);
+        imagen.setFecha(calendario());
+        imagen.setPaciente(paciente);
+        imagen.setContentHash(contentHash);
+        imagen.setContentSize(contentSize);
+        imagen.setCodec(codec);
+        return imagen;
+    }
+
+    public ImagenResumen aResumen() {
+        return new ImagenResumen(id, nombre, calendario(), contentSize, pacienteId != null ? pacienteId : 0);
+    }
+
+    private Calendar calendario() {
+        return fecha != null ? GregorianCalendar.from(fecha.atZone(ZoneId.systemDefault())) : null;
+    }
+}
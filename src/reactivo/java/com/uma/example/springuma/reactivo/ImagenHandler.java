@@ -0,0 +1,214 @@
+package com.uma.example.springuma.reactivo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.storage.ImageCodecPolicy;
+import com.uma.example.springuma.storage.ImageStore;
+import com.uma.example.springuma.utils.ImageCodec;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// Equivalente reactivo de ImagenController. Las filas se leen por R2DBC y el contenido pasa por el
+// ImageStore: si esta en disco sin comprimir se envia con E/S asincrona; si no, el ImageStore lo
+// decodifica en un hilo de boundedElastic y se envia por bloques segun se escribe
+@Component
+@Profile("reactivo")
+public class ImagenHandler {
+
+    private static final int TAMANO_BLOQUE = 64 * 1024;
+
+    private final DataBufferFactory fabrica = DefaultDataBufferFactory.sharedInstance;
+
+    @Autowired
+    private RepositoryImagenFila repositoryImagen;
+
+    @Autowired
+    private PacienteHandler pacienteHandler;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageCodecPolicy imageCodecPolicy;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Imagen con su paciente (y el medico de este), como la devuelve /imagen/info/{id}
+    public Mono<Imagen> buscarImagen(Long id) {
+        return repositoryImagen.findById(id).flatMap(imagen -> imagen.pacienteId() == null
+                ? Mono.just(imagen.aImagen(null))
+                : pacienteHandler.buscarPaciente(imagen.pacienteId())
+                        .map(imagen::aImagen)
+                        .defaultIfEmpty(imagen.aImagen(null)));
+    }
+
+    public Mono<ServerResponse> getImagen(ServerRequest request) {
+        return buscarImagen(Long.valueOf(request.pathVariable("id")))
+                .flatMap(imagen -> ServerResponse.ok().bodyValue(imagen))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> getImagenes(ServerRequest request) {
+        return ServerResponse.ok().body(repositoryImagen.findAllByOrderById().map(ImagenFila::aResumen), ImagenResumen.class);
+    }
+
+    public Mono<ServerResponse> getImagenesPaciente(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        return ServerResponse.ok().body(repositoryImagen.findByPacienteIdOrderById(id).map(ImagenFila::aResumen), ImagenResumen.class);
+    }
+
+    // Como en la API servlet, el hash del contenido sirve de ETag y la fecha de Last-Modified
+    public Mono<ServerResponse> downloadImage(ServerRequest request) {
+        return repositoryImagen.findById(Long.valueOf(request.pathVariable("id")))
+                .flatMap(fila -> {
+                    String etag = fila.contentHash() != null ? "\"" + fila.contentHash() + "\"" : null;
+                    Instant modificada = fila.fecha() != null ? fila.fecha().atZone(ZoneId.systemDefault()).toInstant() : null;
+                    Mono<ServerResponse> noModificada = etag != null && modificada != null ? request.checkNotModified(modificada, etag)
+                            : etag != null ? request.checkNotModified(etag)
+                            : modificada != null ? request.checkNotModified(modificada)
+                            : Mono.empty();
+                    return noModificada.switchIfEmpty(Mono.defer(() -> enviar(fila, etag, modificada)));
+                })
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    private Mono<ServerResponse> enviar(ImagenFila fila, String etag, Instant modificada) {
+        Imagen imagen = fila.aImagen(null);
+        Flux<DataBuffer> contenido = imageStore.fichero(imagen)
+                .map(fichero -> DataBufferUtils.read(fichero, fabrica, TAMANO_BLOQUE))
+                .orElseGet(() -> Flux.from(DataBufferUtils.outputStreamPublisher(out -> escribir(imagen, out), fabrica,
+                        tarea -> Schedulers.boundedElastic().schedule(tarea), TAMANO_BLOQUE)));
+        ServerResponse.BodyBuilder respuesta = ServerResponse.ok().contentType(MediaType.IMAGE_PNG);
+        if (etag != null) {
+            respuesta.eTag(etag);
+        }
+        if (modificada != null) {
+            respuesta.lastModified(modificada);
+        }
+        if (fila.contentSize() != null) {
+            respuesta.header(HttpHeaders.CONTENT_LENGTH, String.valueOf(fila.contentSize()));
+        }
+        return respuesta.body(BodyInserters.fromDataBuffers(contenido));
+    }
+
+    // Si el contenido no esta, la respuesta se corta con un error en lugar de acabar vacia
+    private void escribir(Imagen imagen, OutputStream out) {
+        try {
+            if (!imageStore.read(imagen, out)) {
+                throw new IOException("La imagen " + imagen.getId() + " no tiene contenido");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Partes "image" (el fichero) y "paciente" (JSON), como en la API servlet
+    public Mono<ServerResponse> uploadImage(ServerRequest request) {
+        return request.multipartData().flatMap(partes -> {
+            Part imagen = partes.getFirst("image");
+            Part paciente = partes.getFirst("paciente");
+            if (!(imagen instanceof FilePart fichero) || paciente == null) {
+                return ServerResponse.badRequest().bodyValue("Faltan las partes image y paciente");
+            }
+            return DataBufferUtils.join(paciente.content())
+                    .map(json -> {
+                        try (InputStream entrada = json.asInputStream(true)) {
+                            return objectMapper.readValue(entrada, Paciente.class);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .flatMap(datos -> guardar(fichero, datos.getId()))
+                    .flatMap(guardada -> ServerResponse.ok()
+                            .bodyValue("{\"response\" : \"file uploaded successfully : " + guardada.nombre() + "\"}"))
+                    .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue("Error al subir la imagen"));
+        });
+    }
+
+    // El fichero se vuelca a disco sin bloquear y desde ahi lo codifica el ImageStore en un hilo de
+    // boundedElastic, como hace la subida servlet (spring.servlet.multipart.file-size-threshold=0).
+    // Si no se puede guardar el contenido se borra la fila
+    private Mono<ImagenFila> guardar(FilePart fichero, long pacienteId) {
+        MediaType tipo = fichero.headers().getContentType();
+        ImageCodec codec = imageCodecPolicy.codecPara(tipo != null ? tipo.toString() : null, fichero.filename());
+        ImagenFila nueva = new ImagenFila(null, fichero.filename(), LocalDateTime.now(), pacienteId, null, null, null);
+        return repositoryImagen.save(nueva).flatMap(fila -> Mono.usingWhen(
+                Mono.fromCallable(() -> Files.createTempFile("subida", ".part")).subscribeOn(Schedulers.boundedElastic()),
+                temporal -> fichero.transferTo(temporal).then(Mono.fromCallable(() -> almacenar(fila, temporal, codec))
+                        .subscribeOn(Schedulers.boundedElastic())),
+                temporal -> Mono.fromCallable(() -> Files.deleteIfExists(temporal)).subscribeOn(Schedulers.boundedElastic()))
+                .onErrorResume(e -> repositoryImagen.deleteById(fila.id()).then(Mono.error(e))));
+    }
+
+    // El ImageStore no suelta lo que reserva para el contenido (el cerrojo del hash en disco) hasta que
+    // termina la transaccion de Spring que guarda la fila. Aqui la fila se guarda por R2DBC, fuera de
+    // esas transacciones, asi que el contenido y la fila se guardan en el mismo hilo dentro de un ambito
+    // de sincronizacion que se cierra como confirmado cuando la fila ya esta guardada, o como deshecho si
+    // falla, y entonces el almacen borra el fichero nuevo si nadie mas lo usa. Un borrado del mismo
+    // contenido espera a que la fila este guardada y la cuenta
+    private ImagenFila almacenar(ImagenFila fila, Path temporal, ImageCodec codec) throws IOException {
+        Imagen imagen = fila.aImagen(null);
+        TransactionSynchronizationManager.initSynchronization();
+        int estado = TransactionSynchronization.STATUS_ROLLED_BACK;
+        try {
+            try (InputStream contenido = Files.newInputStream(temporal)) {
+                imageStore.save(imagen, contenido, codec);
+            }
+            ImagenFila guardada = repositoryImagen.save(fila.conContenido(imagen)).block();
+            estado = TransactionSynchronization.STATUS_COMMITTED;
+            return guardada;
+        } finally {
+            List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationUtils.invokeAfterCompletion(sincronizaciones, estado);
+        }
+    }
+
+    // El contenido se libera despues de borrar la fila, como en ImagenService
+    public Mono<ServerResponse> deleteImagen(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        return repositoryImagen.findById(id)
+                .flatMap(fila -> repositoryImagen.deleteById(id)
+                        .then(Mono.fromCallable(() -> {
+                            imageStore.delete(fila.aImagen(null));
+                            return fila;
+                        }).subscribeOn(Schedulers.boundedElastic())))
+                .then(ServerResponse.noContent().build())
+                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue("Error al eliminar la imagen"));
+    }
+}
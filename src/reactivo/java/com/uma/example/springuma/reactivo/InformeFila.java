@@ -0,0 +1,22 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.Informe;
+
+@Table("informe")
+public record InformeFila(@Id Long id, String prediccion, String contenido, Long imagenId) implements Fila<InformeFila> {
+
+    @Override
+    public InformeFila conId(long id) {
+        return new InformeFila(id, prediccion, contenido, imagenId);
+    }
+
+    public Informe aInforme(Imagen imagen) {
+        Informe informe = new Informe(prediccion, contenido, imagen);
+        informe.setId(id);
+        return informe;
+    }
+}
@@ -0,0 +1,65 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.InformeService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// Equivalente reactivo de InformeController
+@Component
+@Profile("reactivo")
+public class InformeHandler {
+
+    @Autowired
+    private RepositoryInformeFila repositoryInforme;
+
+    @Autowired
+    private ImagenHandler imagenHandler;
+
+    @Autowired
+    private InformeService informeService;
+
+    public Mono<ServerResponse> getInforme(ServerRequest request) {
+        return repositoryInforme.findById(Long.valueOf(request.pathVariable("id")))
+                .flatMap(informe -> informe.imagenId() == null
+                        ? Mono.just(informe.aInforme(null))
+                        : imagenHandler.buscarImagen(informe.imagenId()).map(informe::aInforme).defaultIfEmpty(informe.aInforme(null)))
+                .flatMap(informe -> ServerResponse.ok().bodyValue(informe))
+                .switchIfEmpty(ServerResponse.ok().build());
+    }
+
+    // La imagen se lee una sola vez para todos sus informes
+    public Mono<ServerResponse> getInformesImagen(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        Flux<Informe> informes = imagenHandler.buscarImagen(id)
+                .flatMapMany(imagen -> repositoryInforme.findByImagenIdOrderById(id).map(informe -> informe.aInforme(imagen)));
+        return ServerResponse.ok().body(informes, Informe.class);
+    }
+
+    // La prediccion la calcula el predictor configurado, que es bloqueante: se pide en un hilo de
+    // boundedElastic y el informe se guarda despues por R2DBC
+    public Mono<ServerResponse> saveInforme(ServerRequest request) {
+        return request.bodyToMono(Informe.class)
+                .flatMap(informe -> Mono.fromCallable(() -> informeService.getNewPrediccion(informe))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(prediccion -> repositoryInforme.save(
+                                new InformeFila(null, prediccion, informe.getContenido(), informe.getImagen().getId()))))
+                .flatMap(informe -> ServerResponse.status(HttpStatus.CREATED).build())
+                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue("El informe ya existe"));
+    }
+
+    public Mono<ServerResponse> deleteInforme(ServerRequest request) {
+        return repositoryInforme.deleteById(Long.valueOf(request.pathVariable("id")))
+                .then(ServerResponse.noContent().build())
+                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue("Error al eliminar el informe"));
+    }
+}
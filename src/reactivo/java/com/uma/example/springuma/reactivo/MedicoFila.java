@@ -0,0 +1,28 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import com.uma.example.springuma.model.Medico;
+
+@Table("medico")
+public record MedicoFila(@Id Long id, String dni, String nombre, String especialidad) implements Fila<MedicoFila> {
+
+    public static MedicoFila de(Medico medico) {
+        return new MedicoFila(medico.getId() != 0 ? medico.getId() : null, medico.getDni(), medico.getNombre(), medico.getEspecialidad());
+    }
+
+    @Override
+    public MedicoFila conId(long id) {
+        return new MedicoFila(id, dni, nombre, especialidad);
+    }
+
+    public Medico aMedico() {
+        Medico medico = new Medico();
+        medico.setId(id);
+        medico.setDni(dni);
+        medico.setNombre(nombre);
+        medico.setEspecialidad(especialidad);
+        return medico;
+    }
+}
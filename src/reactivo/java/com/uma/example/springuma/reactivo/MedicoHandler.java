@@ -0,0 +1,72 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.uma.example.springuma.model.CacheService;
+import com.uma.example.springuma.model.Medico;
+
+import reactor.core.publisher.Mono;
+
+// Equivalente reactivo de MedicoController
+@Component
+@Profile("reactivo")
+public class MedicoHandler {
+
+    @Autowired
+    private RepositoryMedicoFila repositoryMedico;
+
+    // Lo que se escribe aqui no pasa por Hibernate: se saca de la cache de segundo nivel
+    @Autowired
+    private CacheService cacheService;
+
+    public Mono<ServerResponse> getMedico(ServerRequest request) {
+        return repositoryMedico.findById(Long.valueOf(request.pathVariable("id")))
+                .flatMap(medico -> ServerResponse.ok().bodyValue(medico.aMedico()))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> getMedicoByDni(ServerRequest request) {
+        return repositoryMedico.findByDni(request.pathVariable("dni"))
+                .flatMap(medico -> ServerResponse.ok().bodyValue(medico.aMedico()))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> saveMedico(ServerRequest request) {
+        return request.bodyToMono(Medico.class)
+                .flatMap(medico -> repositoryMedico.save(MedicoFila.de(medico)))
+                .doOnNext(medico -> cacheService.evictMedico(medico.id()))
+                .flatMap(medico -> ServerResponse.status(HttpStatus.CREATED).build())
+                // Dni repetido; cualquier otro error llega como tal al cliente
+                .onErrorResume(DataIntegrityViolationException.class,
+                        e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue("El medico ya existe"));
+    }
+
+    public Mono<ServerResponse> updateMedico(ServerRequest request) {
+        return request.bodyToMono(Medico.class)
+                .flatMap(medico -> repositoryMedico.save(MedicoFila.de(medico)))
+                .doOnNext(medico -> cacheService.evictMedico(medico.id()))
+                .flatMap(medico -> ServerResponse.noContent().build())
+                .onErrorResume(DataIntegrityViolationException.class,
+                        e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue("Error al actualizar el medico"));
+    }
+
+    // Los pacientes del medico se borran en cascada por la clave ajena
+    public Mono<ServerResponse> deleteMedico(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        return repositoryMedico.existsById(id)
+                .flatMap(existe -> existe
+                        ? repositoryMedico.deleteById(id)
+                                .then(Mono.fromRunnable(() -> {
+                                    cacheService.evictMedico(id);
+                                    cacheService.evictPacientes();
+                                }))
+                                .then(ServerResponse.ok().build())
+                        : ServerResponse.notFound().build());
+    }
+}
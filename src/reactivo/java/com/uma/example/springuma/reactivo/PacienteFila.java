@@ -0,0 +1,27 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+
+@Table("paciente")
+public record PacienteFila(@Id Long id, String nombre, int edad, String cita, String dni, Long medicoId) implements Fila<PacienteFila> {
+
+    public static PacienteFila de(Paciente paciente) {
+        return new PacienteFila(paciente.getId() != 0 ? paciente.getId() : null, paciente.getNombre(), paciente.getEdad(),
+                paciente.getCita(), paciente.getDni(), paciente.getMedico() != null ? paciente.getMedico().getId() : null);
+    }
+
+    @Override
+    public PacienteFila conId(long id) {
+        return new PacienteFila(id, nombre, edad, cita, dni, medicoId);
+    }
+
+    public Paciente aPaciente(Medico medico) {
+        Paciente paciente = new Paciente(nombre, edad, cita, dni, medico);
+        paciente.setId(id);
+        return paciente;
+    }
+}
@@ -0,0 +1,84 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.uma.example.springuma.model.CacheService;
+import com.uma.example.springuma.model.Paciente;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Equivalente reactivo de PacienteController
+@Component
+@Profile("reactivo")
+public class PacienteHandler {
+
+    @Autowired
+    private RepositoryPacienteFila repositoryPaciente;
+
+    @Autowired
+    private RepositoryMedicoFila repositoryMedico;
+
+    // Lo que se escribe aqui no pasa por Hibernate: se saca de la cache de segundo nivel
+    @Autowired
+    private CacheService cacheService;
+
+    // Paciente con su medico, como lo devuelve la API servlet
+    public Mono<Paciente> buscarPaciente(Long id) {
+        return repositoryPaciente.findById(id).flatMap(paciente -> paciente.medicoId() == null
+                ? Mono.just(paciente.aPaciente(null))
+                : repositoryMedico.findById(paciente.medicoId())
+                        .map(medico -> paciente.aPaciente(medico.aMedico()))
+                        .defaultIfEmpty(paciente.aPaciente(null)));
+    }
+
+    public Mono<ServerResponse> getPaciente(ServerRequest request) {
+        return buscarPaciente(Long.valueOf(request.pathVariable("id")))
+                .flatMap(paciente -> ServerResponse.ok().bodyValue(paciente))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // El medico se lee una sola vez para todos sus pacientes, que se envian segun llegan
+    public Mono<ServerResponse> getPacientesMedico(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        Flux<Paciente> pacientes = repositoryMedico.findById(id)
+                .flatMapMany(medico -> repositoryPaciente.findByMedicoIdOrderById(id)
+                        .map(paciente -> paciente.aPaciente(medico.aMedico())));
+        return ServerResponse.ok().body(pacientes, Paciente.class);
+    }
+
+    public Mono<ServerResponse> savePaciente(ServerRequest request) {
+        return request.bodyToMono(Paciente.class)
+                .flatMap(paciente -> repositoryPaciente.save(PacienteFila.de(paciente)))
+                .doOnNext(paciente -> cacheService.evictPaciente(paciente.id()))
+                .flatMap(paciente -> ServerResponse.status(HttpStatus.CREATED).build())
+                // Dni repetido o medico que no existe; cualquier otro error llega como tal al cliente
+                .onErrorResume(DataIntegrityViolationException.class,
+                        e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue("El paciente ya existe"));
+    }
+
+    public Mono<ServerResponse> updatePaciente(ServerRequest request) {
+        return request.bodyToMono(Paciente.class)
+                .flatMap(paciente -> repositoryPaciente.save(PacienteFila.de(paciente)))
+                .doOnNext(paciente -> cacheService.evictPaciente(paciente.id()))
+                .flatMap(paciente -> ServerResponse.noContent().build())
+                .onErrorResume(DataIntegrityViolationException.class,
+                        e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue("Error al actualizar el paciente"));
+    }
+
+    public Mono<ServerResponse> deletePaciente(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        return repositoryPaciente.existsById(id)
+                .flatMap(existe -> existe
+                        ? repositoryPaciente.deleteById(id)
+                                .then(Mono.fromRunnable(() -> cacheService.evictPaciente(id)))
+                                .then(ServerResponse.ok().build())
+                        : ServerResponse.notFound().build());
+    }
+}
@@ -0,0 +1,111 @@
+package com.uma.example.springuma.reactivo;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import reactor.core.publisher.Mono;
+
+// Modo reactivo (perfil "reactivo"): la API de medicos, pacientes, imagenes e informes se sirve
+// con WebFlux sobre Netty y R2DBC, sin un hilo bloqueado por peticion. Usa la misma base de
+// datos que JPA (spring.r2dbc.url debe apuntar a la de spring.datasource.url); el esquema lo
+// siguen creando las migraciones de Flyway por JDBC
+@Configuration
+@Profile("reactivo")
+@EnableR2dbcRepositories
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactivoConfig extends AbstractR2dbcConfiguration {
+
+    @Value("${spring.r2dbc.url}")
+    private String url;
+
+    @Value("${spring.r2dbc.username:}")
+    private String usuario;
+
+    @Value("${spring.r2dbc.password:}")
+    private String password;
+
+    @Value("${spring.r2dbc.pool.max-size:10}")
+    private int maxConexiones;
+
+    @Override
+    @Bean
+    public ConnectionFactory connectionFactory() {
+        ConnectionFactoryOptions opciones = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, usuario)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(opciones))
+                .maxSize(maxConexiones)
+                .build());
+    }
+
+    // Si hay un ConnectionFactory, la autoconfiguracion de Boot no crea el DataSource, que siguen
+    // necesitando JPA, Flyway y el resto de servicios
+    @Bean
+    public DataSource dataSource(DataSourceProperties propiedades) {
+        return propiedades.initializeDataSourceBuilder().build();
+    }
+
+    // Con spring-boot-starter-web en el classpath se elegiria Tomcat; Netty atiende muchas
+    // conexiones lentas con pocos hilos
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // Las filas nuevas toman el id de la misma secuencia que Hibernate y con sus mismos bloques
+    @Bean
+    public BeforeConvertCallback<Fila<?>> asignarId(AsignadorIds asignadorIds) {
+        return (fila, tabla) -> {
+            if (fila.id() != null) {
+                return Mono.just(fila);
+            }
+            return asignadorIds.siguiente(tabla.getReference()).map(id -> fila.conId(id));
+        };
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> rutasReactivas(MedicoHandler medicos, PacienteHandler pacientes,
+            ImagenHandler imagenes, InformeHandler informes) {
+        return RouterFunctions.route()
+                .GET("/medico/dni/{dni}", medicos::getMedicoByDni)
+                .GET("/medico/{id}", medicos::getMedico)
+                .POST("/medico", medicos::saveMedico)
+                .PUT("/medico", medicos::updateMedico)
+                .DELETE("/medico/{id}", medicos::deleteMedico)
+                .GET("/paciente/medico/{id}", pacientes::getPacientesMedico)
+                .GET("/paciente/{id}", pacientes::getPaciente)
+                .POST("/paciente", pacientes::savePaciente)
+                .PUT("/paciente", pacientes::updatePaciente)
+                .DELETE("/paciente/{id}", pacientes::deletePaciente)
+                .GET("/imagen", imagenes::getImagenes)
+                .GET("/imagen/paciente/{id}", imagenes::getImagenesPaciente)
+                .GET("/imagen/info/{id}", imagenes::getImagen)
+                .GET("/imagen/{id}", imagenes::downloadImage)
+                .POST("/imagen", imagenes::uploadImage)
+                .DELETE("/imagen/{id}", imagenes::deleteImagen)
+                .GET("/informe/imagen/{id}", informes::getInformesImagen)
+                .GET("/informe/{id}", informes::getInforme)
+                .POST("/informe", informes::saveInforme)
+                .DELETE("/informe/{id}", informes::deleteInforme)
+                .build();
+    }
+}
@@ -0,0 +1,12 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import reactor.core.publisher.Flux;
+
+public interface RepositoryImagenFila extends R2dbcRepository<ImagenFila, Long> {
+
+    Flux<ImagenFila> findByPacienteIdOrderById(Long pacienteId);
+
+    Flux<ImagenFila> findAllByOrderById();
+}
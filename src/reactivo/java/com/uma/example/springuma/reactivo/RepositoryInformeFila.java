@@ -0,0 +1,10 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import reactor.core.publisher.Flux;
+
+public interface RepositoryInformeFila extends R2dbcRepository<InformeFila, Long> {
+
+    Flux<InformeFila> findByImagenIdOrderById(Long imagenId);
+}
@@ -0,0 +1,10 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import reactor.core.publisher.Mono;
+
+public interface RepositoryMedicoFila extends R2dbcRepository<MedicoFila, Long> {
+
+    Mono<MedicoFila> findByDni(String dni);
+}
@@ -0,0 +1,10 @@
+package com.uma.example.springuma.reactivo;
+
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import reactor.core.publisher.Flux;
+
+public interface RepositoryPacienteFila extends R2dbcRepository<PacienteFila, Long> {
+
+    Flux<PacienteFila> findByMedicoIdOrderById(Long medicoId);
+}
@@ -0,0 +1,235 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryMedico;
+
+/*
+ * Test de integración de la API en el perfil reactivo (WebFlux sobre Netty y R2DBC).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactivo")
+class ReactivoIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private RepositoryMedico repositoryMedico;
+
+    private Medico crearMedico(String dni) {
+        Medico medico = new Medico();
+        medico.setDni(dni);
+        medico.setNombre("Doctor Test");
+        medico.setEspecialidad("Radiologia");
+        this.webTestClient.post().uri("/medico")
+                .bodyValue(medico)
+                .exchange()
+                .expectStatus().isCreated();
+        return this.webTestClient.get().uri("/medico/dni/" + dni)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Medico.class)
+                .returnResult().getResponseBody();
+    }
+
+    private Paciente crearPaciente(String dni, Medico medico) {
+        this.webTestClient.post().uri("/paciente")
+                .bodyValue(new Paciente("Juan", 30, "2025-06-01", dni, medico))
+                .exchange()
+                .expectStatus().isCreated();
+        Paciente[] pacientes = this.webTestClient.get().uri("/paciente/medico/" + medico.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Paciente[].class)
+                .returnResult().getResponseBody();
+        return pacientes[pacientes.length - 1];
+    }
+
+    private ImagenResumen subirImagen(Paciente paciente) {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("image", new FileSystemResource("./src/test/resources/healthy.png"));
+        builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+        this.webTestClient.post().uri("/imagen")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .exchange()
+                .expectStatus().isOk();
+        ImagenResumen[] imagenes = this.webTestClient.get().uri("/imagen/paciente/" + paciente.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ImagenResumen[].class)
+                .returnResult().getResponseBody();
+        return imagenes[imagenes.length - 1];
+    }
+
+    @Test
+    @DisplayName("El perfil reactivo arranca WebFlux sobre Netty")
+    void servidorReactivo() {
+        ReactiveWebServerApplicationContext reactivo = assertInstanceOf(ReactiveWebServerApplicationContext.class, context);
+        assertInstanceOf(NettyWebServer.class, reactivo.getWebServer());
+    }
+
+    @Test
+    @DisplayName("Crea un médico y un paciente y devuelve el paciente con su médico")
+    void crearMedicoYPaciente() {
+        Medico medico = crearMedico("11111111A");
+        Paciente paciente = crearPaciente("22222222B", medico);
+
+        this.webTestClient.get().uri("/paciente/" + paciente.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.dni").isEqualTo("22222222B")
+                .jsonPath("$.medico.dni").isEqualTo("11111111A");
+
+        // dni repetido
+        Medico otro = new Medico();
+        otro.setDni("11111111A");
+        this.webTestClient.post().uri("/medico")
+                .bodyValue(otro)
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    @DisplayName("Los ids de las filas nuevas salen del bloque reservado, como en Hibernate")
+    void idsConsecutivos() {
+        Medico primero = crearMedico("88888888H");
+        Medico segundo = crearMedico("99999999J");
+
+        assertEquals(primero.getId() + 1, segundo.getId());
+    }
+
+    @Test
+    @DisplayName("Modificar un médico por R2DBC lo saca de la caché de segundo nivel de JPA")
+    void modificarMedico_invalidaCache() {
+        Medico medico = crearMedico("77777777G");
+        assertEquals("Doctor Test", repositoryMedico.findById(medico.getId()).get().getNombre());
+
+        medico.setNombre("Doctor Cambiado");
+        this.webTestClient.put().uri("/medico")
+                .bodyValue(medico)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        assertEquals("Doctor Cambiado", repositoryMedico.findById(medico.getId()).get().getNombre());
+    }
+
+    @Test
+    @DisplayName("Eliminar un médico o un paciente que no existe devuelve 404, como la API servlet")
+    void eliminar_noExiste_devuelveNotFound() {
+        Medico medico = crearMedico("12121212K");
+        Paciente paciente = crearPaciente("13131313L", medico);
+
+        this.webTestClient.delete().uri("/paciente/" + paciente.getId())
+                .exchange()
+                .expectStatus().isOk();
+        this.webTestClient.get().uri("/paciente/" + paciente.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+        this.webTestClient.delete().uri("/paciente/" + paciente.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+
+        this.webTestClient.delete().uri("/medico/" + medico.getId())
+                .exchange()
+                .expectStatus().isOk();
+        this.webTestClient.delete().uri("/medico/" + medico.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Un cuerpo que no es un médico devuelve 400 y no se confunde con un dni repetido")
+    void crearMedico_cuerpoNoValido_devuelveBadRequest() {
+        this.webTestClient.post().uri("/medico")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"dni\": ")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Sube una imagen y la descarga en streaming, con ETag")
+    void subirYDescargarImagen() throws Exception {
+        Paciente paciente = crearPaciente("33333333C", crearMedico("44444444D"));
+        ImagenResumen imagen = subirImagen(paciente);
+        byte[] original = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        assertEquals(original.length, imagen.getSize());
+
+        byte[] descargada = this.webTestClient.get().uri("/imagen/" + imagen.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.IMAGE_PNG)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+        assertArrayEquals(original, descargada);
+
+        String etag = this.webTestClient.get().uri("/imagen/" + imagen.getId())
+                .exchange()
+                .returnResult(byte[].class).getResponseHeaders().getETag();
+        assertNotNull(etag);
+        this.webTestClient.get().uri("/imagen/" + imagen.getId())
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        this.webTestClient.delete().uri("/imagen/" + imagen.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+        this.webTestClient.get().uri("/imagen/" + imagen.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Crea un informe con su predicción y lo devuelve con la imagen")
+    void crearInforme() {
+        Paciente paciente = crearPaciente("55555555E", crearMedico("66666666F"));
+        ImagenResumen imagen = subirImagen(paciente);
+
+        this.webTestClient.post().uri("/informe")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"contenido\": \"Informe reactivo\", \"imagen\": {\"id\": " + imagen.getId() + "}}")
+                .exchange()
+                .expectStatus().isCreated();
+
+        Informe[] informes = this.webTestClient.get().uri("/informe/imagen/" + imagen.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Informe[].class)
+                .returnResult().getResponseBody();
+        assertEquals(1, informes.length);
+        assertEquals("Informe reactivo", informes[0].getContenido());
+        assertNotNull(informes[0].getPrediccion());
+        assertEquals("55555555E", informes[0].getImagen().getPaciente().getDni());
+    }
+}
@@ -0,0 +1,134 @@
+package com.uma.example.springuma.integration;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+
+/*
+ * Test de integración de la cache de segundo nivel de médicos y pacientes.
+ */
+class CacheSegundoNivelIT extends AbstractIntegration {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Medico medico;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        medico = new Medico("12345678A", "Doctor Test", "Radiologia");
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andReturn().getResponse().getContentAsString();
+        medico = objectMapper.readValue(response, Medico.class);
+    }
+
+    @Test
+    @DisplayName("Buscar de nuevo un médico por DNI se resuelve desde la cache")
+    void buscarMedicoPorDni_seResuelveDesdeCache() throws Exception {
+        this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombre").value("Doctor Test"));
+
+        this.mockMvc.perform(get("/cache/estadisticas"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.consultas.hits").value(greaterThan(0)));
+    }
+
+    @Test
+    @DisplayName("Obtener un médico por id se resuelve desde la cache")
+    void obtenerMedico_seResuelveDesdeCache() throws Exception {
+        this.mockMvc.perform(get("/medico/" + medico.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dni").value(medico.getDni()));
+
+        this.mockMvc.perform(get("/cache/estadisticas"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.medico.hits").value(greaterThan(0)));
+    }
+
+    @Test
+    @DisplayName("Obtener un paciente por id se resuelve desde la cache, con su médico")
+    void obtenerPaciente_seResuelveDesdeCache() throws Exception {
+        Paciente paciente = new Paciente("Juan", 30, "2025-06-01", "87654321B", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andReturn().getResponse().getContentAsString();
+        paciente = objectMapper.readValue(response, Paciente[].class)[0];
+        // El listado por medico ya puede haber leido el paciente de la cache
+        long hits = aciertosPaciente();
+
+        this.mockMvc.perform(get("/paciente/" + paciente.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dni").value(paciente.getDni()))
+                .andExpect(jsonPath("$.medico.dni").value(medico.getDni()));
+
+        assertTrue(aciertosPaciente() > hits);
+    }
+
+    private long aciertosPaciente() throws Exception {
+        String estadisticas = this.mockMvc.perform(get("/cache/estadisticas"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(estadisticas).path("paciente").path("hits").asLong();
+    }
+
+    @Test
+    @DisplayName("Actualizar un médico invalida la búsqueda cacheada por DNI")
+    void actualizarMedico_invalidaCache() throws Exception {
+        medico.setNombre("Doctor Actualizado");
+        this.mockMvc.perform(put("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isNoContent());
+
+        this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombre").value("Doctor Actualizado"));
+    }
+
+    @Test
+    @DisplayName("Eliminar un médico saca de la cache a los pacientes que borra la base de datos")
+    void eliminarMedico_invalidaPacientesCacheados() throws Exception {
+        Paciente paciente = new Paciente("Juan", 30, "2025-06-01", "87654321B", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        this.mockMvc.perform(delete("/medico/" + medico.getId()))
+                .andExpect(status().isOk());
+
+        this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+}
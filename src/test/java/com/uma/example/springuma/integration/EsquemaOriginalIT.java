@@ -0,0 +1,118 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+
+/*
+ * Test de integración de las migraciones sobre una base de datos creada antes de Flyway: se toma
+ * como versión 1 (baseline-on-migrate) y recibe el resto de migraciones sin perder sus datos.
+ */
+class EsquemaOriginalIT extends AbstractIntegration {
+
+    // La base de datos en memoria sobrevive a los contextos de cada test (DB_CLOSE_DELAY=-1)
+    private static final String URL = crearBaseDeDatosOriginal();
+
+    private static String crearBaseDeDatosOriginal() {
+        String url = "jdbc:h2:mem:esquema_original_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        try (Connection conexion = DriverManager.getConnection(url, "test", "test")) {
+            ScriptUtils.executeSqlScript(conexion, new ClassPathResource("esquema_original.sql"));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return url;
+    }
+
+    @DynamicPropertySource
+    static void configurarBaseDeDatos(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Test
+    @DisplayName("La base de datos original se marca como versión 1 y recibe las siguientes migraciones")
+    void arrancar_migraDesdeVersionUno() throws Exception {
+        String historial = "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"type\" = ? AND \"success\" ORDER BY \"installed_rank\"";
+        assertEquals(List.of("1"), jdbcTemplate.queryForList(historial, String.class, "BASELINE"));
+        assertEquals(List.of("2", "3", "4", "5", "6"), jdbcTemplate.queryForList(historial, String.class, "SQL"));
+
+        // Los datos que ya habia siguen ahi
+        this.mockMvc.perform(get("/medico/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dni").value("12345678M"))
+                .andExpect(jsonPath("$.nombre").value("Pepito"));
+    }
+
+    @Test
+    @DisplayName("Sobre la base de datos migrada se sube y se descarga una imagen")
+    void subirImagen_usaColumnasNuevas() throws Exception {
+        Medico medico = objectMapper.readValue(this.mockMvc.perform(get("/medico/1"))
+                .andReturn().getResponse().getContentAsString(), Medico.class);
+        Paciente paciente = new Paciente("Juan", 30, "2025-06-01", "87654321B", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andReturn().getResponse().getContentAsString();
+        paciente = objectMapper.readValue(response, Paciente[].class)[0];
+
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", "healthy.png", "image/png", contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+
+        long id = repositoryImagen.getByPacienteId(paciente.getId()).get(0).getId();
+        MvcResult resultado = this.mockMvc.perform(get("/imagen/" + id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] descargada = this.mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(contenido, descargada);
+    }
+}
@@ -0,0 +1,160 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.HilosVirtualesConfig;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.utils.DataSourceAcotado;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Test de integración del bulkhead de conexiones del modo de hilos virtuales.
+ */
+@TestPropertySource(properties = {
+        "datasource.bulkhead.enabled=true",
+        "datasource.bulkhead.max-concurrentes=2",
+        "datasource.bulkhead.espera-ms=1000"
+})
+class HilosVirtualesIT extends AbstractIntegration {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @Test
+    @DisplayName("El DataSource queda detrás del bulkhead y sigue dando acceso al pool de Hikari")
+    void dataSourceAcotado() throws Exception {
+        assertInstanceOf(DataSourceAcotado.class, dataSource);
+        assertNotNull(dataSource.unwrap(HikariDataSource.class));
+    }
+
+    // Abre una conexion desde un hilo nuevo, que no retiene ningun permiso
+    private Connection desdeOtroHilo() throws Exception {
+        FutureTask<Connection> tarea = new FutureTask<>(() -> dataSource.getConnection());
+        new Thread(tarea).start();
+        try {
+            return tarea.get();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    @Test
+    @DisplayName("Sin permisos libres se rechaza tras la espera y el permiso vuelve al cerrar")
+    void rechazaSinConexionesLibres() throws Exception {
+        DataSourceAcotado acotado = (DataSourceAcotado) dataSource;
+        Connection primera = desdeOtroHilo();
+        try (Connection segunda = desdeOtroHilo()) {
+            assertEquals(2, acotado.getEnUso());
+            assertEquals(2.0, registro.get("datasource.bulkhead.en-uso").gauge().value());
+            long inicio = System.nanoTime();
+            assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+            assertTrue(System.nanoTime() - inicio < 5_000_000_000L);
+
+            // Cerrar dos veces no devuelve dos permisos
+            primera.close();
+            primera.close();
+            assertEquals(1, acotado.getEnUso());
+            try (Connection tercera = dataSource.getConnection()) {
+                assertTrue(tercera.isValid(1));
+                assertThrows(SQLTransientConnectionException.class, () -> desdeOtroHilo());
+            }
+        }
+        assertEquals(0, acotado.getEnUso());
+        assertEquals(0.0, registro.get("datasource.bulkhead.en-uso").gauge().value());
+        assertEquals(0.0, registro.get("datasource.bulkhead.en-espera").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Las conexiones anidadas de un hilo no piden otro permiso y no se bloquean")
+    void conexionesAnidadas() throws Exception {
+        DataSourceAcotado acotado = (DataSourceAcotado) dataSource;
+        Connection externa = desdeOtroHilo();
+        // Con el otro permiso ocupado, este hilo abre tres conexiones anidadas
+        try (Connection primera = dataSource.getConnection()) {
+            try (Connection anidada = dataSource.getConnection();
+                    Connection otraAnidada = dataSource.getConnection()) {
+                assertTrue(anidada.isValid(1));
+                assertTrue(otraAnidada.isValid(1));
+                assertEquals(2, acotado.getEnUso());
+            }
+            // El permiso sigue retenido hasta cerrar la ultima conexion del hilo
+            assertEquals(2, acotado.getEnUso());
+            assertThrows(SQLTransientConnectionException.class, () -> desdeOtroHilo());
+        }
+        assertEquals(1, acotado.getEnUso());
+        externa.close();
+        assertEquals(0, acotado.getEnUso());
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    @DisplayName("Con hilos virtuales activados en Java anterior a 21 la aplicacion no arranca")
+    void hilosVirtualesSinJava21() {
+        MockEnvironment entorno = new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true");
+        assertThrows(IllegalStateException.class, () -> HilosVirtualesConfig.bulkheadDataSource(entorno));
+    }
+
+    @Test
+    @DisplayName("Muchas peticiones concurrentes comparten los permisos sin perder ninguno")
+    void peticionesConcurrentes() throws Exception {
+        DataSourceAcotado acotado = (DataSourceAcotado) dataSource;
+        ExecutorService clientes = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> respuestas = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String dni = String.format("%08dV", i);
+                respuestas.add(clientes.submit(() -> this.mockMvc.perform(post("/medico")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(new Medico(dni, "Doctor " + dni, "Radiologia"))))
+                        .andExpect(status().isCreated())
+                        .andReturn().getResponse().getStatus()));
+            }
+            for (Future<Integer> respuesta : respuestas) {
+                assertEquals(201, respuesta.get());
+            }
+        } finally {
+            clientes.shutdown();
+        }
+        assertEquals(0, acotado.getEnUso());
+    }
+}
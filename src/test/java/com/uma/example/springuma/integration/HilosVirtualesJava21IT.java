@@ -0,0 +1,35 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.TestPropertySource;
+
+/*
+ * Los tests de HilosVirtualesIT con spring.threads.virtual.enabled=true: Tomcat atiende cada
+ * petición en un hilo virtual y el bulkhead es lo único que limita las conexiones. Necesita Java 21.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class HilosVirtualesJava21IT extends HilosVirtualesIT {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Test
+    @DisplayName("Tomcat atiende las peticiones con hilos virtuales")
+    void tomcatConHilosVirtuales() {
+        TomcatWebServer servidor = (TomcatWebServer) context.getWebServer();
+        Executor ejecutor = servidor.getTomcat().getConnector().getProtocolHandler().getExecutor();
+        // Se compila con Java 17, asi que se comprueba por el nombre de la clase de Tomcat
+        assertEquals("VirtualThreadExecutor", ejecutor.getClass().getSimpleName());
+    }
+}
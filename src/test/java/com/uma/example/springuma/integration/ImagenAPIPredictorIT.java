@@ -0,0 +1,263 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenAPIPredictor;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+import com.uma.example.springuma.prediccion.Predictor;
+import com.uma.example.springuma.prediccion.Puntuacion;
+
+/*
+ * Test de integración del cliente del servicio de predicción contra un servidor HTTP local
+ * que hace de stub del modelo.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class ImagenAPIPredictorIT {
+
+    private static final HttpServer stub;
+
+    // Respuesta que devuelve el stub y cerrojo que le hace esperar antes de responder
+    private static volatile String respuesta;
+    private static volatile int estado;
+    private static volatile CountDownLatch retraso;
+    private static volatile String autorizacion;
+    private static volatile int bytesRecibidos;
+    private static final Set<Integer> puertosCliente = ConcurrentHashMap.newKeySet();
+
+    static {
+        try {
+            stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        stub.createContext("/modelo", ImagenAPIPredictorIT::responder);
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.start();
+    }
+
+    @DynamicPropertySource
+    static void configurarPredictor(DynamicPropertyRegistry registry) {
+        registry.add("prediccion.predictor", () -> "remoto");
+        registry.add("prediccion.api.url", () -> "http://localhost:" + stub.getAddress().getPort() + "/modelo");
+        registry.add("prediccion.api.token", () -> "token-test");
+        registry.add("prediccion.api.read-timeout-ms", () -> "1000");
+        registry.add("prediccion.api.max-concurrentes", () -> "1");
+        registry.add("prediccion.api.espera-ms", () -> "100");
+        registry.add("prediccion.api.pool.max-per-route", () -> "7");
+    }
+
+    private static void responder(HttpExchange exchange) throws IOException {
+        autorizacion = exchange.getRequestHeaders().getFirst("Authorization");
+        puertosCliente.add(exchange.getRemoteAddress().getPort());
+        try (InputStream peticion = exchange.getRequestBody()) {
+            bytesRecibidos = peticion.readAllBytes().length;
+        }
+        try {
+            retraso.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] cuerpo = respuesta.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(estado, cuerpo.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(cuerpo);
+        }
+    }
+
+    @Autowired
+    private ImagenAPIPredictor imagenAPIPredictor;
+
+    @Autowired
+    private Predictor predictor;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private RepositoryMedico repositoryMedico;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @BeforeEach
+    void init() {
+        respuesta = "[{\"label\": \"LABEL_0\", \"score\": 0.75}, {\"label\": \"LABEL_1\", \"score\": 0.25}]";
+        estado = 200;
+        retraso = new CountDownLatch(0);
+        puertosCliente.clear();
+    }
+
+    @AfterAll
+    void pararStub() {
+        stub.stop(0);
+    }
+
+    @Test
+    @DisplayName("Devuelve las puntuaciones del modelo y reutiliza la conexion entre llamadas")
+    void query_reutilizaConexion() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Map<String, Double> scores = imagenAPIPredictor.query(new byte[] {1, 2, 3});
+            assertEquals(0.75, scores.get("LABEL_0"));
+            assertEquals(0.25, scores.get("LABEL_1"));
+        }
+        assertEquals("Bearer token-test", autorizacion);
+        assertEquals(1, puertosCliente.size());
+    }
+
+    @Test
+    @DisplayName("Devuelve las puntuaciones de cada imagen de un lote en orden")
+    void queryBatch_devuelvePuntuacionesEnOrden() throws Exception {
+        respuesta = "[[{\"label\": \"LABEL_0\", \"score\": 0.9}, {\"label\": \"LABEL_1\", \"score\": 0.1}],"
+                + " [{\"label\": \"LABEL_0\", \"score\": 0.2}, {\"label\": \"LABEL_1\", \"score\": 0.8}]]";
+
+        List<Map<String, Double>> scores = imagenAPIPredictor.queryBatch(List.of(new byte[] {1}, new byte[] {2}));
+
+        assertEquals(2, scores.size());
+        assertEquals(0.9, scores.get(0).get("LABEL_0"));
+        assertEquals(0.8, scores.get(1).get("LABEL_1"));
+    }
+
+    @Test
+    @DisplayName("Propaga el error devuelto por el modelo")
+    void query_errorDelModelo() {
+        respuesta = "{\"error\": \"Model is loading\"}";
+
+        Exception e = assertThrows(Exception.class, () -> imagenAPIPredictor.query(new byte[] {1}));
+
+        assertTrue(e.getMessage().contains("Model is loading"));
+    }
+
+    @Test
+    @DisplayName("Rechaza las respuestas que no son 2xx aunque su cuerpo parezca una predicción")
+    void query_respuestaNo2xx_lanzaError() {
+        estado = 503;
+
+        HttpResponseException e = assertThrows(HttpResponseException.class, () -> imagenAPIPredictor.query(new byte[] {1}));
+
+        assertEquals(503, e.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("El límite de conexiones por ruta se aplica al host del predictor")
+    void pool_maximoPorRutaDelPredictor() {
+        PoolingHttpClientConnectionManager conexiones =
+                (PoolingHttpClientConnectionManager) ReflectionTestUtils.getField(imagenAPIPredictor, "conexiones");
+
+        HttpRoute ruta = new HttpRoute(new HttpHost("localhost", stub.getAddress().getPort(), "http"));
+        assertEquals(7, conexiones.getMaxPerRoute(ruta));
+    }
+
+    @Test
+    @DisplayName("Corta la llamada cuando el modelo no responde dentro del timeout de lectura")
+    void query_timeoutDeLectura() {
+        retraso = new CountDownLatch(1);
+        try {
+            assertThrows(SocketTimeoutException.class, () -> imagenAPIPredictor.query(new byte[] {1}));
+        } finally {
+            retraso.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Rechaza las llamadas que superan el maximo de predicciones simultaneas")
+    void query_bulkheadLleno() throws Exception {
+        retraso = new CountDownLatch(1);
+        CompletableFuture<Map<String, Double>> enCurso = CompletableFuture.supplyAsync(() -> {
+            try {
+                return imagenAPIPredictor.query(new byte[] {1});
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        // Esperar a que la primera llamada ocupe el unico permiso
+        while (puertosCliente.isEmpty()) {
+            Thread.sleep(10);
+        }
+        try {
+            assertThrows(TaskRejectedException.class, () -> imagenAPIPredictor.query(new byte[] {2}));
+        } finally {
+            retraso.countDown();
+        }
+        assertEquals(0.75, enCurso.get(5, TimeUnit.SECONDS).get("LABEL_0"));
+    }
+
+    @Test
+    @DisplayName("El predictor remoto envía el contenido de la imagen al modelo")
+    void predictorRemoto_enviaContenidoImagen() throws Exception {
+        Medico medico = repositoryMedico.save(new Medico("12345678A", "Doctor Test", "Radiologia"));
+        Paciente paciente = repositoryPaciente.save(new Paciente("Juan", 30, "2025-06-01", "87654321B", medico));
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        imagenService.uploadImage(new MockMultipartFile("image", "healthy.png", "image/png", contenido), paciente);
+        Imagen imagen = repositoryImagen.getByPacienteId(paciente.getId()).get(0);
+
+        List<Puntuacion> puntuaciones = predictor.predecir(List.of(imagen));
+
+        assertEquals(List.of(new Puntuacion(0.75, 0.25)), puntuaciones);
+        assertEquals(contenido.length, bytesRecibidos);
+    }
+
+    @Test
+    @DisplayName("El predictor remoto indica qué etiqueta falta en la respuesta del modelo")
+    void predictorRemoto_faltaEtiqueta_lanzaIllegalState() throws Exception {
+        respuesta = "[{\"label\": \"LABEL_0\", \"score\": 0.75}]";
+        Medico medico = repositoryMedico.save(new Medico("12345678C", "Doctor Etiqueta", "Radiologia"));
+        Paciente paciente = repositoryPaciente.save(new Paciente("Ana", 40, "2025-06-01", "87654321C", medico));
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        imagenService.uploadImage(new MockMultipartFile("image", "healthy.png", "image/png", contenido), paciente);
+        Imagen imagen = repositoryImagen.getByPacienteId(paciente.getId()).get(0);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> predictor.predecir(List.of(imagen)));
+
+        assertTrue(e.getMessage().contains("LABEL_1"), e.getMessage());
+    }
+}
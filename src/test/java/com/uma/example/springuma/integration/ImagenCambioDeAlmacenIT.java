@@ -0,0 +1,170 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.SpringumaApplication;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.utils.ImageCodec;
+
+/*
+ * Test de integración del cambio de imagen.store.type=database a filesystem: las imágenes subidas
+ * con el almacén en base de datos ya tienen hash pero no fichero, y se siguen leyendo de file_content
+ * hasta que ImageStoreMigration las pasa a disco.
+ */
+class ImagenCambioDeAlmacenIT extends AbstractIntegration {
+
+    private static final Path almacen = Paths.get("target", "imagenes-cambio-it");
+
+    // La aplicacion con el almacen en disco es otro contexto sobre la misma base de datos en memoria
+    private static final String URL = "jdbc:h2:mem:cambio_almacen_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+    @DynamicPropertySource
+    static void configurarBaseDeDatos(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> URL);
+        registry.add("imagen.store.type", () -> "database");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    private byte[] png;
+
+    private byte[] bmp;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // La base de datos y el almacen sobreviven al contexto de cada test; se vacian antes de empezar
+        jdbcTemplate.update("DELETE FROM medico");
+        Files.createDirectories(almacen);
+        try (Stream<Path> ficheros = Files.walk(almacen)) {
+            for (Path fichero : ficheros.filter(Files::isRegularFile).toList()) {
+                Files.delete(fichero);
+            }
+        }
+
+        Medico medico = new Medico("12345678A", "Doctor Test", "Radiologia");
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andReturn().getResponse().getContentAsString();
+        medico = objectMapper.readValue(response, Medico.class);
+
+        Paciente paciente = new Paciente("Juan", 30, "2025-06-01", "87654321B", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        response = this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andReturn().getResponse().getContentAsString();
+        paciente = objectMapper.readValue(response, Paciente[].class)[0];
+
+        // Una se guarda tal cual (identity) y la otra comprimida (deflate-fast)
+        png = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        bmp = Files.readAllBytes(Paths.get("./src/test/resources/no_healthty.png"));
+        subirImagen(paciente, "healthy.png", "image/png", png);
+        subirImagen(paciente, "no_healthty.bmp", "image/bmp", bmp);
+    }
+
+    private void subirImagen(Paciente paciente, String nombre, String tipo, byte[] contenido) throws Exception {
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", nombre, tipo, contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+    }
+
+    private ConfigurableApplicationContext arrancarConAlmacenEnDisco(boolean migrar) {
+        return new SpringApplicationBuilder(SpringumaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + URL,
+                        "--imagen.store.type=filesystem",
+                        "--imagen.store.path=" + almacen,
+                        "--imagen.store.migrate-on-startup=" + migrar);
+    }
+
+    private long ficherosEnAlmacen() throws IOException {
+        try (Stream<Path> ficheros = Files.walk(almacen)) {
+            return ficheros.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private void comprobarDescargas(ConfigurableApplicationContext contexto) throws IOException {
+        ImagenService imagenService = contexto.getBean(ImagenService.class);
+        List<Imagen> imagenes = contexto.getBean(RepositoryImagen.class).findAll();
+        assertEquals(2, imagenes.size());
+        for (Imagen imagen : imagenes) {
+            byte[] esperado = imagen.getNombre().endsWith(".png") ? png : bmp;
+            assertArrayEquals(esperado, imagenService.downloadImage(imagen.getId()), imagen.getNombre());
+        }
+    }
+
+    @Test
+    @DisplayName("Tras pasar a filesystem, las imágenes subidas con el almacén en base de datos se leen de file_content")
+    void cambiarAFileSystem_leeContenidoDeBaseDeDatos() throws Exception {
+        List<Imagen> subidas = repositoryImagen.findAll();
+        assertEquals(2, subidas.size());
+        subidas.forEach(imagen -> assertNotNull(imagen.getContentHash()));
+        assertEquals(Set.of(ImageCodec.IDENTITY.getTag(), ImageCodec.DEFLATE_FAST.getTag()),
+                subidas.stream().map(Imagen::getCodec).collect(Collectors.toSet()));
+
+        try (ConfigurableApplicationContext contexto = arrancarConAlmacenEnDisco(false)) {
+            comprobarDescargas(contexto);
+        }
+        assertEquals(0, ficherosEnAlmacen());
+    }
+
+    @Test
+    @DisplayName("La migración pasa a disco las imágenes subidas con el almacén en base de datos aunque ya tengan hash")
+    void cambiarAFileSystem_migraImagenesConHash() throws Exception {
+        try (ConfigurableApplicationContext contexto = arrancarConAlmacenEnDisco(true)) {
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM imagen WHERE file_content IS NOT NULL", Long.class));
+            assertEquals(2, ficherosEnAlmacen());
+            comprobarDescargas(contexto);
+        }
+    }
+}
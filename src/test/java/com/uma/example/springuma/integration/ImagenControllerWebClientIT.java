@@ -2,13 +2,13 @@
 
 package com.uma.example.springuma.integration;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.uma.example.springuma.integration.base.AbstractIntegration;
-import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.integration.base.Dnis;
+import com.uma.example.springuma.model.ImagenResumen;
 import com.uma.example.springuma.model.Medico;
 import com.uma.example.springuma.model.Paciente;
 
-import jakarta.annotation.PostConstruct;
 import reactor.core.publisher.Mono;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -17,21 +17,36 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.FluxExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
 
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
+// Todos los tests de la clase comparten el contexto y su base de datos en memoria: cada uno da de alta
+// su propio medico y paciente y trabaja con los ids que le devuelve la API
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class ImagenControllerWebClientIT {
 
@@ -43,47 +58,53 @@ public class ImagenControllerWebClientIT {
 
         private Medico medico;
         private Paciente paciente;
-        private Imagen imagen;
 
-        @PostConstruct
-        public void init() {
+        @BeforeEach
+        public void setUp() throws Exception {
                 webTestClient = WebTestClient.bindToServer().baseUrl("http://localhost:" + port)
-                                .responseTimeout(Duration.ofMillis(30000)).build();
+                                .responseTimeout(Duration.ofMillis(30000))
+                                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                                .build();
 
+                // Crea el médico
                 medico = new Medico();
-                medico.setDni("12345678A");
+                medico.setDni(Dnis.nuevo());
                 medico.setNombre("Doctor Test");
                 medico.setEspecialidad("Cardiologia");
-                medico.setId(1);
-
-                paciente = new Paciente();
-                paciente.setNombre("Juan");
-                paciente.setEdad(30);
-                paciente.setCita("2025-06-01");
-                paciente.setDni("87654321B");
-                paciente.setMedico(medico);
-                paciente.setId(1);
-
-                imagen = new Imagen();
-                imagen.setId(1);
-                imagen.setPaciente(paciente);
-        }
-
-        @BeforeEach
-        public void setUp() throws Exception {
-                // Crea el médico
                 this.webTestClient.post().uri("/medico")
                                 .body(Mono.just(medico), Medico.class)
                                 .exchange()
                                 .expectStatus().isCreated()
                                 .expectBody().returnResult();
+                medico = this.webTestClient.get().uri("/medico/dni/" + medico.getDni())
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(Medico.class)
+                                .returnResult().getResponseBody();
 
                 // Crea el paciente
+                paciente = crearPaciente("Juan", 30, Dnis.nuevo());
+        }
+
+        // Da de alta un paciente del médico y lo devuelve con el id que le ha asignado la base de datos
+        private Paciente crearPaciente(String nombre, int edad, String dni) {
+                Paciente nuevo = new Paciente();
+                nuevo.setNombre(nombre);
+                nuevo.setEdad(edad);
+                nuevo.setCita("2025-06-01");
+                nuevo.setDni(dni);
+                nuevo.setMedico(medico);
                 this.webTestClient.post().uri("/paciente")
-                                .body(Mono.just(paciente), Paciente.class)
+                                .body(Mono.just(nuevo), Paciente.class)
                                 .exchange()
                                 .expectStatus().isCreated()
                                 .expectBody().returnResult();
+                Paciente[] pacientes = this.webTestClient.get().uri("/paciente/medico/" + medico.getId())
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(Paciente[].class)
+                                .returnResult().getResponseBody();
+                return Arrays.stream(pacientes).filter(p -> dni.equals(p.getDni())).findFirst().orElseThrow();
         }
 
         @Test
@@ -115,26 +136,16 @@ public class ImagenControllerWebClientIT {
                                 .expectHeader().contentType(MediaType.APPLICATION_JSON)
                                 .expectBody()
                                 .jsonPath("$[0].nombre").isEqualTo("healthy.png")
-                                .jsonPath("$[0].paciente.id").isEqualTo(paciente.getId());
+                                .jsonPath("$[0].pacienteId").isEqualTo(paciente.getId())
+                                .jsonPath("$[0].size").isEqualTo(uploadFile.length())
+                                .jsonPath("$[0].file_content").doesNotExist();
         }
 
         @Test
         @DisplayName("Subir dos imagenes para el mismo paciente debería devolver una respuesta válida que contenga el nombre de ambos archivos")
         void subirDosImagenes_mismoPaciente_devuelveRespuestaValida() throws IOException {
                 // Crea un paciente
-                Paciente paciente2 = new Paciente();
-                paciente2.setNombre("Jorge");
-                paciente2.setEdad(90);
-                paciente2.setCita("2025-06-01");
-                paciente2.setDni("45968724B");
-                paciente2.setMedico(medico);
-                paciente2.setId(2);
-
-                this.webTestClient.post().uri("/paciente")
-                                .body(Mono.just(paciente2), Paciente.class)
-                                .exchange()
-                                .expectStatus().isCreated()
-                                .expectBody().returnResult();
+                Paciente paciente2 = crearPaciente("Jorge", 90, Dnis.nuevo());
 
 
                 File uploadFile1 = new File("./src/test/resources/healthy.png");
@@ -211,6 +222,25 @@ public class ImagenControllerWebClientIT {
         @Test
         @DisplayName("Realizar una predicción de una imagen de un paciente debería devolver un resultado aleatorio")
         void getImagenPrediction() throws IOException {
+                // Sube la imagen
+                long idImagen = subirHealthy();
+
+                // Realiza la predicción
+                FluxExchangeResult<String> responseBody = webTestClient.get()
+                                .uri("/imagen/predict/" + idImagen)
+                                .accept(APPLICATION_JSON)
+                                .exchange()
+                                .expectStatus().is2xxSuccessful()
+                                .returnResult(String.class);
+
+                String result = responseBody.getResponseBody().blockFirst();
+
+                assertEquals(true, result.contains("status"));
+        }
+
+        @Test
+        @DisplayName("Descargar una imagen debería devolver el mismo contenido que se subió")
+        void descargarImagen_devuelveContenidoOriginal() throws IOException {
                 File uploadFile = new File("./src/test/resources/healthy.png");
 
                 MultipartBodyBuilder builder = new MultipartBodyBuilder();
@@ -225,29 +255,40 @@ public class ImagenControllerWebClientIT {
                                 .exchange()
                                 .expectStatus().isOk();
 
-                // Realiza la predicción
-                FluxExchangeResult<String> responseBody = webTestClient.get()
-                                .uri("/imagen/predict/" + paciente.getId())
-                                .accept(APPLICATION_JSON)
+                ImagenResumen[] imagenes = webTestClient.get().uri("/imagen/paciente/" + paciente.getId())
                                 .exchange()
-                                .expectStatus().is2xxSuccessful()
-                                .returnResult(String.class);
+                                .expectStatus().isOk()
+                                .expectBody(ImagenResumen[].class)
+                                .returnResult().getResponseBody();
+                long idImagen = imagenes[imagenes.length - 1].getId();
 
-                String result = responseBody.getResponseBody().blockFirst();
+                // Descarga la imagen
+                byte[] descargada = webTestClient.get()
+                                .uri("/imagen/" + idImagen)
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectHeader().contentType(MediaType.IMAGE_PNG)
+                                .expectBody(byte[].class)
+                                .returnResult().getResponseBody();
 
-                assertEquals(true, result.contains("status"));
+                assertArrayEquals(Files.readAllBytes(uploadFile.toPath()), descargada);
         }
 
         @Test
-        @DisplayName("Eliminar una imagen debería devolver un estado 204 sin contenido")
-        void deleteImagen() throws IOException {
-                File uploadFile = new File("./src/test/resources/healthy.png");
+        @DisplayName("Subir una imagen de varios megas debería almacenarse y descargarse íntegra")
+        void subirImagenGrande_devuelveContenidoOriginal() {
+                byte[] contenido = new byte[5 * 1024 * 1024];
+                new Random(42).nextBytes(contenido);
 
                 MultipartBodyBuilder builder = new MultipartBodyBuilder();
-                builder.part("image", new FileSystemResource(uploadFile));
+                builder.part("image", new ByteArrayResource(contenido) {
+                        @Override
+                        public String getFilename() {
+                                return "grande.png";
+                        }
+                });
                 builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
 
-                // Sube la imagen
                 webTestClient.post()
                                 .uri("/imagen")
                                 .contentType(MediaType.MULTIPART_FORM_DATA)
@@ -255,10 +296,291 @@ public class ImagenControllerWebClientIT {
                                 .exchange()
                                 .expectStatus().isOk();
 
+                ImagenResumen[] imagenes = webTestClient.get().uri("/imagen/paciente/" + paciente.getId())
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(ImagenResumen[].class)
+                                .returnResult().getResponseBody();
+                long idImagen = imagenes[imagenes.length - 1].getId();
+
+                byte[] descargada = webTestClient.get()
+                                .uri("/imagen/" + idImagen)
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(byte[].class)
+                                .returnResult().getResponseBody();
+
+                assertArrayEquals(contenido, descargada);
+        }
+
+        @Test
+        @DisplayName("Las imágenes PNG se guardan sin recomprimir y el resto con deflate, y ambas se descargan íntegras")
+        void subirImagenes_codecSegunTipo() throws IOException {
+                byte[] png = Files.readAllBytes(new File("./src/test/resources/healthy.png").toPath());
+                byte[] crudo = new byte[256 * 1024];
+                new Random(7).nextBytes(crudo);
+
+                for (String[] caso : new String[][] { { "codec.png", "identity" }, { "codec.raw", "deflate-fast" } }) {
+                        byte[] contenido = caso[0].endsWith(".png") ? png : crudo;
+                        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+                        builder.part("image", new ByteArrayResource(contenido) {
+                                @Override
+                                public String getFilename() {
+                                        return caso[0];
+                                }
+                        });
+                        builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+
+                        webTestClient.post()
+                                        .uri("/imagen")
+                                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                                        .body(BodyInserters.fromMultipartData(builder.build()))
+                                        .exchange()
+                                        .expectStatus().isOk();
+
+                        ImagenResumen[] imagenes = webTestClient.get().uri("/imagen/paciente/" + paciente.getId())
+                                        .exchange()
+                                        .expectStatus().isOk()
+                                        .expectBody(ImagenResumen[].class)
+                                        .returnResult().getResponseBody();
+                        long idImagen = imagenes[imagenes.length - 1].getId();
+
+                        webTestClient.get().uri("/imagen/info/" + idImagen)
+                                        .exchange()
+                                        .expectStatus().isOk()
+                                        .expectBody()
+                                        .jsonPath("$.codec").isEqualTo(caso[1]);
+
+                        byte[] descargada = webTestClient.get()
+                                        .uri("/imagen/" + idImagen)
+                                        .exchange()
+                                        .expectStatus().isOk()
+                                        .expectBody(byte[].class)
+                                        .returnResult().getResponseBody();
+                        assertArrayEquals(contenido, descargada);
+                }
+        }
+
+        @Test
+        @DisplayName("Descargar una imagen que no existe debería devolver un error 404")
+        void descargarImagen_noExiste_devuelveNotFound() {
+                webTestClient.get()
+                                .uri("/imagen/999")
+                                .exchange()
+                                .expectStatus().isNotFound();
+        }
+
+        @Test
+        @DisplayName("Eliminar una imagen debería devolver un estado 204 sin contenido")
+        void deleteImagen() throws IOException {
+                // Sube la imagen
+                long idImagen = subirHealthy();
+
                 // Elimina la imagen
                 webTestClient.delete()
-                                .uri("/imagen/" + paciente.getId())
+                                .uri("/imagen/" + idImagen)
                                 .exchange()
                                 .expectStatus().isNoContent();
         }
-}
\ No newline at end of file
+
+        @Test
+        @DisplayName("La miniatura de una imagen debería ser un JPEG reducido que se puede revalidar con su ETag")
+        void miniatura_devuelveJpegReducidoConETag() throws IOException {
+                BufferedImage grande = new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB);
+                for (int x = 0; x < 600; x++) {
+                        for (int y = 0; y < 400; y++) {
+                                grande.setRGB(x, y, (x * 255 / 600) << 16 | (y * 255 / 400) << 8 | ((x ^ y) & 0xff));
+                        }
+                }
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(grande, "png", png);
+
+                MultipartBodyBuilder builder = new MultipartBodyBuilder();
+                builder.part("image", new ByteArrayResource(png.toByteArray()) {
+                        @Override
+                        public String getFilename() {
+                                return "miniatura.png";
+                        }
+                });
+                builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+                webTestClient.post()
+                                .uri("/imagen")
+                                .contentType(MediaType.MULTIPART_FORM_DATA)
+                                .body(BodyInserters.fromMultipartData(builder.build()))
+                                .exchange()
+                                .expectStatus().isOk();
+
+                ImagenResumen[] imagenes = webTestClient.get().uri("/imagen/paciente/" + paciente.getId())
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(ImagenResumen[].class)
+                                .returnResult().getResponseBody();
+                long idImagen = imagenes[imagenes.length - 1].getId();
+
+                EntityExchangeResult<byte[]> miniatura = webTestClient.get()
+                                .uri("/imagen/" + idImagen + "/thumbnail?size=64")
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectHeader().contentType(MediaType.IMAGE_JPEG)
+                                .expectHeader().valueMatches("Cache-Control", ".*max-age=.*")
+                                .expectBody(byte[].class)
+                                .returnResult();
+
+                BufferedImage reducida = ImageIO.read(new ByteArrayInputStream(miniatura.getResponseBody()));
+                assertEquals(64, reducida.getWidth());
+                assertEquals(43, reducida.getHeight());
+                assertTrue(miniatura.getResponseBody().length < png.size() / 10);
+
+                // Con el mismo ETag no se vuelve a enviar
+                webTestClient.get()
+                                .uri("/imagen/" + idImagen + "/thumbnail?size=64")
+                                .ifNoneMatch(miniatura.getResponseHeaders().getETag())
+                                .exchange()
+                                .expectStatus().isNotModified();
+        }
+
+        @Test
+        @DisplayName("Pedir una miniatura de un tamaño no configurado o de una imagen que no existe debería devolver un error")
+        void miniatura_tamanoNoValidoOImagenNoExiste_devuelveError() {
+                webTestClient.get().uri("/imagen/1/thumbnail?size=50")
+                                .exchange()
+                                .expectStatus().isBadRequest();
+
+                webTestClient.get().uri("/imagen/999999/thumbnail?size=64")
+                                .exchange()
+                                .expectStatus().isNotFound();
+        }
+
+        private long subirHealthy() {
+                MultipartBodyBuilder builder = new MultipartBodyBuilder();
+                builder.part("image", new FileSystemResource(new File("./src/test/resources/healthy.png")));
+                builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+                webTestClient.post()
+                                .uri("/imagen")
+                                .contentType(MediaType.MULTIPART_FORM_DATA)
+                                .body(BodyInserters.fromMultipartData(builder.build()))
+                                .exchange()
+                                .expectStatus().isOk();
+
+                ImagenResumen[] imagenes = webTestClient.get().uri("/imagen/paciente/" + paciente.getId())
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(ImagenResumen[].class)
+                                .returnResult().getResponseBody();
+                return imagenes[imagenes.length - 1].getId();
+        }
+
+        @Test
+        @DisplayName("Descargar de nuevo una imagen sin cambios debería devolver 304 por ETag y por fecha")
+        void descargarImagen_sinCambios_devuelveNotModified() {
+                long idImagen = subirHealthy();
+
+                EntityExchangeResult<byte[]> descarga = webTestClient.get()
+                                .uri("/imagen/" + idImagen)
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectHeader().exists("ETag")
+                                .expectHeader().exists("Last-Modified")
+                                .expectHeader().valueEquals("Accept-Ranges", "bytes")
+                                .expectBody(byte[].class)
+                                .returnResult();
+
+                webTestClient.get()
+                                .uri("/imagen/" + idImagen)
+                                .ifNoneMatch(descarga.getResponseHeaders().getETag())
+                                .exchange()
+                                .expectStatus().isNotModified();
+
+                webTestClient.get()
+                                .uri("/imagen/" + idImagen)
+                                .header("If-Modified-Since", descarga.getResponseHeaders().getFirst("Last-Modified"))
+                                .exchange()
+                                .expectStatus().isNotModified();
+        }
+
+        @Test
+        @DisplayName("Descargar un rango de una imagen debería devolver 206 con solo esos bytes")
+        void descargarImagen_rango_devuelveContenidoParcial() throws IOException {
+                byte[] original = Files.readAllBytes(new File("./src/test/resources/healthy.png").toPath());
+                long idImagen = subirHealthy();
+
+                byte[] parte = webTestClient.get()
+                                .uri("/imagen/" + idImagen)
+                                .header("Range", "bytes=100-199")
+                                .exchange()
+                                .expectStatus().isEqualTo(206)
+                                .expectHeader().valueEquals("Content-Range", "bytes 100-199/" + original.length)
+                                .expectBody(byte[].class)
+                                .returnResult().getResponseBody();
+                assertArrayEquals(Arrays.copyOfRange(original, 100, 200), parte);
+
+                byte[] ultimos = webTestClient.get()
+                                .uri("/imagen/" + idImagen)
+                                .header("Range", "bytes=-10")
+                                .exchange()
+                                .expectStatus().isEqualTo(206)
+                                .expectBody(byte[].class)
+                                .returnResult().getResponseBody();
+                assertArrayEquals(Arrays.copyOfRange(original, original.length - 10, original.length), ultimos);
+
+                webTestClient.get()
+                                .uri("/imagen/" + idImagen)
+                                .header("Range", "bytes=" + original.length + "-")
+                                .exchange()
+                                .expectStatus().isEqualTo(416)
+                                .expectHeader().valueEquals("Content-Range", "bytes */" + original.length);
+
+                // Si la imagen no es la que tenia el cliente se envia completa
+                webTestClient.get()
+                                .uri("/imagen/" + idImagen)
+                                .header("Range", "bytes=100-199")
+                                .header("If-Range", "\"otro\"")
+                                .exchange()
+                                .expectStatus().isOk();
+        }
+
+        private JsonNode paginaImagenes(String parametros) {
+                return webTestClient.get().uri("/imagen/paciente/" + paciente.getId() + "/pagina?" + parametros)
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(JsonNode.class)
+                                .returnResult().getResponseBody();
+        }
+
+        @Test
+        @DisplayName("Recorrer las imágenes de un paciente por páginas, por id y por fecha descendente")
+        void getImagenesPaginadas() {
+                long primera = subirHealthy();
+                long segunda = subirHealthy();
+                long tercera = subirHealthy();
+
+                JsonNode pagina = paginaImagenes("tamano=2");
+                assertEquals(2, pagina.get("elementos").size());
+                assertEquals(primera, pagina.get("elementos").get(0).get("id").asLong());
+                assertEquals(segunda, pagina.get("elementos").get(1).get("id").asLong());
+                pagina = paginaImagenes("tamano=2&cursor=" + pagina.get("siguiente").asText());
+                assertEquals(1, pagina.get("elementos").size());
+                assertEquals(tercera, pagina.get("elementos").get(0).get("id").asLong());
+                assertFalse(pagina.hasNonNull("siguiente"));
+
+                // Las subidas del mismo milisegundo quedan ordenadas por id
+                pagina = paginaImagenes("tamano=2&campo=fecha&orden=desc");
+                assertEquals(tercera, pagina.get("elementos").get(0).get("id").asLong());
+                assertEquals(segunda, pagina.get("elementos").get(1).get("id").asLong());
+                pagina = paginaImagenes("tamano=2&cursor=" + pagina.get("siguiente").asText());
+                assertEquals(1, pagina.get("elementos").size());
+                assertEquals(primera, pagina.get("elementos").get(0).get("id").asLong());
+                assertFalse(pagina.hasNonNull("siguiente"));
+
+                JsonNode todas = webTestClient.get().uri("/imagen/pagina?orden=desc")
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(JsonNode.class)
+                                .returnResult().getResponseBody();
+                assertEquals(tercera, todas.get("elementos").get(0).get("id").asLong());
+
+                webTestClient.get().uri("/imagen/pagina?campo=nombre")
+                                .exchange()
+                                .expectStatus().isBadRequest();
+        }
+}
@@ -0,0 +1,311 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.storage.ImageStore;
+import com.uma.example.springuma.utils.ImageCodec;
+import com.uma.example.springuma.utils.ImageUtils;
+
+/*
+ * Test de integración del almacén de imágenes en disco (imagen.store.type=filesystem).
+ */
+class ImagenFileSystemStoreIT extends AbstractIntegration {
+
+    private static final Path almacen = Paths.get("target", "imagenes-it");
+
+    @DynamicPropertySource
+    static void configurarAlmacen(DynamicPropertyRegistry registry) {
+        registry.add("imagen.store.type", () -> "filesystem");
+        registry.add("imagen.store.path", () -> almacen.toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // El almacen sobrevive al contexto de cada test; se vacia antes de empezar
+        try (Stream<Path> ficheros = Files.walk(almacen)) {
+            for (Path fichero : ficheros.filter(Files::isRegularFile).toList()) {
+                Files.delete(fichero);
+            }
+        }
+
+        Medico medico = new Medico("12345678A", "Doctor Test", "Radiologia");
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andReturn().getResponse().getContentAsString();
+        medico = objectMapper.readValue(response, Medico.class);
+
+        paciente = new Paciente("Juan", 30, "2025-06-01", "87654321B", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        response = this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andReturn().getResponse().getContentAsString();
+        paciente = objectMapper.readValue(response, Paciente[].class)[0];
+    }
+
+    private void subirImagen(String nombre, byte[] contenido) throws Exception {
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", nombre, "image/png", contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+    }
+
+    private long ficherosEnAlmacen() throws IOException {
+        try (Stream<Path> ficheros = Files.walk(almacen)) {
+            return ficheros.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    @DisplayName("Subir dos veces la misma imagen guarda un único fichero y ambas se descargan íntegras")
+    void subirImagenDuplicada_compartenFichero() throws Exception {
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+
+        subirImagen("healthy.png", contenido);
+        subirImagen("copia.png", contenido);
+
+        List<Imagen> imagenes = repositoryImagen.getByPacienteId(paciente.getId());
+        assertEquals(2, imagenes.size());
+        assertNotNull(imagenes.get(0).getContentHash());
+        assertEquals(imagenes.get(0).getContentHash(), imagenes.get(1).getContentHash());
+        assertEquals(contenido.length, imagenes.get(0).getContentSize());
+        assertEquals(1, ficherosEnAlmacen());
+
+        for (Imagen imagen : imagenes) {
+            MvcResult resultado = this.mockMvc.perform(get("/imagen/" + imagen.getId()))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            byte[] descargada = this.mockMvc.perform(asyncDispatch(resultado))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray();
+            assertArrayEquals(contenido, descargada);
+        }
+    }
+
+    @Test
+    @DisplayName("El fichero compartido solo se borra al eliminar la última imagen que lo usa")
+    void eliminarImagenes_borraFicheroAlFinal() throws Exception {
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/no_healthty.png"));
+
+        subirImagen("no_healthty.png", contenido);
+        subirImagen("copia.png", contenido);
+        List<Imagen> imagenes = repositoryImagen.getByPacienteId(paciente.getId());
+
+        this.mockMvc.perform(delete("/imagen/" + imagenes.get(0).getId()))
+                .andExpect(status().isNoContent());
+        assertEquals(1, ficherosEnAlmacen());
+
+        this.mockMvc.perform(delete("/imagen/" + imagenes.get(1).getId()))
+                .andExpect(status().isNoContent());
+        assertEquals(0, ficherosEnAlmacen());
+    }
+
+    @Test
+    @DisplayName("Descargar un rango lee solo esa parte del fichero")
+    void descargarRango_devuelveContenidoParcial() throws Exception {
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/no_healthty.png"));
+        subirImagen("no_healthty.png", contenido);
+        Imagen imagen = repositoryImagen.getByPacienteId(paciente.getId()).get(0);
+
+        MvcResult resultado = this.mockMvc.perform(get("/imagen/" + imagen.getId()).header("Range", "bytes=1000-1499"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] parte = this.mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 1000-1499/" + contenido.length))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertArrayEquals(Arrays.copyOfRange(contenido, 1000, 1500), parte);
+    }
+
+    @Test
+    @DisplayName("Descargar una imagen cuyo contenido ya no está devuelve 404 en lugar de una respuesta vacía")
+    void descargarImagen_sinContenido_devuelveNotFound() throws Exception {
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/no_healthty.png"));
+        subirImagen("no_healthty.png", contenido);
+        Imagen imagen = repositoryImagen.getByPacienteId(paciente.getId()).get(0);
+        try (Stream<Path> ficheros = Files.walk(almacen)) {
+            for (Path fichero : ficheros.filter(Files::isRegularFile).toList()) {
+                Files.delete(fichero);
+            }
+        }
+
+        this.mockMvc.perform(get("/imagen/" + imagen.getId()))
+                .andExpect(status().isNotFound());
+        this.mockMvc.perform(get("/imagen/" + imagen.getId()).header("Range", "bytes=0-99"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("El contenido ya codificado de una importación se guarda en disco y reutiliza los ficheros existentes")
+    void guardarCodificado_reutilizaFichero() throws Exception {
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        subirImagen("healthy.png", contenido);
+        Imagen subida = repositoryImagen.getByPacienteId(paciente.getId()).get(0);
+
+        Imagen repetida = new Imagen();
+        repetida.setContentHash(subida.getContentHash());
+        imageStore.saveEncoded(repetida, ImageUtils.compressImage(contenido, Deflater.BEST_SPEED), ImageCodec.DEFLATE_FAST);
+        // El fichero ya existia guardado tal cual: se comparte con su codec
+        assertEquals(subida.getCodec(), repetida.getCodec());
+        assertEquals(1, ficherosEnAlmacen());
+
+        byte[] otro = Files.readAllBytes(Paths.get("./src/test/resources/no_healthty.png"));
+        Imagen nueva = new Imagen();
+        nueva.setNombre("nueva.png");
+        nueva.setPaciente(paciente);
+        nueva.setContentHash(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(otro)));
+        nueva.setContentSize((long) otro.length);
+        imageStore.saveEncoded(nueva, ImageUtils.compressImage(otro, Deflater.BEST_SPEED), ImageCodec.DEFLATE_FAST);
+        assertEquals(ImageCodec.DEFLATE_FAST.getTag(), nueva.getCodec());
+        assertEquals(2, ficherosEnAlmacen());
+
+        nueva = repositoryImagen.save(nueva);
+        assertArrayEquals(otro, imagenService.downloadImage(nueva.getId()));
+    }
+
+    @Test
+    @DisplayName("Si la transacción que guarda la imagen se deshace, su fichero nuevo se borra")
+    void guardarCodificado_transaccionDeshecha_borraFichero() throws Exception {
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/no_healthty.png"));
+        Imagen imagen = new Imagen();
+        imagen.setNombre("deshecha.png");
+        imagen.setPaciente(paciente);
+        imagen.setContentHash(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido)));
+        imagen.setContentSize((long) contenido.length);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            try {
+                imageStore.saveEncoded(imagen, ImageUtils.compressImage(contenido, Deflater.BEST_SPEED), ImageCodec.DEFLATE_FAST);
+                repositoryImagen.save(imagen);
+                assertEquals(1, ficherosEnAlmacen());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            estado.setRollbackOnly();
+        });
+
+        assertEquals(0, repositoryImagen.count());
+        assertEquals(0, ficherosEnAlmacen());
+    }
+
+    @Test
+    @DisplayName("Borrar una imagen espera a la transacción que reutiliza su fichero y no lo borra")
+    void eliminarImagen_subidaEnCurso_conservaFichero() throws Exception {
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        subirImagen("healthy.png", contenido);
+        Imagen original = repositoryImagen.getByPacienteId(paciente.getId()).get(0);
+
+        CountDownLatch reutilizado = new CountDownLatch(1);
+        CountDownLatch confirmar = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            // Otra imagen con el mismo contenido que aun no se ha confirmado
+            Future<Imagen> copia = hilos.submit(() -> new TransactionTemplate(transactionManager).execute(estado -> {
+                Imagen imagen = new Imagen();
+                imagen.setNombre("copia.png");
+                imagen.setPaciente(paciente);
+                imagen.setContentHash(original.getContentHash());
+                imagen.setContentSize(original.getContentSize());
+                try {
+                    imageStore.saveEncoded(imagen, contenido, ImageCodec.IDENTITY);
+                    imagen = repositoryImagen.save(imagen);
+                    reutilizado.countDown();
+                    confirmar.await();
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return imagen;
+            }));
+            assertTrue(reutilizado.await(10, TimeUnit.SECONDS));
+
+            Future<?> borrado = hilos.submit(() -> {
+                imagenService.removeImagenByID(original.getId());
+                return null;
+            });
+            Thread.sleep(300);
+            assertFalse(borrado.isDone());
+
+            confirmar.countDown();
+            Imagen guardada = copia.get(10, TimeUnit.SECONDS);
+            borrado.get(10, TimeUnit.SECONDS);
+
+            assertEquals(1, ficherosEnAlmacen());
+            assertArrayEquals(contenido, imagenService.downloadImage(guardada.getId()));
+        } finally {
+            confirmar.countDown();
+            hilos.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Importacion;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryImportacion;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+import com.uma.example.springuma.utils.ImageCodec;
+
+/*
+ * Test de integración de la importación masiva de imágenes desde un ZIP o un directorio.
+ */
+class ImportacionIT extends AbstractIntegration {
+
+    private static final Path directorio;
+
+    static {
+        try {
+            directorio = Files.createTempDirectory("importaciones");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void configurarImportacion(DynamicPropertyRegistry registry) {
+        registry.add("importacion.directorio", directorio::toString);
+        registry.add("importacion.lote", () -> "2");
+        // Con el almacen en disco las entradas de un bloque con el mismo contenido comparten fichero
+        registry.add("imagen.store.type", () -> "filesystem");
+        registry.add("imagen.store.path", () -> directorio.resolve("almacen").toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RepositoryMedico repositoryMedico;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    @Autowired
+    private RepositoryImportacion repositoryImportacion;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    private Paciente paciente;
+
+    private byte[] healthy;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Medico medico = repositoryMedico.save(new Medico("12345678A", "Doctor Test", "Radiologia"));
+        paciente = repositoryPaciente.save(new Paciente("Juan", 30, "2025-06-01", "87654321B", medico));
+        healthy = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        // El almacen sobrevive al contexto de cada test; se vacia antes de empezar
+        try (Stream<Path> ficheros = Files.walk(directorio.resolve("almacen"))) {
+            for (Path fichero : ficheros.filter(Files::isRegularFile).toList()) {
+                Files.delete(fichero);
+            }
+        }
+    }
+
+    // Cabecera DICOM minima: preambulo de 128 bytes y el prefijo "DICM"
+    private static byte[] dicom() {
+        byte[] datos = new byte[256];
+        System.arraycopy("DICM".getBytes(StandardCharsets.US_ASCII), 0, datos, 128, 4);
+        return datos;
+    }
+
+    private static void escribirEntrada(ZipOutputStream zip, String nombre, byte[] datos) throws IOException {
+        zip.putNextEntry(new ZipEntry(nombre));
+        zip.write(datos);
+        zip.closeEntry();
+    }
+
+    private Importacion esperar(long id) throws Exception {
+        for (int i = 0; i < 200; i++) {
+            Importacion importacion = repositoryImportacion.findById(id).orElseThrow();
+            if (importacion.isTerminada()) {
+                return importacion;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("La importacion " + id + " no ha terminado");
+    }
+
+    @Test
+    @DisplayName("Importa las imágenes de un ZIP y anota las entradas que no se pueden importar")
+    void importarZip() throws Exception {
+        try (OutputStream fichero = Files.newOutputStream(directorio.resolve("hospital.zip"));
+                ZipOutputStream zip = new ZipOutputStream(fichero)) {
+            escribirEntrada(zip, "manifest.csv", ("fichero,dni\n"
+                    + "rx/uno.png,87654321B\n"
+                    + "rx/dos.png,87654321B\n"
+                    + "rx/tres.dcm,87654321B\n"
+                    + "rx/otro.png,00000000Z\n"
+                    + "rx/roto.png,87654321B\n").getBytes(StandardCharsets.UTF_8));
+            escribirEntrada(zip, "rx/uno.png", healthy);
+            escribirEntrada(zip, "rx/dos.png", healthy);
+            escribirEntrada(zip, "rx/tres.dcm", dicom());
+            escribirEntrada(zip, "rx/otro.png", healthy);
+            escribirEntrada(zip, "rx/roto.png", "no es una imagen".getBytes(StandardCharsets.UTF_8));
+        }
+
+        String respuesta = this.mockMvc.perform(post("/importacion")
+                .contentType("application/json")
+                .content("{\"origen\": \"hospital.zip\"}"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        long id = Long.parseLong(respuesta.replaceAll(".*\"id\":(\\d+).*", "$1"));
+
+        Importacion importacion = esperar(id);
+        assertEquals(Importacion.Estado.COMPLETADA, importacion.getEstado());
+        assertEquals(5, importacion.getTotal());
+        assertEquals(5, importacion.getProcesadas());
+        assertEquals(3, importacion.getImportadas());
+        assertEquals(2, importacion.getFallidas());
+        assertTrue(importacion.getErrores().contains("rx/otro.png"));
+        assertTrue(importacion.getErrores().contains("rx/roto.png"));
+
+        this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].nombre").value("uno.png"));
+        String imagenes = this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andReturn().getResponse().getContentAsString();
+        long imagenId = Long.parseLong(imagenes.replaceAll("^\\[\\{\"id\":(\\d+).*", "$1"));
+        assertArrayEquals(healthy, imagenService.downloadImage(imagenId));
+    }
+
+    @Test
+    @DisplayName("Reanudar una importación continúa desde su punto de control")
+    void reanudarDesdePuntoDeControl() throws Exception {
+        Path origen = Files.createDirectories(directorio.resolve("lote"));
+        Files.writeString(origen.resolve("manifest.csv"), "a.png,87654321B\nb.png,87654321B\nc.png,87654321B\n");
+        for (String nombre : new String[] {"a.png", "b.png", "c.png"}) {
+            Files.write(origen.resolve(nombre), healthy);
+        }
+        // Importacion interrumpida despues de guardar el primer bloque de 2 entradas
+        Importacion interrumpida = new Importacion("lote");
+        interrumpida.setEstado(Importacion.Estado.ERROR);
+        interrumpida.setTotal(3);
+        interrumpida.setProcesadas(2);
+        interrumpida.setImportadas(2);
+        long id = repositoryImportacion.save(interrumpida).getId();
+
+        this.mockMvc.perform(post("/importacion/" + id + "/reanudar"))
+                .andExpect(status().isAccepted());
+
+        Importacion importacion = esperar(id);
+        assertEquals(Importacion.Estado.COMPLETADA, importacion.getEstado());
+        assertEquals(3, importacion.getProcesadas());
+        assertEquals(3, importacion.getImportadas());
+        this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].nombre").value("c.png"));
+
+        this.mockMvc.perform(post("/importacion/" + id + "/reanudar"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("Dos entradas de un bloque con el mismo contenido y distinto codec se guardan con el codec del fichero que comparten")
+    void importar_mismoContenidoDistintoCodec() throws Exception {
+        // x.png se guardaria tal cual (identity) y x.gif comprimida (deflate-fast)
+        Path origen = Files.createDirectories(directorio.resolve("repetidas"));
+        Files.writeString(origen.resolve("manifest.csv"), "x.png,87654321B\nx.gif,87654321B\n");
+        Files.write(origen.resolve("x.png"), healthy);
+        Files.write(origen.resolve("x.gif"), healthy);
+
+        String respuesta = this.mockMvc.perform(post("/importacion")
+                .contentType("application/json")
+                .content("{\"origen\": \"repetidas\"}"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        Importacion importacion = esperar(Long.parseLong(respuesta.replaceAll(".*\"id\":(\\d+).*", "$1")));
+        assertEquals(Importacion.Estado.COMPLETADA, importacion.getEstado());
+        assertEquals(2, importacion.getImportadas());
+
+        List<Imagen> imagenes = repositoryImagen.getByPacienteId(paciente.getId());
+        assertEquals(2, imagenes.size());
+        for (Imagen imagen : imagenes) {
+            assertEquals(ImageCodec.IDENTITY.getTag(), imagen.getCodec(), imagen.getNombre());
+            assertArrayEquals(healthy, imagenService.downloadImage(imagen.getId()), imagen.getNombre());
+        }
+    }
+
+    @Test
+    @DisplayName("Un origen fuera del directorio de importaciones devuelve 400")
+    void importar_origenFueraDelDirectorio() throws Exception {
+        this.mockMvc.perform(post("/importacion")
+                .contentType("application/json")
+                .content("{\"origen\": \"../otro\"}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,46 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/*
+ * Test de integración del esquema creado por las migraciones: las búsquedas por clave ajena
+ * y por las columnas de consulta deben resolverse con un índice y no recorriendo la tabla.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class IndicesIT {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @DisplayName("Las búsquedas de los repositorios usan un índice")
+    @ValueSource(strings = {
+            "SELECT * FROM paciente WHERE medico_id = 1",
+            "SELECT * FROM paciente WHERE medico_id = 1 AND id > 0 ORDER BY id",
+            "SELECT * FROM paciente WHERE dni = '12345678A'",
+            "SELECT * FROM medico WHERE dni = '12345678A'",
+            "SELECT id FROM imagen WHERE paciente_id = 1 AND id > 0 ORDER BY id",
+            "SELECT COUNT(*) FROM imagen WHERE content_hash = 'abc'",
+            "SELECT * FROM informe WHERE imagen_id = 1",
+            "SELECT * FROM informe WHERE imagen_id = 1 AND id > 0 ORDER BY id",
+            "SELECT * FROM miniatura WHERE imagen_id = 1 AND tamano = 128",
+            "SELECT * FROM prediccion_job WHERE estado IN ('PENDIENTE', 'EN_CURSO') ORDER BY id"
+    })
+    void busqueda_usaIndice(String consulta) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + consulta, String.class);
+
+        assertFalse(plan.contains("tableScan"), plan);
+        assertTrue(plan.toUpperCase().contains("INDEX") || plan.toUpperCase().contains("IDX_"), plan);
+    }
+}
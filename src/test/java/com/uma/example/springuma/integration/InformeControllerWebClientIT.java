@@ -3,10 +3,14 @@
 package com.uma.example.springuma.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -21,18 +25,22 @@ import org.springframework.test.web.reactive.server.FluxExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.uma.example.springuma.integration.base.Dnis;
 import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
 import com.uma.example.springuma.model.Informe;
 import com.uma.example.springuma.model.Medico;
 import com.uma.example.springuma.model.Paciente;
 
-import jakarta.annotation.PostConstruct;
 import reactor.core.publisher.Mono;
 
 /*
  * Test de integración para el controlador InformeController utilizando WebClient.
  * El informe tiene un atributo String prediccion y un atributo String contenido, además del id.
  */
+// Todos los tests de la clase comparten el contexto y su base de datos en memoria: cada uno da de alta
+// su propio medico y paciente y trabaja con los ids que le devuelve la API
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class InformeControllerWebClientIT {
 
@@ -47,52 +55,49 @@ public class InformeControllerWebClientIT {
         private Informe informe;
         private Imagen imagen;
 
-        @PostConstruct
-        public void init() {
+        @BeforeEach
+        public void setUp() {
                 this.webTestClient = webTestClient.mutate()
                                 .baseUrl("http://localhost:" + port)
                                 .build();
 
-                paciente = new Paciente();
-                paciente.setId(1);
-                paciente.setNombre("Juan");
-                paciente.setEdad(30);
-                paciente.setCita("2025-06-01");
-                paciente.setDni("87654321B");
-
+                // Crea el médico
                 medico = new Medico();
-                medico.setId(1);
-                medico.setDni("12345678A");
+                medico.setDni(Dnis.nuevo());
                 medico.setNombre("Doctor Test");
                 medico.setEspecialidad("Cardiologia");
-
-                imagen = new Imagen();
-                imagen.setId(1);
-                imagen.setPaciente(paciente);
-
-                informe = new Informe();
-                informe.setId(1);
-                informe.setContenido("Informe de prueba");
-                informe.setImagen(imagen);
-        }
-
-        @BeforeEach
-        public void setUp() {
-                // Crea el médico
                 this.webTestClient.post()
                                 .uri("/medico")
                                 .body(Mono.just(medico), Medico.class)
                                 .exchange()
                                 .expectStatus().isCreated()
                                 .expectBody().returnResult();
+                medico = this.webTestClient.get()
+                                .uri("/medico/dni/" + medico.getDni())
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(Medico.class)
+                                .returnResult().getResponseBody();
 
                 // Crea el paciente
+                paciente = new Paciente();
+                paciente.setNombre("Juan");
+                paciente.setEdad(30);
+                paciente.setCita("2025-06-01");
+                paciente.setDni(Dnis.nuevo());
+                paciente.setMedico(medico);
                 this.webTestClient.post()
                                 .uri("/paciente")
                                 .body(Mono.just(paciente), Paciente.class)
                                 .exchange()
                                 .expectStatus().isCreated()
                                 .expectBody().returnResult();
+                paciente = this.webTestClient.get()
+                                .uri("/paciente/medico/" + medico.getId())
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(Paciente[].class)
+                                .returnResult().getResponseBody()[0];
 
                 // Asocia la imagen al paciente y la sube 
                 File uploadFile = new File("./src/test/resources/healthy.png");
@@ -100,13 +105,36 @@ public class InformeControllerWebClientIT {
                 builder.part("image", new FileSystemResource(uploadFile));
                 builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
 
-                FluxExchangeResult<String> responseBody = webTestClient.post()
+                this.webTestClient.post()
                                 .uri("/imagen")
                                 .contentType(MediaType.MULTIPART_FORM_DATA)
                                 .body(BodyInserters.fromMultipartData(builder.build()))
                                 .exchange()
-                                .expectStatus().is2xxSuccessful()
-                                .returnResult(String.class);
+                                .expectStatus().is2xxSuccessful();
+                ImagenResumen[] imagenes = this.webTestClient.get()
+                                .uri("/imagen/paciente/" + paciente.getId())
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(ImagenResumen[].class)
+                                .returnResult().getResponseBody();
+                imagen = new Imagen();
+                imagen.setId(imagenes[0].getId());
+                imagen.setPaciente(paciente);
+
+                informe = new Informe();
+                informe.setContenido("Informe de prueba");
+                informe.setImagen(imagen);
+        }
+
+        // Id del ultimo informe creado de la imagen
+        private long idUltimoInforme() {
+                Informe[] informes = this.webTestClient.get()
+                                .uri("/informe/imagen/" + imagen.getId())
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(Informe[].class)
+                                .returnResult().getResponseBody();
+                return informes[informes.length - 1].getId();
         }
 
         @Test
@@ -122,7 +150,7 @@ public class InformeControllerWebClientIT {
 
                 // Comprueba que el informe se ha creado correctamente 
                 FluxExchangeResult<Informe> responseBody = this.webTestClient.get()
-                                .uri("/informe/1")
+                                .uri("/informe/" + idUltimoInforme())
                                 .exchange()
                                 .expectStatus().is2xxSuccessful()
                                 .returnResult(Informe.class);
@@ -145,28 +173,195 @@ public class InformeControllerWebClientIT {
                                 .expectBody().returnResult();
 
                 // Comprueba que el informe se ha creado correctamente 
+                long id = idUltimoInforme();
                 FluxExchangeResult<Informe> responseBody = this.webTestClient.get()
-                                .uri("/informe/1")
+                                .uri("/informe/" + id)
                                 .exchange()
                                 .expectStatus().is2xxSuccessful()
                                 .returnResult(Informe.class);
 
                 // Borra el informe
                 this.webTestClient.delete()
-                                .uri("/informe/1")
+                                .uri("/informe/" + id)
                                 .exchange()
                                 .expectStatus().isNoContent()
                                 .expectBody().returnResult();
 
                 //Comprueba que el informe se ha borrado correctamente
-                FluxExchangeResult<Informe> responseBody2 = this.webTestClient.get()
-                                .uri("/informe/1")
+                this.webTestClient.get()
+                                .uri("/informe/" + id)
                                 .exchange()
                                 .expectStatus().is2xxSuccessful()
-                                .returnResult(Informe.class);
+                                .expectBody().isEmpty();
+        }
+
+        @Test
+        @DisplayName("Crea varios informes de una imagen en bloque")
+        public void crearInformesBatch() {
+                Informe primero = new Informe();
+                primero.setContenido("Primer informe");
+                primero.setImagen(imagen);
+                Informe segundo = new Informe();
+                segundo.setContenido("Segundo informe");
+                segundo.setImagen(imagen);
+
+                Long[] ids = this.webTestClient.post()
+                                .uri("/informe/batch")
+                                .bodyValue(List.of(primero, segundo))
+                                .exchange()
+                                .expectStatus().isCreated()
+                                .expectBody(Long[].class)
+                                .returnResult().getResponseBody();
+
+                assertEquals(2, ids.length);
+                Informe guardado = this.webTestClient.get()
+                                .uri("/informe/" + ids[1])
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(Informe.class)
+                                .returnResult().getResponseBody();
+                assertEquals("Segundo informe", guardado.getContenido());
+                assertTrue(guardado.getPrediccion() != null);
+        }
+
+        @Test
+        @DisplayName("Crear informes en bloque de una imagen que no existe devuelve 404")
+        public void crearInformesBatch_imagenInexistente() {
+                Imagen inexistente = new Imagen();
+                inexistente.setId(999);
+                Informe informe = new Informe();
+                informe.setContenido("Informe");
+                informe.setImagen(inexistente);
+
+                this.webTestClient.post()
+                                .uri("/informe/batch")
+                                .bodyValue(List.of(informe))
+                                .exchange()
+                                .expectStatus().isNotFound();
+        }
+
+        @Test
+        @DisplayName("Exporta todos los informes en NDJSON, uno por línea")
+        public void exportarInformesNdjson() {
+                Informe segundo = new Informe();
+                segundo.setContenido("Segundo informe");
+                segundo.setImagen(imagen);
+                this.webTestClient.post()
+                                .uri("/informe/batch")
+                                .bodyValue(List.of(this.informe, segundo))
+                                .exchange()
+                                .expectStatus().isCreated();
+
+                String cuerpo = this.webTestClient.get()
+                                .uri("/informe/export")
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectHeader().contentType("application/x-ndjson")
+                                .expectBody(String.class)
+                                .returnResult().getResponseBody();
+
+                // Los informes se exportan en orden de id: los dos ultimos son los recien creados
+                String[] lineas = cuerpo.split("\n");
+                assertTrue(lineas.length >= 2);
+                assertTrue(lineas[lineas.length - 2].contains("\"contenido\":\"Informe de prueba\""));
+                assertTrue(lineas[lineas.length - 1].contains("\"contenido\":\"Segundo informe\""));
+                assertTrue(lineas[lineas.length - 1].contains("\"imagenNombre\":\"healthy.png\""));
+        }
 
-                Informe result = responseBody2.getResponseBody().blockFirst();
-                assertTrue(result == null);
+        @Test
+        @DisplayName("Exporta los informes en CSV con cabecera y campos escapados")
+        public void exportarInformesCsv() {
+                Informe conComas = new Informe();
+                conComas.setContenido("Nodulo, \"sospechoso\"");
+                conComas.setImagen(imagen);
+                this.webTestClient.post()
+                                .uri("/informe/batch")
+                                .bodyValue(List.of(conComas))
+                                .exchange()
+                                .expectStatus().isCreated();
+
+                String cuerpo = this.webTestClient.get()
+                                .uri("/informe/export?formato=csv")
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectHeader().contentTypeCompatibleWith("text/csv")
+                                .expectBody(String.class)
+                                .returnResult().getResponseBody();
+
+                String[] lineas = cuerpo.split("\r\n");
+                assertEquals("id,prediccion,contenido,imagen_id,imagen_nombre,paciente_id", lineas[0]);
+                assertTrue(lineas[lineas.length - 1].contains(",\"Nodulo, \"\"sospechoso\"\"\","));
+                assertTrue(lineas[lineas.length - 1].contains(",healthy.png,"));
+        }
+
+        @Test
+        @DisplayName("Un formato de exportación desconocido devuelve 400")
+        public void exportarInformes_formatoNoValido() {
+                this.webTestClient.get()
+                                .uri("/informe/export?formato=xml")
+                                .exchange()
+                                .expectStatus().isBadRequest();
+        }
+
+        @Test
+        @DisplayName("Recorrer los informes de una imagen por páginas ordenadas por predicción")
+        public void getInformesPaginadosPorPrediccion() {
+                List<Informe> informes = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                        Informe informe = new Informe();
+                        informe.setContenido("Informe " + i);
+                        informe.setImagen(imagen);
+                        informes.add(informe);
+                }
+                this.webTestClient.post()
+                                .uri("/informe/batch")
+                                .bodyValue(informes)
+                                .exchange()
+                                .expectStatus().isCreated();
+
+                List<JsonNode> recorridos = new ArrayList<>();
+                String uri = "/informe/imagen/" + imagen.getId() + "/pagina?tamano=2&campo=prediccion";
+                JsonNode pagina;
+                do {
+                        pagina = this.webTestClient.get()
+                                        .uri(uri)
+                                        .exchange()
+                                        .expectStatus().isOk()
+                                        .expectBody(JsonNode.class)
+                                        .returnResult().getResponseBody();
+                        pagina.get("elementos").forEach(recorridos::add);
+                        uri = "/informe/imagen/" + imagen.getId() + "/pagina?tamano=2&cursor="
+                                        + (pagina.hasNonNull("siguiente") ? pagina.get("siguiente").asText() : "");
+                } while (pagina.hasNonNull("siguiente"));
+
+                // Cada informe sale una vez y en orden de predicción y, a igualdad, de id
+                int totales = this.webTestClient.get()
+                                .uri("/informe/imagen/" + imagen.getId())
+                                .exchange()
+                                .expectBody(Informe[].class)
+                                .returnResult().getResponseBody().length;
+                assertEquals(totales, recorridos.size());
+                assertEquals(totales, new HashSet<>(recorridos.stream().map(i -> i.get("id").asLong()).toList()).size());
+                for (int i = 1; i < recorridos.size(); i++) {
+                        JsonNode anterior = recorridos.get(i - 1);
+                        JsonNode actual = recorridos.get(i);
+                        // Los informes sin predicción van delante
+                        String antes = anterior.hasNonNull("prediccion") ? anterior.get("prediccion").asText() : "";
+                        String despues = actual.hasNonNull("prediccion") ? actual.get("prediccion").asText() : "";
+                        int comparacion = antes.compareTo(despues);
+                        assertTrue(comparacion < 0 || comparacion == 0 && anterior.get("id").asLong() < actual.get("id").asLong());
+                }
+
+                JsonNode ultimos = this.webTestClient.get()
+                                .uri("/informe/pagina?orden=desc&tamano=1")
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectBody(JsonNode.class)
+                                .returnResult().getResponseBody();
+                assertEquals(1, ultimos.get("elementos").size());
+                assertEquals(recorridos.stream().mapToLong(i -> i.get("id").asLong()).max().getAsLong(),
+                                ultimos.get("elementos").get(0).get("id").asLong());
+                assertFalse(ultimos.get("siguiente").asText().isEmpty());
         }
 
 }
@@ -2,16 +2,27 @@
 
 package com.uma.example.springuma.integration;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uma.example.springuma.integration.base.AbstractIntegration;
 import com.uma.example.springuma.model.Medico;
 
+import jakarta.persistence.EntityManagerFactory;
+
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -30,6 +41,9 @@ class MedicoControllerMockMvcIT extends AbstractIntegration {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private Medico crearMedico() throws Exception {
         Medico medico = new Medico();
         medico.setId(1);
@@ -118,10 +132,97 @@ class MedicoControllerMockMvcIT extends AbstractIntegration {
         Medico medico = crearMedico();
 
         // Elimina el médico
-        this.mockMvc.perform(delete("/medico/" + medico.getId()));
+        this.mockMvc.perform(delete("/medico/" + medico.getId()))
+                .andExpect(status().isOk());
 
         // Verifica que el médico ya no existe
         this.mockMvc.perform(get("/medico/" + medico.getId()))
                 .andExpect(status().is5xxServerError());
+        this.mockMvc.perform(delete("/medico/" + medico.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Crear médicos en bloque agrupa los inserts y las llamadas a la secuencia")
+    void createMedicosBatch() throws Exception {
+        List<Medico> medicos = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            medicos.add(new Medico(String.format("%08dX", i), "Medico " + i, "Radiologia"));
+        }
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        String ids = this.mockMvc.perform(post("/medico/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medicos)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(120)))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(120, estadisticas.getEntityInsertCount());
+        // 3 batches de inserts y 3 bloques de ids de la secuencia, en lugar de una sentencia por medico
+        assertTrue(estadisticas.getPrepareStatementCount() <= 6, "Sentencias: " + estadisticas.getPrepareStatementCount());
+        long primero = objectMapper.readValue(ids, Long[].class)[0];
+        this.mockMvc.perform(get("/medico/" + primero))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dni").value("00000000X"));
+    }
+
+    @Test
+    @DisplayName("Si un médico del bloque ya existe no se guarda ninguno")
+    void createMedicosBatch_dniRepetido() throws Exception {
+        List<Medico> medicos = List.of(
+                new Medico("11111111A", "Uno", "Radiologia"),
+                new Medico("11111111A", "Otro", "Radiologia"));
+
+        this.mockMvc.perform(post("/medico/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medicos)))
+                .andExpect(status().isConflict());
+
+        this.mockMvc.perform(get("/medico/dni/11111111A"))
+                .andExpect(status().isNotFound());
+    }
+
+    // Dnis de todas las paginas de dos en dos por nombre, siguiendo el cursor
+    private List<String> recorrerPorNombre(String orden) throws Exception {
+        List<String> dnis = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder peticion = get("/medico/pagina")
+                    .param("campo", "nombre").param("orden", orden).param("tamano", "2");
+            if (cursor != null) {
+                peticion.param("cursor", cursor);
+            }
+            JsonNode pagina = objectMapper.readTree(this.mockMvc.perform(peticion)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            pagina.get("elementos").forEach(medico -> dnis.add(medico.get("dni").asText()));
+            cursor = pagina.hasNonNull("siguiente") ? pagina.get("siguiente").asText() : null;
+        } while (cursor != null);
+        return dnis;
+    }
+
+    @Test
+    @DisplayName("Recorrer los médicos ordenados por nombre, con nombres repetidos y sin nombre")
+    void getMedicosPaginadosPorNombre() throws Exception {
+        List<Medico> medicos = List.of(
+                new Medico("11111111A", "Beatriz", "Radiologia"),
+                new Medico("22222222B", null, "Radiologia"),
+                new Medico("33333333C", "Ana", "Radiologia"),
+                new Medico("44444444D", "Beatriz", "Radiologia"),
+                new Medico("55555555E", null, "Radiologia"));
+        this.mockMvc.perform(post("/medico/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medicos)))
+                .andExpect(status().isCreated());
+
+        // Los que no tienen nombre van primero y, a igualdad de nombre, por id
+        assertEquals(List.of("22222222B", "55555555E", "33333333C", "11111111A", "44444444D"), recorrerPorNombre("asc"));
+        assertEquals(List.of("44444444D", "11111111A", "33333333C", "55555555E", "22222222B"), recorrerPorNombre("desc"));
+
+        this.mockMvc.perform(get("/medico/pagina").param("campo", "especialidad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Campo de orden no valido")));
     }
-}
\ No newline at end of file
+}
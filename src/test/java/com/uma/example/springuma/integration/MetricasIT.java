@@ -0,0 +1,175 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.utils.DataSourceMedido;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Test de integración de las métricas de acceso a datos publicadas en /actuator/prometheus.
+ */
+@AutoConfigureObservability
+@ExtendWith(OutputCaptureExtension.class)
+@TestPropertySource(properties = "metricas.sql.umbral-lenta-ms=0")
+class MetricasIT extends AbstractIntegration {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Medico medico;
+
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        medico = new Medico("12345678M", "Medico Metricas", "Radiologia");
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andReturn().getResponse().getContentAsString();
+        medico = objectMapper.readValue(response, Medico.class);
+
+        paciente = new Paciente("Paciente Metricas", 40, "2025-06-01", "87654321P", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        response = this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andReturn().getResponse().getContentAsString();
+        paciente = objectMapper.readValue(response, Paciente[].class)[0];
+
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", "healthy.png", "image/png", contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+    }
+
+    // Sin cache de segundo nivel, para que cada consulta llegue a la base de datos
+    private Statistics vaciarCaches() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAll();
+        sessionFactory.getCache().evictQueryRegions();
+        Statistics estadisticas = sessionFactory.getStatistics();
+        estadisticas.clear();
+        return estadisticas;
+    }
+
+    private String prometheus() throws Exception {
+        return this.mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    // Valor de la primera serie con ese nombre que contiene todas las etiquetas dadas
+    private double valor(String prometheus, String nombre, String... etiquetas) {
+        for (String linea : prometheus.split("\n")) {
+            if (!linea.startsWith(nombre + "{") && !linea.startsWith(nombre + " ")) {
+                continue;
+            }
+            boolean coincide = true;
+            for (String etiqueta : etiquetas) {
+                coincide &= linea.contains(etiqueta);
+            }
+            if (coincide) {
+                return Double.parseDouble(linea.substring(linea.lastIndexOf(' ') + 1));
+            }
+        }
+        throw new AssertionError("No hay serie " + nombre + " con " + String.join(", ", etiquetas));
+    }
+
+    @Test
+    @DisplayName("Las sentencias se miden en el DataSource y el pool de Hikari sigue accesible")
+    void dataSourceMedido() throws Exception {
+        assertTrue(dataSource.isWrapperFor(DataSourceMedido.class));
+        assertNotNull(dataSource.unwrap(HikariDataSource.class));
+        assertInstanceOf(DataSourceMedido.class, dataSource.unwrap(DataSourceMedido.class));
+    }
+
+    @Test
+    @DisplayName("Cada endpoint publica sus sentencias SQL y coinciden con las de Hibernate")
+    void sentenciasPorEndpoint() throws Exception {
+        Statistics estadisticas = vaciarCaches();
+        for (int i = 0; i < 3; i++) {
+            this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                    .andExpect(status().isOk());
+        }
+
+        String prometheus = prometheus();
+        String uri = "uri=\"/imagen/paciente/{id}\"";
+        assertEquals(3.0, valor(prometheus, "sql_peticion_sentencias_count", uri, "method=\"GET\"", "status=\"200\""));
+        assertEquals(estadisticas.getPrepareStatementCount(), valor(prometheus, "sql_peticion_sentencias_sum", uri));
+        assertTrue(valor(prometheus, "sql_peticion_tiempo_seconds_sum", uri) > 0);
+        assertTrue(prometheus.contains("sql_peticion_sentencias_bucket{"));
+        assertTrue(valor(prometheus, "sql_sentencias_seconds_count", "tipo=\"select\"", "resultado=\"ok\"") >= 3);
+        assertTrue(valor(prometheus, "sql_sentencias_seconds_count", "tipo=\"insert\"") >= 3);
+    }
+
+    @Test
+    @DisplayName("Se publican las invocaciones por repositorio, Hibernate y el pool de conexiones")
+    void metricasDeSpringBoot() throws Exception {
+        this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andExpect(status().isOk());
+
+        String prometheus = prometheus();
+        assertTrue(valor(prometheus, "spring_data_repository_invocations_seconds_count",
+                "repository=\"RepositoryImagen\"", "method=\"findResumenByPacienteId\"", "state=\"SUCCESS\"") >= 1);
+        assertTrue(valor(prometheus, "hibernate_statements_total", "status=\"prepared\"") > 0);
+        assertTrue(valor(prometheus, "hikaricp_connections_max") > 0);
+    }
+
+    @Test
+    @DisplayName("Las sentencias por encima del umbral se escriben en el log con la petición")
+    void sentenciasLentas(CapturedOutput salida) throws Exception {
+        vaciarCaches();
+        this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andExpect(status().isOk());
+
+        assertTrue(salida.getOut().contains("Sentencia lenta"));
+        assertTrue(salida.getOut().contains("en GET /paciente/medico/" + medico.getId() + ": select"));
+        assertTrue(valor(prometheus(), "sql_sentencias_lentas_total", "tipo=\"select\"") >= 1);
+    }
+}
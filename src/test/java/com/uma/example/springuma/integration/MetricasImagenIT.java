@@ -0,0 +1,148 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Test de integración de las métricas de subida, almacenamiento y predicción de imágenes.
+ */
+@AutoConfigureObservability
+class MetricasImagenIT extends AbstractIntegration {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Medico medico = new Medico("12345678M", "Medico Metricas", "Radiologia");
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andReturn().getResponse().getContentAsString();
+        medico = objectMapper.readValue(response, Medico.class);
+
+        paciente = new Paciente("Paciente Metricas", 40, "2025-06-01", "87654321P", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        response = this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andReturn().getResponse().getContentAsString();
+        paciente = objectMapper.readValue(response, Paciente[].class)[0];
+    }
+
+    private long subir(String nombre, String tipo, byte[] contenido) throws Exception {
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", nombre, tipo, contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+        String response = this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andReturn().getResponse().getContentAsString();
+        for (JsonNode imagen : objectMapper.readTree(response)) {
+            if (nombre.equals(imagen.get("nombre").asText())) {
+                return imagen.get("id").asLong();
+            }
+        }
+        throw new AssertionError("No se ha subido " + nombre);
+    }
+
+    private long cuenta(String nombre, String... etiquetas) {
+        return registro.find(nombre).tags(etiquetas).timers().stream().mapToLong(Timer::count).sum();
+    }
+
+    @Test
+    @DisplayName("La subida y la descarga se miden por etapa con el codec y el almacen")
+    void subidaYDescarga() throws Exception {
+        byte[] contenido = "0123456789".repeat(10_000).getBytes();
+        long id = subir("datos.bin", "application/octet-stream", contenido);
+
+        assertEquals(1, cuenta("imagen.subida", "resultado", "ok"));
+        assertEquals(1, cuenta("imagen.codificacion", "codec", "deflate-fast"));
+        assertEquals(1, cuenta("imagen.escritura", "almacen", "database", "resultado", "ok"));
+        assertTrue(registro.get("imagen.compresion.ratio").tag("codec", "deflate-fast").summary().mean() > 1);
+        assertEquals(contenido.length, registro.get("imagen.bytes").tags("tipo", "entrada", "codec", "deflate-fast")
+                .summary().totalAmount());
+
+        MvcResult descarga = this.mockMvc.perform(get("/imagen/" + id)).andReturn();
+        this.mockMvc.perform(asyncDispatch(descarga)).andExpect(status().isOk());
+
+        assertEquals(1, cuenta("imagen.descarga", "resultado", "ok"));
+        assertEquals(1, cuenta("imagen.lectura", "almacen", "database", "resultado", "ok"));
+        assertEquals(1, cuenta("imagen.decodificacion", "codec", "deflate-fast"));
+        assertEquals(contenido.length, registro.get("imagen.bytes").tags("tipo", "decodificados", "codec", "deflate-fast")
+                .summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Las predicciones se miden por origen y la inferencia por modelo")
+    void predicciones() throws Exception {
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        long id = subir("healthy.png", "image/png", contenido);
+        assertEquals(1, cuenta("imagen.codificacion", "codec", "identity"));
+
+        this.mockMvc.perform(get("/imagen/predict/" + id)).andExpect(status().isOk());
+        Imagen imagen = new Imagen();
+        imagen.setId(id);
+        this.mockMvc.perform(post("/informe")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(new Informe(null, "Informe metricas", imagen))))
+                .andExpect(status().isCreated());
+
+        assertEquals(2, cuenta("prediccion", "resultado", "ok"));
+        assertEquals(1, cuenta("prediccion", "origen", "informe", "resultado", "ok"));
+        assertEquals(1, cuenta("prediccion.inferencia", "modelo", "random", "resultado", "ok"));
+        assertEquals(1.0, registro.get("prediccion.cache").tags("modelo", "random", "resultado", "acierto").counter().count());
+
+        assertThrows(IllegalArgumentException.class, () -> imagenService.getNewPrediccion(999L));
+        assertEquals(1, cuenta("prediccion", "origen", "imagen", "resultado", "error"));
+
+        String prometheus = this.mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(prometheus.contains("imagen_subida_seconds_count{"));
+        assertTrue(prometheus.contains("prediccion_inferencia_seconds_count{"));
+    }
+}
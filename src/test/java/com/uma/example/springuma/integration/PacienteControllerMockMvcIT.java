@@ -6,12 +6,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uma.example.springuma.integration.base.AbstractIntegration;
 import com.uma.example.springuma.model.Medico;
 import com.uma.example.springuma.model.Paciente;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -162,6 +167,106 @@ class PacienteControllerMockMvcIT extends AbstractIntegration {
                 .andExpect(jsonPath("$[1].medico.id").value(medico.getId()));
     }
 
+    @Test
+    @DisplayName("Recorrer los pacientes de un médico por páginas con el cursor")
+    void getPacientesDeMedico_paginado() throws Exception {
+        String[] dnis = {"11111111A", "22222222B", "33333333C"};
+        for (String dni : dnis) {
+            Paciente paciente = new Paciente("Paciente " + dni, 30, "2025-06-01", dni, medico);
+            this.mockMvc.perform(post("/paciente")
+                    .contentType("application/json")
+                    .content(objectMapper.writeValueAsString(paciente)))
+                    .andExpect(status().isCreated());
+        }
+
+        String primera = this.mockMvc.perform(get("/paciente/medico/" + medico.getId() + "/pagina").param("tamano", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos.length()").value(2))
+                .andExpect(jsonPath("$.elementos[0].dni").value("11111111A"))
+                .andExpect(jsonPath("$.elementos[1].dni").value("22222222B"))
+                .andExpect(jsonPath("$.siguiente").isString())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(primera).get("siguiente").asText();
+
+        this.mockMvc.perform(get("/paciente/medico/" + medico.getId() + "/pagina").param("tamano", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos.length()").value(1))
+                .andExpect(jsonPath("$.elementos[0].dni").value("33333333C"))
+                .andExpect(jsonPath("$.siguiente").doesNotExist());
+
+        this.mockMvc.perform(get("/paciente/pagina").param("orden", "desc").param("tamano", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos[0].dni").value("33333333C"))
+                .andExpect(jsonPath("$.siguiente").isString());
+    }
+
+    @Test
+    @DisplayName("Un cursor no válido devuelve 400")
+    void getPacientesPaginado_cursorNoValido() throws Exception {
+        this.mockMvc.perform(get("/paciente/pagina").param("cursor", "no-es-un-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Exporta los pacientes en CSV con su médico")
+    void exportarPacientesCsv() throws Exception {
+        this.mockMvc.perform(post("/paciente/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(List.of(
+                        new Paciente("Juan", 30, "2025-06-01", "11111111A", medico),
+                        new Paciente("Paco", 40, "2025-07-01", "22222222B", medico)))))
+                .andExpect(status().isCreated());
+
+        MvcResult resultado = this.mockMvc.perform(get("/paciente/export").param("formato", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = this.mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"pacientes.csv\""))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lineas = csv.split("\r\n");
+        assertEquals(3, lineas.length);
+        assertEquals("id,nombre,edad,cita,dni,medico_id,medico_dni", lineas[0]);
+        assertTrue(lineas[2].endsWith(",Paco,40,2025-07-01,22222222B," + medico.getId() + ",12345678A"));
+    }
+
+    @Test
+    @DisplayName("Crear varios pacientes de un médico en bloque")
+    void createPacientesBatch() throws Exception {
+        List<Paciente> pacientes = List.of(
+                new Paciente("Juan", 30, "2025-06-01", "11111111A", medico),
+                new Paciente("Paco", 40, "2025-07-01", "22222222B", medico));
+
+        this.mockMvc.perform(post("/paciente/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(pacientes)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].dni").value("22222222B"));
+    }
+
+    @Test
+    @DisplayName("Si un paciente del bloque ya existe no se guarda ninguno y devuelve 409")
+    void createPacientesBatch_dniRepetido() throws Exception {
+        List<Paciente> pacientes = List.of(
+                new Paciente("Juan", 30, "2025-06-01", "11111111A", medico),
+                new Paciente("Paco", 40, "2025-07-01", "11111111A", medico));
+
+        this.mockMvc.perform(post("/paciente/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(pacientes)))
+                .andExpect(status().isConflict());
+
+        this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
     @Test
     @DisplayName("Eliminar un paciente")
     void deletePaciente() throws Exception {
@@ -171,6 +276,8 @@ class PacienteControllerMockMvcIT extends AbstractIntegration {
                 .andExpect(status().isOk());
 
         this.mockMvc.perform(get("/paciente/" + paciente.getId()))
-                .andExpect(status().is5xxServerError());
+                .andExpect(status().isNotFound());
+        this.mockMvc.perform(delete("/paciente/" + paciente.getId()))
+                .andExpect(status().isNotFound());
     }
 }
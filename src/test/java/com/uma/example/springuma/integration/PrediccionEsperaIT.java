@@ -0,0 +1,149 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PrediccionBatcher;
+import com.uma.example.springuma.model.PrediccionJob;
+
+import jakarta.persistence.EntityNotFoundException;
+
+/*
+ * Test de integración del tiempo máximo de espera de una predicción.
+ */
+class PrediccionEsperaIT extends AbstractIntegration {
+
+    // El lote espera a otras predicciones mucho mas de lo que la peticion espera su resultado
+    @DynamicPropertySource
+    static void configurarEspera(DynamicPropertyRegistry registry) {
+        registry.add("prediccion.batch.max-wait-ms", () -> "5000");
+        registry.add("prediccion.espera-ms", () -> "100");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PrediccionBatcher prediccionBatcher;
+
+    private long idImagen;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Medico medico = new Medico("12345678E", "Medico Espera", "Radiologia");
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andReturn().getResponse().getContentAsString();
+        medico = objectMapper.readValue(response, Medico.class);
+
+        Paciente paciente = new Paciente("Paciente Espera", 40, "2025-06-01", "87654321E", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        response = this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andReturn().getResponse().getContentAsString();
+        paciente = objectMapper.readValue(response, Paciente[].class)[0];
+
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", "healthy.png", "image/png", contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+        response = this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andReturn().getResponse().getContentAsString();
+        idImagen = objectMapper.readValue(response, ImagenResumen[].class)[0].getId();
+    }
+
+    @Test
+    @DisplayName("Una predicción que tarda más que prediccion.espera-ms devuelve 504")
+    void predecir_tardaDemasiado_devuelveGatewayTimeout() throws Exception {
+        this.mockMvc.perform(get("/imagen/predict/" + idImagen))
+                .andExpect(status().isGatewayTimeout());
+    }
+
+    @Test
+    @DisplayName("Una predicción por lotes que tarda más que prediccion.espera-ms devuelve 504")
+    void predecirLote_tardaDemasiado_devuelveGatewayTimeout() throws Exception {
+        this.mockMvc.perform(post("/imagen/predict/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(List.of(idImagen))))
+                .andExpect(status().isGatewayTimeout());
+    }
+
+    @Test
+    @DisplayName("Un trabajo cuya predicción tarda más que prediccion.espera-ms termina con error")
+    void lanzarPrediccion_tardaDemasiado_terminaConError() throws Exception {
+        String response = this.mockMvc.perform(post("/imagen/predict/" + idImagen))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readValue(response, PrediccionJob.class).getId();
+
+        PrediccionJob job = null;
+        for (int intento = 0; intento < 50 && (job == null || !job.isTerminado()); intento++) {
+            Thread.sleep(100);
+            response = this.mockMvc.perform(get("/prediccion/" + id))
+                    .andReturn().getResponse().getContentAsString();
+            job = objectMapper.readValue(response, PrediccionJob.class);
+        }
+
+        assertEquals(PrediccionJob.Estado.ERROR, job.getEstado());
+        assertTrue(job.getError().contains("100 ms"), job.getError());
+    }
+
+    @Test
+    @DisplayName("Una predicción encolada de una imagen que ya no existe termina con EntityNotFoundException, no con null")
+    void submit_imagenNoExiste_terminaConNoEncontrada() {
+        CompletableFuture<String> futuro = prediccionBatcher.submit(idImagen + 1000);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> futuro.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(EntityNotFoundException.class, e.getCause());
+    }
+
+    @Test
+    @DisplayName("Al detener el agrupador, las predicciones pendientes terminan con error en lugar de esperar para siempre")
+    void detener_terminaPendientes() throws Exception {
+        CompletableFuture<String> enCola = prediccionBatcher.submit(idImagen);
+
+        prediccionBatcher.detener();
+        CompletableFuture<String> tardia = prediccionBatcher.submit(idImagen);
+
+        for (CompletableFuture<String> futuro : List.of(enCola, tardia)) {
+            assertThrows(Exception.class, () -> futuro.get(1, TimeUnit.SECONDS));
+            assertTrue(futuro.isCompletedExceptionally());
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.uma.example.springuma.integration;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PrediccionCache;
+import com.uma.example.springuma.model.PrediccionJob;
+import com.uma.example.springuma.model.RepositoryPrediccionGuardada;
+import com.uma.example.springuma.model.RepositoryPrediccionJob;
+
+/*
+ * Test de integración de las predicciones en segundo plano y por lotes.
+ */
+class PrediccionJobIT extends AbstractIntegration {
+
+    @DynamicPropertySource
+    static void configurarCache(DynamicPropertyRegistry registry) {
+        registry.add("prediccion.cache.persistente", () -> "true");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PrediccionCache prediccionCache;
+
+    @Autowired
+    private RepositoryPrediccionGuardada repositoryPrediccionGuardada;
+
+    @Autowired
+    private RepositoryPrediccionJob repositoryPrediccionJob;
+
+    private long idImagen;
+
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Medico medico = new Medico("12345678A", "Doctor Test", "Radiologia");
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andReturn().getResponse().getContentAsString();
+        medico = objectMapper.readValue(response, Medico.class);
+
+        paciente = new Paciente("Juan", 30, "2025-06-01", "87654321B", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        response = this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andReturn().getResponse().getContentAsString();
+        paciente = objectMapper.readValue(response, Paciente[].class)[0];
+
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", "healthy.png", "image/png", contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+        response = this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andReturn().getResponse().getContentAsString();
+        idImagen = objectMapper.readValue(response, ImagenResumen[].class)[0].getId();
+    }
+
+    // Consulta el trabajo hasta que termina
+    private PrediccionJob esperarJob(long id) throws Exception {
+        for (int intento = 0; intento < 100; intento++) {
+            String response = this.mockMvc.perform(get("/prediccion/" + id))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            PrediccionJob job = objectMapper.readValue(response, PrediccionJob.class);
+            if (job.isTerminado()) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("La prediccion " + id + " no ha terminado");
+    }
+
+    @Test
+    @DisplayName("Lanzar una predicción devuelve 202 y el trabajo termina con el resultado")
+    void lanzarPrediccion_terminaConResultado() throws Exception {
+        String response = this.mockMvc.perform(post("/imagen/predict/" + idImagen))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.imagenId").value(idImagen))
+                .andReturn().getResponse().getContentAsString();
+        PrediccionJob job = objectMapper.readValue(response, PrediccionJob.class);
+
+        job = esperarJob(job.getId());
+
+        assertEquals(PrediccionJob.Estado.COMPLETADA, job.getEstado());
+        assertTrue(job.getResultado().contains("status"));
+    }
+
+    @Test
+    @DisplayName("Lanzar una predicción de una imagen que no existe devuelve 404")
+    void lanzarPrediccion_imagenNoExiste_devuelveNotFound() throws Exception {
+        this.mockMvc.perform(post("/imagen/predict/999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Crear un informe en segundo plano le asigna la predicción al terminar")
+    void crearInformeAsync_asignaPrediccion() throws Exception {
+        Imagen imagen = new Imagen();
+        imagen.setId(idImagen);
+        Informe informe = new Informe(null, "Informe de prueba", imagen);
+
+        String response = this.mockMvc.perform(post("/informe/async")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(informe)))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        PrediccionJob job = esperarJob(objectMapper.readValue(response, PrediccionJob.class).getId());
+
+        assertEquals(PrediccionJob.Estado.COMPLETADA, job.getEstado());
+        this.mockMvc.perform(get("/informe/" + job.getInformeId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.prediccion").value(job.getResultado()));
+    }
+
+    @Test
+    @DisplayName("Predecir un lote de imágenes devuelve una predicción por imagen")
+    void predecirLote_devuelvePrediccionPorImagen() throws Exception {
+        this.mockMvc.perform(post("/imagen/predict/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(List.of(idImagen, idImagen))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$['" + idImagen + "']").value(containsString("status")));
+    }
+
+    @Test
+    @DisplayName("Predecir un lote con imágenes que no existen devuelve 404")
+    void predecirLote_imagenNoExiste_devuelveNotFound() throws Exception {
+        this.mockMvc.perform(post("/imagen/predict/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(List.of(idImagen, 999L))))
+                .andExpect(status().isNotFound());
+    }
+
+    private String predecir(long id) throws Exception {
+        return this.mockMvc.perform(get("/imagen/predict/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Test
+    @DisplayName("Predecir una imagen que no existe devuelve 404")
+    void predecir_imagenNoExiste_devuelveNotFound() throws Exception {
+        this.mockMvc.perform(get("/imagen/predict/999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Repetir la predicción de una imagen devuelve el resultado guardado")
+    void predecirDosVeces_devuelveMismoResultado() throws Exception {
+        String primera = predecir(idImagen);
+
+        assertEquals(primera, predecir(idImagen));
+        assertEquals(1, repositoryPrediccionGuardada.count());
+        // Sin la cache en memoria se recupera de la tabla
+        prediccionCache.vaciar();
+        assertEquals(primera, predecir(idImagen));
+    }
+
+    @Test
+    @DisplayName("Una imagen subida dos veces con el mismo contenido reutiliza la predicción")
+    void predecirImagenDuplicada_devuelveMismoResultado() throws Exception {
+        String primera = predecir(idImagen);
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", "copia.png", "image/png", contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+        String response = this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andReturn().getResponse().getContentAsString();
+        long idCopia = objectMapper.readValue(response, ImagenResumen[].class)[1].getId();
+
+        assertNotEquals(idImagen, idCopia);
+        assertEquals(primera, predecir(idCopia));
+    }
+
+    @Test
+    @DisplayName("Suscribirse a un trabajo ya terminado envía el evento en el momento")
+    void suscribirTrabajoTerminado_recibeEvento() throws Exception {
+        String response = this.mockMvc.perform(post("/imagen/predict/" + idImagen))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        PrediccionJob job = esperarJob(objectMapper.readValue(response, PrediccionJob.class).getId());
+
+        String eventos = this.mockMvc.perform(get("/prediccion/" + job.getId() + "/eventos"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(eventos.contains("event:prediccion"));
+        assertTrue(eventos.contains("\"estado\":\"COMPLETADA\""));
+    }
+
+    @Test
+    @DisplayName("Un error más largo que la columna se guarda recortado")
+    void errorLargo_seGuardaRecortado() {
+        PrediccionJob job = new PrediccionJob(idImagen, null);
+        job.setEstado(PrediccionJob.Estado.ERROR);
+        job.setError("x".repeat(PrediccionJob.LONGITUD_TEXTO * 2));
+        job = repositoryPrediccionJob.saveAndFlush(job);
+
+        assertEquals(PrediccionJob.LONGITUD_TEXTO, repositoryPrediccionJob.findById(job.getId()).get().getError().length());
+    }
+}
@@ -0,0 +1,88 @@
+package com.uma.example.springuma.integration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+
+/*
+ * Test de integración de las predicciones síncronas que el servicio externo rechaza por saturación.
+ */
+class PrediccionRechazadaIT extends AbstractIntegration {
+
+    // Con el servicio externo sin llamadas disponibles toda prediccion se rechaza sin salir a la red
+    @DynamicPropertySource
+    static void configurarPredictor(DynamicPropertyRegistry registry) {
+        registry.add("prediccion.predictor", () -> "remoto");
+        registry.add("prediccion.api.max-concurrentes", () -> "0");
+        registry.add("prediccion.api.espera-ms", () -> "0");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private long idImagen;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Medico medico = new Medico("12345678R", "Medico Rechazo", "Radiologia");
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isCreated());
+        String response = this.mockMvc.perform(get("/medico/dni/" + medico.getDni()))
+                .andReturn().getResponse().getContentAsString();
+        medico = objectMapper.readValue(response, Medico.class);
+
+        Paciente paciente = new Paciente("Paciente Rechazo", 40, "2025-06-01", "87654321R", medico);
+        this.mockMvc.perform(post("/paciente")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(paciente)))
+                .andExpect(status().isCreated());
+        response = this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andReturn().getResponse().getContentAsString();
+        paciente = objectMapper.readValue(response, Paciente[].class)[0];
+
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", "healthy.png", "image/png", contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+        response = this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andReturn().getResponse().getContentAsString();
+        idImagen = objectMapper.readValue(response, ImagenResumen[].class)[0].getId();
+    }
+
+    @Test
+    @DisplayName("Una predicción rechazada por el servicio externo devuelve 503")
+    void predecir_rechazada_devuelveServiceUnavailable() throws Exception {
+        this.mockMvc.perform(get("/imagen/predict/" + idImagen))
+                .andExpect(status().isServiceUnavailable());
+        this.mockMvc.perform(post("/imagen/predict/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(List.of(idImagen))))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
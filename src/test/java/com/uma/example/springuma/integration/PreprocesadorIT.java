@@ -0,0 +1,146 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Calendar;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryImagenContenido;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+import com.uma.example.springuma.prediccion.Preprocesador;
+import com.uma.example.springuma.utils.ImageUtils;
+
+/*
+ * Test de integración de la preparación de imágenes como entrada de un modelo.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class PreprocesadorIT {
+
+    private static final Preprocesador.Forma NHWC = new Preprocesador.Forma(8, 8, false);
+    private static final Preprocesador.Forma NCHW = new Preprocesador.Forma(8, 8, true);
+
+    @Autowired
+    private Preprocesador preprocesador;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private RepositoryMedico repositoryMedico;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private RepositoryImagenContenido repositoryImagenContenido;
+
+    private Paciente paciente;
+
+    private byte[] png;
+
+    @BeforeAll
+    void init() throws IOException {
+        Medico medico = repositoryMedico.save(new Medico("12345678A", "Doctor Test", "Radiologia"));
+        paciente = repositoryPaciente.save(new Paciente("Juan", 30, "2025-06-01", "87654321B", medico));
+        png = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+    }
+
+    private Imagen subir(String nombre, byte[] contenido) throws IOException {
+        imagenService.uploadImage(new MockMultipartFile("image", nombre, "image/png", contenido), paciente);
+        return repositoryImagen.getByPacienteId(paciente.getId()).stream()
+                .filter(imagen -> imagen.getNombre().equals(nombre))
+                .findFirst().orElseThrow();
+    }
+
+    private float[] leer(Imagen imagen, Preprocesador.Forma forma) throws IOException {
+        try (Preprocesador.Tensor tensor = preprocesador.preparar(imagen, forma)) {
+            FloatBuffer datos = tensor.getDatos();
+            float[] valores = new float[datos.remaining()];
+            datos.get(valores);
+            return valores;
+        }
+    }
+
+    @Test
+    @DisplayName("Escala la imagen al tamaño de entrada y normaliza cada canal en [0, 1]")
+    void preparar_escalaYNormaliza() throws IOException {
+        Imagen imagen = subir("escalada.png", png);
+
+        float[] nhwc = leer(imagen, NHWC);
+        float[] nchw = leer(imagen, NCHW);
+
+        assertEquals(8 * 8 * 3, nhwc.length);
+        for (float valor : nhwc) {
+            assertTrue(valor >= 0 && valor <= 1);
+        }
+        // Mismo pixel en los dos ordenes de canales
+        assertEquals(nhwc[0], nchw[0]);
+        assertEquals(nhwc[1], nchw[64]);
+        assertEquals(nhwc[2], nchw[128]);
+    }
+
+    @Test
+    @DisplayName("Reutiliza el tensor preparado sin volver a leer el contenido de la imagen")
+    void preparar_reutilizaTensorCacheado() throws IOException {
+        Imagen imagen = subir("cacheada.png", png);
+        float[] primero = leer(imagen, NHWC);
+
+        repositoryImagenContenido.borrarContenido(imagen.getId());
+
+        assertEquals(FloatBuffer.wrap(primero), FloatBuffer.wrap(leer(imagen, NHWC)));
+    }
+
+    @Test
+    @DisplayName("Prepara las imagenes antiguas sin hash a partir de su contenido comprimido")
+    void preparar_imagenSinHash() throws IOException {
+        Imagen conHash = subir("referencia.png", png);
+        Imagen antigua = new Imagen();
+        antigua.setNombre("antigua.png");
+        antigua.setPaciente(paciente);
+        antigua.setFecha(Calendar.getInstance());
+        antigua = repositoryImagen.saveAndFlush(antigua);
+        try (InputStream comprimido = ImageUtils.compressImage(new ByteArrayInputStream(png))) {
+            repositoryImagenContenido.escribirContenido(antigua.getId(), comprimido);
+        }
+
+        float[] esperado = leer(conHash, NHWC);
+
+        // Dos veces, para pasar por un buffer devuelto al pool
+        assertEquals(FloatBuffer.wrap(esperado), FloatBuffer.wrap(leer(antigua, NHWC)));
+        assertEquals(FloatBuffer.wrap(esperado), FloatBuffer.wrap(leer(antigua, NHWC)));
+    }
+
+    @Test
+    @DisplayName("Falla si el contenido no es una imagen")
+    void preparar_contenidoNoEsImagen() throws IOException {
+        Imagen imagen = subir("texto.png", "no es una imagen".getBytes());
+
+        assertThrows(IOException.class, () -> leer(imagen, NHWC));
+    }
+}
@@ -0,0 +1,222 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Test de integración del número de sentencias SQL por petición: cada listado se resuelve con
+ * las mismas sentencias sea cual sea el número de filas, sin una consulta más por fila.
+ */
+class SentenciasPorPeticionIT extends AbstractIntegration {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Medico medico;
+
+    private Paciente paciente;
+
+    private long idImagen;
+
+    private byte[] contenido;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        medico = crearMedicos(1).get(0);
+        paciente = crearPacientes(List.of(medico), 1).get(0);
+        contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        idImagen = subirImagen();
+    }
+
+    private List<Medico> crearMedicos(int cuantos) throws Exception {
+        List<Medico> medicos = new ArrayList<>();
+        long inicio = System.nanoTime() % 1_000_000;
+        for (int i = 0; i < cuantos; i++) {
+            medicos.add(new Medico(String.format("%07d%dM", inicio, i), "Medico " + i, "Radiologia"));
+        }
+        String ids = this.mockMvc.perform(post("/medico/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medicos)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long[] creados = objectMapper.readValue(ids, Long[].class);
+        for (int i = 0; i < cuantos; i++) {
+            medicos.get(i).setId(creados[i]);
+        }
+        return medicos;
+    }
+
+    // Un paciente por medico en cada vuelta, para que los listados mezclen medicos distintos
+    private List<Paciente> crearPacientes(List<Medico> medicos, int porMedico) throws Exception {
+        List<Paciente> pacientes = new ArrayList<>();
+        for (int i = 0; i < porMedico; i++) {
+            for (Medico m : medicos) {
+                String dni = String.format("%08dP", System.nanoTime() % 100_000_000);
+                pacientes.add(new Paciente("Paciente " + dni, 40, "2025-06-01", dni, m));
+            }
+        }
+        String ids = this.mockMvc.perform(post("/paciente/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(pacientes)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long[] creados = objectMapper.readValue(ids, Long[].class);
+        for (int i = 0; i < pacientes.size(); i++) {
+            pacientes.get(i).setId(creados[i]);
+        }
+        return pacientes;
+    }
+
+    private long subirImagen() throws Exception {
+        this.mockMvc.perform(multipart("/imagen")
+                .file(new MockMultipartFile("image", "healthy.png", "image/png", contenido))
+                .file(new MockMultipartFile("paciente", "", "application/json", objectMapper.writeValueAsBytes(paciente))))
+                .andExpect(status().isOk());
+        String response = this.mockMvc.perform(get("/imagen/paciente/" + paciente.getId()))
+                .andReturn().getResponse().getContentAsString();
+        ImagenResumen[] imagenes = objectMapper.readValue(response, ImagenResumen[].class);
+        return imagenes[imagenes.length - 1].getId();
+    }
+
+    private void crearInformes(int cuantos) throws Exception {
+        List<Informe> informes = new ArrayList<>();
+        for (int i = 0; i < cuantos; i++) {
+            Imagen imagen = new Imagen();
+            imagen.setId(idImagen);
+            informes.add(new Informe(null, "Informe " + i, imagen));
+        }
+        this.mockMvc.perform(post("/informe/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(informes)))
+                .andExpect(status().isCreated());
+    }
+
+    // Sentencias preparadas al atender la peticion, con la cache de segundo nivel vacia para que
+    // cuente todo lo que se lee de la base de datos
+    private long sentencias(String url) throws Exception {
+        entityManagerFactory.getCache().evictAll();
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictQueryRegions();
+        Statistics estadisticas = sessionFactory.getStatistics();
+        estadisticas.clear();
+        this.mockMvc.perform(get(url))
+                .andExpect(status().isOk());
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    @Test
+    @DisplayName("Los listados de informes cargan imagen, paciente y médico sin una consulta por informe")
+    void listadoInformes() throws Exception {
+        crearInformes(1);
+        long porImagen = sentencias("/informe/imagen/" + idImagen);
+        long pagina = sentencias("/informe/pagina?tamano=50");
+
+        crearInformes(9);
+        assertEquals(porImagen, sentencias("/informe/imagen/" + idImagen));
+        assertEquals(pagina, sentencias("/informe/pagina?tamano=50"));
+        assertEquals(1, porImagen);
+        assertEquals(1, pagina);
+
+        this.mockMvc.perform(get("/informe/imagen/" + idImagen))
+                .andExpect(jsonPath("$.length()").value(10))
+                .andExpect(jsonPath("$[9].imagen.paciente.dni").value(paciente.getDni()))
+                .andExpect(jsonPath("$[9].imagen.paciente.medico.dni").value(medico.getDni()));
+    }
+
+    @Test
+    @DisplayName("Los listados de pacientes cargan su médico sin una consulta por paciente")
+    void listadoPacientes() throws Exception {
+        long porMedico = sentencias("/paciente/medico/" + medico.getId());
+        long pagina = sentencias("/paciente/pagina?tamano=50");
+
+        crearPacientes(List.of(medico), 5);
+        crearPacientes(crearMedicos(4), 2);
+        assertEquals(porMedico, sentencias("/paciente/medico/" + medico.getId()));
+        assertEquals(pagina, sentencias("/paciente/pagina?tamano=50"));
+        assertEquals(1, porMedico);
+        assertEquals(1, pagina);
+
+        this.mockMvc.perform(get("/paciente/pagina?tamano=50"))
+                .andExpect(jsonPath("$.elementos.length()").value(14))
+                .andExpect(jsonPath("$.elementos[13].medico.especialidad").value("Radiologia"));
+    }
+
+    @Test
+    @DisplayName("Los listados de imágenes no cargan el paciente ni el contenido")
+    void listadoImagenes() throws Exception {
+        long porPaciente = sentencias("/imagen/paciente/" + paciente.getId());
+        long pagina = sentencias("/imagen/pagina?tamano=50");
+
+        for (int i = 0; i < 5; i++) {
+            subirImagen();
+        }
+        assertEquals(porPaciente, sentencias("/imagen/paciente/" + paciente.getId()));
+        assertEquals(pagina, sentencias("/imagen/pagina?tamano=50"));
+        assertEquals(1, porPaciente);
+        assertEquals(1, pagina);
+    }
+
+    @Test
+    @DisplayName("Un informe, una imagen o un paciente por id se leen en una sola consulta")
+    void detalle() throws Exception {
+        crearInformes(1);
+        String response = this.mockMvc.perform(get("/informe/imagen/" + idImagen))
+                .andReturn().getResponse().getContentAsString();
+        long idInforme = objectMapper.readValue(response, Informe[].class)[0].getId();
+
+        assertEquals(1, sentencias("/informe/" + idInforme));
+        assertEquals(1, sentencias("/imagen/info/" + idImagen));
+        assertEquals(1, sentencias("/paciente/" + paciente.getId()));
+
+        this.mockMvc.perform(get("/imagen/info/" + idImagen))
+                .andExpect(jsonPath("$.paciente.medico.dni").value(medico.getDni()));
+        this.mockMvc.perform(get("/informe/" + idInforme))
+                .andExpect(jsonPath("$.imagen.nombre").value("healthy.png"))
+                .andExpect(jsonPath("$.imagen.paciente.medico.nombre").value(medico.getNombre()));
+        this.mockMvc.perform(get("/paciente/" + paciente.getId()))
+                .andExpect(jsonPath("$.medico.dni").value(medico.getDni()));
+    }
+
+    @Test
+    @DisplayName("Una imagen o un paciente que no existen devuelven 404")
+    void detalleNoExiste() throws Exception {
+        this.mockMvc.perform(get("/imagen/info/999999"))
+                .andExpect(status().isNotFound());
+        this.mockMvc.perform(get("/paciente/999999"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,21 @@
+package com.uma.example.springuma.integration.base;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+// Cada contexto de test usa su propia base de datos en memoria (test.bd.nombre en
+// application.properties). Los contextos siguen en cache mientras se ejecutan otros tests, asi que
+// compartiendo la base de datos cada uno veria las filas que han dejado los demas
+public class BaseDeDatosPorContexto implements EnvironmentPostProcessor {
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        environment.getPropertySources().addLast(new MapPropertySource("baseDeDatosPorContexto",
+                Map.of("test.bd.nombre", "test_db_" + UUID.randomUUID())));
+    }
+}
@@ -0,0 +1,32 @@
+package com.uma.example.springuma.integration.base;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Cada contexto de test tiene su propio CacheManager de JCache para la cache de segundo nivel. Con el
+// CacheManager por defecto todos los contextos comparten las mismas caches (con entidades de otra base
+// de datos) y, al cerrarse uno, Hibernate las cierra para los que siguen en cache. JCache guarda un
+// CacheManager por URI y ClassLoader, asi que basta con pedirlo con un ClassLoader propio. Caffeine
+// solo guarda una referencia debil al ClassLoader: la configuracion lo mantiene vivo con el contexto
+@Configuration
+public class CachePorContextoConfig {
+
+    private final ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) {
+    };
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerDelContexto() {
+        CachingProvider provider = Caching.getCachingProvider();
+        return provider.getCacheManager(provider.getDefaultURI(), classLoader);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheManagerDeHibernate(CacheManager cacheManagerDelContexto) {
+        return propiedades -> propiedades.put("hibernate.javax.cache.cache_manager", cacheManagerDelContexto);
+    }
+}
@@ -0,0 +1,17 @@
+package com.uma.example.springuma.integration.base;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Dnis que no se repiten entre los tests que comparten contexto, y con el la base de datos: cada test
+// da de alta sus propios medicos y pacientes sin chocar con los de los tests anteriores
+public final class Dnis {
+
+    private static final AtomicInteger ultimo = new AtomicInteger();
+
+    private Dnis() {
+    }
+
+    public static String nuevo() {
+        return String.format("%08dT", ultimo.incrementAndGet());
+    }
+}
@@ -0,0 +1,49 @@
+-- Esquema y datos de database.mv.db tal y como estaba antes de las migraciones de Flyway
+-- (volcado con org.h2.tools.Script). Lo usa EsquemaOriginalIT.
+
+CREATE SEQUENCE IMAGEN_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE INFORME_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE MEDICO_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE PACIENTE_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IMAGEN(
+    ID BIGINT NOT NULL,
+    FECHA TIMESTAMP(6),
+    FILE_CONTENT BINARY LARGE OBJECT,
+    NOMBRE CHARACTER VARYING(255),
+    PACIENTE_ID BIGINT
+);
+ALTER TABLE IMAGEN ADD CONSTRAINT CONSTRAINT_8 PRIMARY KEY(ID);
+
+CREATE TABLE INFORME(
+    ID BIGINT NOT NULL,
+    CONTENIDO CHARACTER VARYING,
+    PREDICCION CHARACTER VARYING(255),
+    IMAGEN_ID BIGINT
+);
+ALTER TABLE INFORME ADD CONSTRAINT CONSTRAINT_9 PRIMARY KEY(ID);
+
+CREATE TABLE MEDICO(
+    ID BIGINT NOT NULL,
+    DNI CHARACTER VARYING(255),
+    ESPECIALIDAD CHARACTER VARYING(255),
+    NOMBRE CHARACTER VARYING(255)
+);
+ALTER TABLE MEDICO ADD CONSTRAINT CONSTRAINT_87 PRIMARY KEY(ID);
+INSERT INTO MEDICO VALUES (1, '12345678M', 'Cirujano', 'Pepito');
+
+CREATE TABLE PACIENTE(
+    ID BIGINT NOT NULL,
+    CITA CHARACTER VARYING(255),
+    DNI CHARACTER VARYING(255),
+    EDAD INTEGER,
+    NOMBRE CHARACTER VARYING(255),
+    MEDICO_ID BIGINT
+);
+ALTER TABLE PACIENTE ADD CONSTRAINT CONSTRAINT_5 PRIMARY KEY(ID);
+
+ALTER TABLE PACIENTE ADD CONSTRAINT UK_WR6KXHPAYD3JDLUDSYTBN8AG UNIQUE(DNI);
+ALTER TABLE MEDICO ADD CONSTRAINT UK_BXIKGOXGF4C1147WAT5JTH878 UNIQUE(DNI);
+ALTER TABLE PACIENTE ADD CONSTRAINT FKDB6GGRAU4KXV0XCU8N17BMN9U FOREIGN KEY(MEDICO_ID) REFERENCES MEDICO(ID) ON DELETE CASCADE;
+ALTER TABLE IMAGEN ADD CONSTRAINT FKIMRYCMHLRXO3MCT9129VHSLET FOREIGN KEY(PACIENTE_ID) REFERENCES PACIENTE(ID) ON DELETE CASCADE;
+ALTER TABLE INFORME ADD CONSTRAINT FK6EIIJURDYXKY4959WF40P9KIV FOREIGN KEY(IMAGEN_ID) REFERENCES IMAGEN(ID) ON DELETE CASCADE;